@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.update;
 
+import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Requests;
@@ -30,6 +31,8 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.VersionType;
@@ -49,6 +52,7 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.lookup.SourceLookup;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -150,18 +154,22 @@ public class UpdateHelper extends AbstractComponent {
             throw new DocumentSourceMissingException(shardId, request.type(), request.id());
         }
 
-        Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(getResult.internalSourceRef(), true);
+        // partial documents are merged into the source while streaming it unless the updated source has to be returned as a map.
+        // Compressed sources can't be detected here and go through the map based path.
+        final XContentType streamingContentType = canStreamUpdate(request) ? XContentFactory.xContentType(getResult.internalSourceRef()) : null;
+        final Tuple<XContentType, Map<String, Object>> sourceAndContent = streamingContentType == null ?
+                XContentHelper.convertToMap(getResult.internalSourceRef(), true) : null;
         String operation = null;
         String timestamp = null;
         TimeValue ttl = null;
         final Map<String, Object> updatedSourceAsMap;
-        final XContentType updateSourceContentType = sourceAndContent.v1();
+        XContentBuilder updatedSource = null;
+        final XContentType updateSourceContentType = streamingContentType == null ? sourceAndContent.v1() : streamingContentType;
         String routing = getResult.getFields().containsKey(RoutingFieldMapper.NAME) ? getResult.field(RoutingFieldMapper.NAME).getValue().toString() : null;
         String parent = getResult.getFields().containsKey(ParentFieldMapper.NAME) ? getResult.field(ParentFieldMapper.NAME).getValue().toString() : null;
 
         if (request.script() == null && request.doc() != null) {
             IndexRequest indexRequest = request.doc();
-            updatedSourceAsMap = sourceAndContent.v2();
             if (indexRequest.ttl() != null) {
                 ttl = indexRequest.ttl();
             }
@@ -172,7 +180,19 @@ public class UpdateHelper extends AbstractComponent {
             if (indexRequest.parent() != null) {
                 parent = indexRequest.parent();
             }
-            boolean noop = !XContentHelper.update(updatedSourceAsMap, indexRequest.sourceAsMap(), request.detectNoop());
+            final boolean noop;
+            if (streamingContentType != null) {
+                updatedSourceAsMap = null;
+                try {
+                    updatedSource = XContentFactory.contentBuilder(streamingContentType);
+                    noop = !XContentHelper.update(getResult.internalSourceRef(), indexRequest.sourceAsMap(), request.detectNoop(), updatedSource);
+                } catch (IOException e) {
+                    throw new ElasticsearchParseException("failed to merge partial document into source", e);
+                }
+            } else {
+                updatedSourceAsMap = sourceAndContent.v2();
+                noop = !XContentHelper.update(updatedSourceAsMap, indexRequest.sourceAsMap(), request.detectNoop());
+            }
             // noop could still be true even if detectNoop isn't because update detects empty maps as noops.  BUT we can only
             // actually turn the update into a noop if detectNoop is true to preserve backwards compatibility and to handle
             // cases where users repopulating multi-fields or adding synonyms, etc.
@@ -220,9 +240,13 @@ public class UpdateHelper extends AbstractComponent {
         }
 
         if (operation == null || "index".equals(operation)) {
-            final IndexRequest indexRequest = Requests.indexRequest(request.index()).type(request.type()).id(request.id()).routing(routing).parent(parent)
-                    .source(updatedSourceAsMap, updateSourceContentType)
-                    .version(updateVersion).versionType(request.versionType())
+            final IndexRequest indexRequest = Requests.indexRequest(request.index()).type(request.type()).id(request.id()).routing(routing).parent(parent);
+            if (updatedSource != null) {
+                indexRequest.source(updatedSource);
+            } else {
+                indexRequest.source(updatedSourceAsMap, updateSourceContentType);
+            }
+            indexRequest.version(updateVersion).versionType(request.versionType())
                     .consistencyLevel(request.consistencyLevel())
                     .timestamp(timestamp).ttl(ttl)
                     .refresh(request.refresh());
@@ -243,6 +267,14 @@ public class UpdateHelper extends AbstractComponent {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the partial document of the given request can be merged into the existing source without
+     * converting the source into a map. This is the case for partial document updates that don't ask for fields to be returned.
+     */
+    private static boolean canStreamUpdate(UpdateRequest request) {
+        return request.script() == null && request.doc() != null && (request.fields() == null || request.fields().length == 0);
+    }
+
     private Map<String, Object> executeScript(UpdateRequest request, Map<String, Object> ctx) {
         try {
             if (scriptService != null) {
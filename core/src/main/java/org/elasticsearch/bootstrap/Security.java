@@ -253,6 +253,9 @@ final class Security {
         if (environment.sharedDataFile() != null) {
             addPath(policy, "path.shared_data", environment.sharedDataFile(), "read,readlink,write,delete");
         }
+        if (environment.cacheFile() != null) {
+            addPath(policy, "path.cache", environment.cacheFile(), "read,readlink,write,delete");
+        }
         for (Path path : environment.dataFiles()) {
             addPath(policy, "path.data", path, "read,readlink,write,delete");
         }
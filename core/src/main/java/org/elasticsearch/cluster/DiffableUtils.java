@@ -644,4 +644,27 @@ public final class DiffableUtils {
             return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(in.readStringArray())));
         }
     }
+
+    /**
+     * Implementation of ValueSerializer that serializes (nullable) strings
+     *
+     * @param <K> type of map key
+     */
+    public static class StringValueSerializer<K> extends NonDiffableValueSerializer<K, String> {
+        private static final StringValueSerializer INSTANCE = new StringValueSerializer();
+
+        public static <K> StringValueSerializer<K> getInstance() {
+            return INSTANCE;
+        }
+
+        @Override
+        public void write(String value, StreamOutput out) throws IOException {
+            out.writeOptionalString(value);
+        }
+
+        @Override
+        public String read(StreamInput in, K key) throws IOException {
+            return in.readOptionalString();
+        }
+    }
 }
@@ -19,6 +19,8 @@
 
 package org.elasticsearch.cluster.action.shard;
 
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
@@ -42,8 +44,11 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.node.NodeClosedException;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -59,8 +64,12 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.cluster.routing.ShardRouting.readShardRoutingEntry;
 
@@ -69,18 +78,43 @@ public class ShardStateAction extends AbstractComponent {
     public static final String SHARD_STARTED_ACTION_NAME = "internal:cluster/shard/started";
     public static final String SHARD_FAILED_ACTION_NAME = "internal:cluster/shard/failure";
 
+    /**
+     * How long the master collects incoming shard started messages before submitting them to the cluster service. The
+     * messages are applied as a single batch either way, a delay only makes the batches larger when shards start
+     * in quick succession, e.g. during a full cluster restart.
+     */
+    public static final Setting<TimeValue> SHARD_STARTED_BATCH_DELAY_SETTING =
+        Setting.timeSetting("cluster.routing.allocation.shard_started_batch_delay", TimeValue.timeValueMillis(0), TimeValue.timeValueMillis(0),
+            false, Setting.Scope.CLUSTER);
+
     private final TransportService transportService;
     private final ClusterService clusterService;
+    private final BatchSizes startedBatchSizes = new BatchSizes();
+    private final BatchSizes failedBatchSizes = new BatchSizes();
 
     @Inject
     public ShardStateAction(Settings settings, ClusterService clusterService, TransportService transportService,
-                            AllocationService allocationService, RoutingService routingService) {
+                            AllocationService allocationService, RoutingService routingService, ThreadPool threadPool) {
         super(settings);
         this.transportService = transportService;
         this.clusterService = clusterService;
 
-        transportService.registerRequestHandler(SHARD_STARTED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardStartedTransportHandler(clusterService, new ShardStartedClusterStateTaskExecutor(allocationService, logger), logger));
-        transportService.registerRequestHandler(SHARD_FAILED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardFailedTransportHandler(clusterService, new ShardFailedClusterStateTaskExecutor(allocationService, routingService, logger), logger));
+        transportService.registerRequestHandler(SHARD_STARTED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardStartedTransportHandler(clusterService, new ShardStartedClusterStateTaskExecutor(allocationService, startedBatchSizes, logger), threadPool, SHARD_STARTED_BATCH_DELAY_SETTING.get(settings), logger));
+        transportService.registerRequestHandler(SHARD_FAILED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardFailedTransportHandler(clusterService, new ShardFailedClusterStateTaskExecutor(allocationService, routingService, failedBatchSizes, logger), logger));
+    }
+
+    /**
+     * The sizes of the batches of shard started tasks this node applied as the master.
+     */
+    public BatchSizes getStartedBatchSizes() {
+        return startedBatchSizes;
+    }
+
+    /**
+     * The sizes of the batches of shard failed tasks this node applied as the master.
+     */
+    public BatchSizes getFailedBatchSizes() {
+        return failedBatchSizes;
     }
 
     private void sendShardAction(final String actionName, final ClusterStateObserver observer, final ShardRoutingEntry shardRoutingEntry, final Listener listener) {
@@ -212,11 +246,13 @@ public class ShardStateAction extends AbstractComponent {
     private static class ShardFailedClusterStateTaskExecutor implements ClusterStateTaskExecutor<ShardRoutingEntry> {
         private final AllocationService allocationService;
         private final RoutingService routingService;
+        private final BatchSizes batchSizes;
         private final ESLogger logger;
 
-        public ShardFailedClusterStateTaskExecutor(AllocationService allocationService, RoutingService routingService, ESLogger logger) {
+        public ShardFailedClusterStateTaskExecutor(AllocationService allocationService, RoutingService routingService, BatchSizes batchSizes, ESLogger logger) {
             this.allocationService = allocationService;
             this.routingService = routingService;
+            this.batchSizes = batchSizes;
             this.logger = logger;
         }
 
@@ -227,6 +263,10 @@ public class ShardStateAction extends AbstractComponent {
             for (ShardRoutingEntry task : tasks) {
                 failedShards.add(new FailedRerouteAllocation.FailedShard(task.shardRouting, task.message, task.failure));
             }
+            batchSizes.record(tasks.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("applying [{}] failed shards in one batch", failedShards.size());
+            }
             ClusterState maybeUpdatedState = currentState;
             try {
                 RoutingAllocation.Result result = allocationService.applyFailedShards(currentState, failedShards);
@@ -259,36 +299,73 @@ public class ShardStateAction extends AbstractComponent {
         sendShardAction(SHARD_STARTED_ACTION_NAME, observer, shardRoutingEntry, listener);
     }
 
-    private static class ShardStartedTransportHandler implements TransportRequestHandler<ShardRoutingEntry> {
+    // pkg private for testing
+    static class ShardStartedTransportHandler implements TransportRequestHandler<ShardRoutingEntry> {
         private final ClusterService clusterService;
         private final ShardStartedClusterStateTaskExecutor shardStartedClusterStateTaskExecutor;
+        private final ThreadPool threadPool;
+        private final TimeValue batchDelay;
         private final ESLogger logger;
+        private final Queue<ShardRoutingEntry> pendingEntries = ConcurrentCollections.newQueue();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
 
-        public ShardStartedTransportHandler(ClusterService clusterService, ShardStartedClusterStateTaskExecutor shardStartedClusterStateTaskExecutor, ESLogger logger) {
+        public ShardStartedTransportHandler(ClusterService clusterService, ShardStartedClusterStateTaskExecutor shardStartedClusterStateTaskExecutor,
+                                            ThreadPool threadPool, TimeValue batchDelay, ESLogger logger) {
             this.clusterService = clusterService;
             this.shardStartedClusterStateTaskExecutor = shardStartedClusterStateTaskExecutor;
+            this.threadPool = threadPool;
+            this.batchDelay = batchDelay;
             this.logger = logger;
         }
 
         @Override
         public void messageReceived(ShardRoutingEntry request, TransportChannel channel) throws Exception {
             logger.debug("{} received shard started for [{}]", request.shardRouting.shardId(), request);
+            if (batchDelay.millis() > 0) {
+                pendingEntries.add(request);
+                if (flushScheduled.compareAndSet(false, true)) {
+                    try {
+                        threadPool.schedule(batchDelay, ThreadPool.Names.GENERIC, this::flushPendingEntries);
+                    } catch (Exception e) {
+                        // e.g. rejected on shutdown, don't leave the entries behind
+                        logger.debug("failed to schedule the submission of started shards, submitting them now", e);
+                        flushPendingEntries();
+                    }
+                }
+            } else {
+                submit(request);
+            }
+            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+        }
+
+        private void flushPendingEntries() {
+            // reset first so that entries arriving while we drain schedule another flush rather than getting lost
+            flushScheduled.set(false);
+            ShardRoutingEntry entry;
+            while ((entry = pendingEntries.poll()) != null) {
+                submit(entry);
+            }
+        }
+
+        private void submit(ShardRoutingEntry request) {
             clusterService.submitStateUpdateTask(
                 "shard-started (" + request.shardRouting + "), reason [" + request.message + "]",
                 request,
                 ClusterStateTaskConfig.build(Priority.URGENT),
                 shardStartedClusterStateTaskExecutor,
                 shardStartedClusterStateTaskExecutor);
-            channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
     }
 
-    private static class ShardStartedClusterStateTaskExecutor implements ClusterStateTaskExecutor<ShardRoutingEntry>, ClusterStateTaskListener {
+    // pkg private for testing
+    static class ShardStartedClusterStateTaskExecutor implements ClusterStateTaskExecutor<ShardRoutingEntry>, ClusterStateTaskListener {
         private final AllocationService allocationService;
+        private final BatchSizes batchSizes;
         private final ESLogger logger;
 
-        public ShardStartedClusterStateTaskExecutor(AllocationService allocationService, ESLogger logger) {
+        public ShardStartedClusterStateTaskExecutor(AllocationService allocationService, BatchSizes batchSizes, ESLogger logger) {
             this.allocationService = allocationService;
+            this.batchSizes = batchSizes;
             this.logger = logger;
         }
 
@@ -296,8 +373,16 @@ public class ShardStateAction extends AbstractComponent {
         public BatchResult<ShardRoutingEntry> execute(ClusterState currentState, List<ShardRoutingEntry> tasks) throws Exception {
             BatchResult.Builder<ShardRoutingEntry> builder = BatchResult.builder();
             List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<>(tasks.size());
+            Set<ShardRouting> seenShardRoutings = new HashSet<>(tasks.size());
             for (ShardRoutingEntry task : tasks) {
-                shardRoutingsToBeApplied.add(task.shardRouting);
+                // the same shard may be reported more than once, e.g. when a node resends after a master change
+                if (seenShardRoutings.add(task.shardRouting)) {
+                    shardRoutingsToBeApplied.add(task.shardRouting);
+                }
+            }
+            batchSizes.record(tasks.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("applying [{}] started shards from [{}] tasks in one batch", shardRoutingsToBeApplied.size(), tasks.size());
             }
             ClusterState maybeUpdatedState = currentState;
             try {
@@ -320,6 +405,45 @@ public class ShardStateAction extends AbstractComponent {
         }
     }
 
+    /**
+     * A histogram of the number of tasks in the batches of shard started or shard failed tasks that were applied, to tell
+     * whether messages are batched, e.g. when tuning {@link #SHARD_STARTED_BATCH_DELAY_SETTING}.
+     */
+    public static final class BatchSizes {
+        // batches larger than this are recorded as this size
+        private static final int MAX_TRACKED_BATCH_SIZE = 100000;
+
+        private final Histogram sizes = new ConcurrentHistogram(MAX_TRACKED_BATCH_SIZE, 2);
+        private final CounterMetric tasks = new CounterMetric();
+
+        void record(int size) {
+            sizes.recordValue(Math.min(size, MAX_TRACKED_BATCH_SIZE));
+            tasks.inc(size);
+        }
+
+        /** the number of batches that were applied */
+        public long getBatchCount() {
+            return sizes.getTotalCount();
+        }
+
+        /** the number of tasks in all batches */
+        public long getTaskCount() {
+            return tasks.count();
+        }
+
+        public long getP50() {
+            return sizes.getValueAtPercentile(50);
+        }
+
+        public long getP99() {
+            return sizes.getValueAtPercentile(99);
+        }
+
+        public long getMax() {
+            return sizes.getMaxValue();
+        }
+    }
+
     public static class ShardRoutingEntry extends TransportRequest {
         ShardRouting shardRouting;
         String indexUUID = IndexMetaData.INDEX_UUID_NA_VALUE;
@@ -459,7 +459,7 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
         private final String index;
         private final long version;
         private final State state;
-        private final Settings settings;
+        private final Diff<Map<String, String>> settings;
         private final Diff<ImmutableOpenMap<String, MappingMetaData>> mappings;
         private final Diff<ImmutableOpenMap<String, AliasMetaData>> aliases;
         private final Diff<ImmutableOpenMap<String, Custom>> customs;
@@ -469,7 +469,9 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             index = after.index;
             version = after.version;
             state = after.state;
-            settings = after.settings;
+            // settings are diffed per key, changing a single dynamic setting should not resend all of them
+            settings = DiffableUtils.diff(before.settings.getAsMap(), after.settings.getAsMap(), DiffableUtils.getStringKeySerializer(),
+                    DiffableUtils.StringValueSerializer.getInstance());
             mappings = DiffableUtils.diff(before.mappings, after.mappings, DiffableUtils.getStringKeySerializer());
             aliases = DiffableUtils.diff(before.aliases, after.aliases, DiffableUtils.getStringKeySerializer());
             customs = DiffableUtils.diff(before.customs, after.customs, DiffableUtils.getStringKeySerializer());
@@ -481,7 +483,7 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             index = in.readString();
             version = in.readLong();
             state = State.fromId(in.readByte());
-            settings = Settings.readSettingsFromStream(in);
+            settings = DiffableUtils.readJdkMapDiff(in, DiffableUtils.getStringKeySerializer(), DiffableUtils.StringValueSerializer.getInstance());
             mappings = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(), MappingMetaData.PROTO);
             aliases = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(), AliasMetaData.PROTO);
             customs = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(),
@@ -505,7 +507,7 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             out.writeString(index);
             out.writeLong(version);
             out.writeByte(state.id);
-            Settings.writeSettingsToStream(settings, out);
+            settings.writeTo(out);
             mappings.writeTo(out);
             aliases.writeTo(out);
             customs.writeTo(out);
@@ -517,7 +519,7 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             Builder builder = builder(index);
             builder.version(version);
             builder.state(state);
-            builder.settings(settings);
+            builder.settings(Settings.builder().put(settings.apply(part.settings.getAsMap())));
             builder.mappings.putAll(mappings.apply(part.mappings));
             builder.aliases.putAll(aliases.apply(part.aliases));
             builder.customs.putAll(customs.apply(part.customs));
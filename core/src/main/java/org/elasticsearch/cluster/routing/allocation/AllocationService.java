@@ -43,11 +43,13 @@ import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
@@ -291,6 +293,31 @@ public class AllocationService extends AbstractComponent {
     }
 
     private boolean reroute(RoutingAllocation allocation) {
+        if (logger.isDebugEnabled() == false) {
+            return doReroute(allocation);
+        }
+        allocation.profileDeciders(true);
+        final long startNanos = System.nanoTime();
+        try {
+            return doReroute(allocation);
+        } finally {
+            logDeciderTimings(allocation, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void logDeciderTimings(RoutingAllocation allocation, long tookNanos) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : allocation.deciderTimings().entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(" [calls: ").append(entry.getValue()[0])
+                .append(", took: ").append(TimeValue.timeValueNanos(entry.getValue()[1])).append("]");
+        }
+        logger.debug("reroute took [{}], time per decider: [{}]", TimeValue.timeValueNanos(tookNanos), sb);
+    }
+
+    private boolean doReroute(RoutingAllocation allocation) {
         boolean changed = false;
         // first, clear from the shards any node id they used to belong to that is now dead
         changed |= deassociateDeadNodes(allocation);
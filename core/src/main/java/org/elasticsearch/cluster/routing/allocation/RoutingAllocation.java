@@ -24,6 +24,7 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
 import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.index.shard.ShardId;
@@ -32,7 +33,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.unmodifiableSet;
 
@@ -134,6 +138,9 @@ public class RoutingAllocation {
 
     private final long currentNanoTime;
 
+    private final Map<Object, Object> cache = new HashMap<>();
+
+    private Map<String, long[]> deciderTimings = null;
 
     /**
      * Creates a new {@link RoutingAllocation}
@@ -270,6 +277,50 @@ public class RoutingAllocation {
         }
     }
 
+    /**
+     * Returns the value cached under the given key for the lifetime of this allocation, computing it with the given
+     * supplier on first access. Only values that do not depend on where shards are assigned may be cached, since
+     * shards move while the allocation runs. Keys must be unique to the caller.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T cached(Object key, Supplier<T> supplier) {
+        Object value = cache.get(key);
+        if (value == null) {
+            value = supplier.get();
+            cache.put(key, value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Enables or disables recording the time spent in each {@link AllocationDecider} during this allocation.
+     */
+    public void profileDeciders(boolean profile) {
+        this.deciderTimings = profile ? new HashMap<>() : null;
+    }
+
+    public boolean profileDeciders() {
+        return deciderTimings != null;
+    }
+
+    /**
+     * Records a single call to the given decider that took the given amount of nanoseconds.
+     */
+    public void addDeciderTime(AllocationDecider decider, long nanos) {
+        assert deciderTimings != null : "deciders are not profiled";
+        long[] timing = deciderTimings.computeIfAbsent(decider.getClass().getSimpleName(), k -> new long[2]);
+        timing[0]++;
+        timing[1] += nanos;
+    }
+
+    /**
+     * Returns the number of calls and the total nanoseconds spent per decider, keyed by the decider's simple class name,
+     * or an empty map if deciders are not profiled.
+     */
+    public Map<String, long[]> deciderTimings() {
+        return deciderTimings == null ? emptyMap() : new TreeMap<>(deciderTimings);
+    }
+
     /**
      * Returns <code>true</code> iff the current allocation run has not processed all of the in-flight or available
      * shard or store fetches. Otherwise <code>true</code>
@@ -40,6 +40,7 @@ import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.gateway.PriorityComparator;
 
 import java.util.ArrayList;
@@ -66,6 +67,8 @@ import static org.elasticsearch.cluster.routing.ShardRoutingState.RELOCATING;
  * of {@link org.elasticsearch.cluster.routing.ShardRouting}s per index allocated on a specific node</li>
  * <li><code>cluster.routing.allocation.balance.threshold</code> - A <b>threshold</b> to set the minimal optimization
  * value of operations that should be performed</li>
+ * <li><code>cluster.routing.allocation.balance.max_time</code> - The maximum <b>time</b> a single rebalance round may
+ * spend before it stops and leaves the remaining indices to the next reroute</li>
  * </ul>
  * <p>
  * These parameters are combined in a {@link WeightFunction} that allows calculation of node weights which
@@ -76,9 +79,18 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     public static final Setting<Float> INDEX_BALANCE_FACTOR_SETTING = Setting.floatSetting("cluster.routing.allocation.balance.index", 0.55f, true, Setting.Scope.CLUSTER);
     public static final Setting<Float> SHARD_BALANCE_FACTOR_SETTING = Setting.floatSetting("cluster.routing.allocation.balance.shard", 0.45f, true, Setting.Scope.CLUSTER);
     public static final Setting<Float> THRESHOLD_SETTING = Setting.floatSetting("cluster.routing.allocation.balance.threshold", 1.0f, 0.0f, true, Setting.Scope.CLUSTER);
+    public static final Setting<TimeValue> MAX_REBALANCE_TIME_SETTING = new Setting<>("cluster.routing.allocation.balance.max_time", "-1", (s) -> {
+        TimeValue timeValue = TimeValue.parseTimeValue(s, null, "cluster.routing.allocation.balance.max_time");
+        if (timeValue.millis() == 0 || timeValue.millis() < -1) {
+            // a budget of 0 would silently disable rebalancing
+            throw new IllegalArgumentException("Failed to parse value [" + s + "] for setting [cluster.routing.allocation.balance.max_time] must be -1 or > 0");
+        }
+        return timeValue;
+    }, true, Setting.Scope.CLUSTER);
 
     private volatile WeightFunction weightFunction;
     private volatile float threshold;
+    private volatile TimeValue maxRebalanceTime;
 
     public BalancedShardsAllocator(Settings settings) {
         this(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
@@ -89,8 +101,10 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         super(settings);
         setWeightFunction(INDEX_BALANCE_FACTOR_SETTING.get(settings), SHARD_BALANCE_FACTOR_SETTING.get(settings));
         setThreshold(THRESHOLD_SETTING.get(settings));
+        setMaxRebalanceTime(MAX_REBALANCE_TIME_SETTING.get(settings));
         clusterSettings.addSettingsUpdateConsumer(INDEX_BALANCE_FACTOR_SETTING, SHARD_BALANCE_FACTOR_SETTING, this::setWeightFunction);
         clusterSettings.addSettingsUpdateConsumer(THRESHOLD_SETTING, this::setThreshold);
+        clusterSettings.addSettingsUpdateConsumer(MAX_REBALANCE_TIME_SETTING, this::setMaxRebalanceTime);
     }
 
     private void setWeightFunction(float indexBalance, float shardBalanceFactor) {
@@ -101,6 +115,10 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         this.threshold = threshold;
     }
 
+    private void setMaxRebalanceTime(TimeValue maxRebalanceTime) {
+        this.maxRebalanceTime = maxRebalanceTime;
+    }
+
     @Override
     public void applyStartedShards(StartedRerouteAllocation allocation) { /* ONLY FOR GATEWAYS */ }
 
@@ -109,19 +127,19 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
     @Override
     public boolean allocateUnassigned(RoutingAllocation allocation) {
-        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
+        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold, maxRebalanceTime);
         return balancer.allocateUnassigned();
     }
 
     @Override
     public boolean rebalance(RoutingAllocation allocation) {
-        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
+        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold, maxRebalanceTime);
         return balancer.balance();
     }
 
     @Override
     public boolean move(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
-        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
+        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold, maxRebalanceTime);
         return balancer.move(shardRouting, node);
     }
 
@@ -146,6 +164,13 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         return weightFunction.shardBalance;
     }
 
+    /**
+     * Returns the maximum time a single rebalance round may take, or a negative value if it is unbounded.
+     */
+    public TimeValue getMaxRebalanceTime() {
+        return maxRebalanceTime;
+    }
+
 
     /**
      * This class is the primary weight function used to create balanced over nodes and shards in the cluster.
@@ -221,16 +246,22 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private final WeightFunction weight;
 
         private final float threshold;
+        private final long maxRebalanceNanos;
         private final MetaData metaData;
         private final float avgShardsPerNode;
 
         private final Predicate<ShardRouting> assignedFilter = shard -> shard.assignedToNode();
 
         public Balancer(ESLogger logger, RoutingAllocation allocation, WeightFunction weight, float threshold) {
+            this(logger, allocation, weight, threshold, TimeValue.timeValueMillis(-1));
+        }
+
+        public Balancer(ESLogger logger, RoutingAllocation allocation, WeightFunction weight, float threshold, TimeValue maxRebalanceTime) {
             this.logger = logger;
             this.allocation = allocation;
             this.weight = weight;
             this.threshold = threshold;
+            this.maxRebalanceNanos = maxRebalanceTime.nanos();
             this.routingNodes = allocation.routingNodes();
             for (RoutingNode node : routingNodes) {
                 nodes.put(node.nodeId(), new ModelNode(node.nodeId()));
@@ -340,7 +371,16 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                     AllocationDeciders deciders = allocation.deciders();
                     final ModelNode[] modelNodes = sorter.modelNodes;
                     final float[] weights = sorter.weights;
+                    final long startNanos = System.nanoTime();
                     for (String index : buildWeightOrderedIndices(sorter)) {
+                        if (changed && maxRebalanceNanos >= 0 && System.nanoTime() - startNanos > maxRebalanceNanos) {
+                            /* the most unbalanced indices come first, the remaining ones are picked up by the next reroute.
+                             * we only stop once a shard has been relocated: the reroute that follows when the relocation
+                             * completes continues with the remaining indices, so they don't wait for an unrelated event */
+                            logger.debug("stop balancing after [{}], remaining indices are balanced on the next reroute",
+                                TimeValue.timeValueNanos(System.nanoTime() - startNanos));
+                            break;
+                        }
                         IndexMetaData indexMetaData = metaData.index(index);
 
                         // find nodes that have a shard of this index or where shards of this index are allowed to stay
@@ -399,14 +439,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                                 /* pass the delta to the replication function to prevent relocations that only swap the weights of the two nodes.
                                  * a relocation must bring us closer to the balance if we only achieve the same delta the relocation is useless */
                                 if (tryRelocateShard(minNode, maxNode, index, delta)) {
-                                    /*
-                                     * TODO we could be a bit smarter here, we don't need to fully sort necessarily
-                                     * we could just find the place to insert linearly but the win might be minor
-                                     * compared to the added complexity
-                                     */
+                                    /* only the weights of the two affected nodes changed, so the range
+                                     * is still nearly sorted and we can restore the order in linear time */
                                     weights[lowIdx] = sorter.weight(modelNodes[lowIdx]);
                                     weights[highIdx] = sorter.weight(modelNodes[highIdx]);
-                                    sorter.sort(0, relevantNodes);
+                                    sorter.resort(0, relevantNodes);
                                     lowIdx = 0;
                                     highIdx = relevantNodes - 1;
                                     changed = true;
@@ -984,6 +1021,19 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return function.weight(balancer, node, index);
         }
 
+        /**
+         * Restores the weight order of the given range after the weights of
+         * some nodes changed. This is an insertion sort which runs in linear
+         * time if only a few nodes are out of place, unlike {@link #sort(int, int)}.
+         */
+        public void resort(int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                for (int j = i; j > from && compare(j - 1, j) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
         @Override
         protected void swap(int i, int j) {
             final ModelNode tmpNode = modelNodes[i];
@@ -49,8 +49,13 @@ public class AllocationDeciders extends AllocationDecider {
     @Override
     public Decision canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canRebalance(shardRouting, allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (!allocation.debugDecision()) {
@@ -71,8 +76,13 @@ public class AllocationDeciders extends AllocationDecider {
             return Decision.NO;
         }
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canAllocate(shardRouting, node, allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (logger.isTraceEnabled()) {
@@ -102,8 +112,13 @@ public class AllocationDeciders extends AllocationDecider {
             return Decision.NO;
         }
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canRemain(shardRouting, node, allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (logger.isTraceEnabled()) {
@@ -124,8 +139,13 @@ public class AllocationDeciders extends AllocationDecider {
     @Override
     public Decision canAllocate(IndexMetaData indexMetaData, RoutingNode node, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canAllocate(indexMetaData, node, allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (!allocation.debugDecision()) {
@@ -143,8 +163,13 @@ public class AllocationDeciders extends AllocationDecider {
     @Override
     public Decision canAllocate(ShardRouting shardRouting, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canAllocate(shardRouting, allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (!allocation.debugDecision()) {
@@ -162,8 +187,13 @@ public class AllocationDeciders extends AllocationDecider {
     @Override
     public Decision canAllocate(RoutingNode node, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canAllocate(node, allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (!allocation.debugDecision()) {
@@ -181,8 +211,13 @@ public class AllocationDeciders extends AllocationDecider {
     @Override
     public Decision canRebalance(RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
+        final boolean profile = allocation.profileDeciders();
         for (AllocationDecider allocationDecider : allocations) {
+            final long startNanos = profile ? System.nanoTime() : 0;
             Decision decision = allocationDecider.canRebalance(allocation);
+            if (profile) {
+                allocation.addDeciderTime(allocationDecider, System.nanoTime() - startNanos);
+            }
             // short track if a NO is returned.
             if (decision == Decision.NO) {
                 if (!allocation.debugDecision()) {
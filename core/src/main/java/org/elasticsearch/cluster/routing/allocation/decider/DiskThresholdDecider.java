@@ -81,6 +81,10 @@ public class DiskThresholdDecider extends AllocationDecider {
     private volatile boolean enabled;
     private volatile TimeValue rerouteInterval;
 
+    /* keys of the per allocation cache of the average disk usage, one per usage map */
+    private final Object mostAvailableAverageCacheKey = new Object();
+    private final Object leastAvailableAverageCacheKey = new Object();
+
     public static final Setting<Boolean> CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING = Setting.boolSetting("cluster.routing.allocation.disk.threshold_enabled", true, true, Setting.Scope.CLUSTER);
     public static final Setting<String> CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING = new Setting<>("cluster.routing.allocation.disk.watermark.low", "85%", (s) -> validWatermarkSetting(s, "cluster.routing.allocation.disk.watermark.low"), true, Setting.Scope.CLUSTER);
     public static final Setting<String> CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING = new Setting<>("cluster.routing.allocation.disk.watermark.high", "90%", (s) -> validWatermarkSetting(s, "cluster.routing.allocation.disk.watermark.high"), true, Setting.Scope.CLUSTER);
@@ -469,7 +473,7 @@ public class DiskThresholdDecider extends AllocationDecider {
         if (usage == null) {
             // If there is no usage, and we have other nodes in the cluster,
             // use the average usage for all nodes as the usage for this node
-            usage = averageUsage(node, usages);
+            usage = cachedAverageUsage(node, allocation, usages);
             if (logger.isDebugEnabled()) {
                 logger.debug("unable to determine disk usage for {}, defaulting to average across nodes [{} total] [{} free] [{}% free]",
                         node.nodeId(), usage.getTotalBytes(), usage.getFreeBytes(), usage.getFreeDiskAsPercentage());
@@ -489,6 +493,17 @@ public class DiskThresholdDecider extends AllocationDecider {
         return usage;
     }
 
+    /**
+     * Like {@link #averageUsage(RoutingNode, ImmutableOpenMap)} but only sums up the usages
+     * of all nodes once per allocation and usage map.
+     */
+    private DiskUsage cachedAverageUsage(RoutingNode node, RoutingAllocation allocation, ImmutableOpenMap<String, DiskUsage> usages) {
+        final Object key = usages == allocation.clusterInfo().getNodeMostAvailableDiskUsages() ?
+            mostAvailableAverageCacheKey : leastAvailableAverageCacheKey;
+        final DiskUsage average = allocation.cached(key, () -> averageUsage(node, usages));
+        return new DiskUsage(node.nodeId(), node.node().name(), average.getPath(), average.getTotalBytes(), average.getFreeBytes());
+    }
+
     /**
      * Returns a {@link DiskUsage} for the {@link RoutingNode} using the
      * average usage of other nodes in the disk usage map.
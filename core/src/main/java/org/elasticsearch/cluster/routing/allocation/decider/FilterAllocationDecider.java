@@ -29,6 +29,9 @@ import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.elasticsearch.cluster.node.DiscoveryNodeFilters.OpType.AND;
 import static org.elasticsearch.cluster.node.DiscoveryNodeFilters.OpType.OR;
 
@@ -64,6 +67,9 @@ public class FilterAllocationDecider extends AllocationDecider {
     public static final Setting<Settings> CLUSTER_ROUTING_INCLUDE_GROUP_SETTING = Setting.groupSetting("cluster.routing.allocation.include.", true, Setting.Scope.CLUSTER);
     public static final Setting<Settings> CLUSTER_ROUTING_EXCLUDE_GROUP_SETTING = Setting.groupSetting("cluster.routing.allocation.exclude.", true, Setting.Scope.CLUSTER);
 
+    /* key of the per allocation cache of cluster level filter decisions by node id */
+    private final Object clusterFilterCacheKey = new Object();
+
     private volatile DiscoveryNodeFilters clusterRequireFilters;
     private volatile DiscoveryNodeFilters clusterIncludeFilters;
     private volatile DiscoveryNodeFilters clusterExcludeFilters;
@@ -134,6 +140,17 @@ public class FilterAllocationDecider extends AllocationDecider {
     }
 
     private Decision shouldClusterFilter(RoutingNode node, RoutingAllocation allocation) {
+        // cluster level filters only depend on the node, so they are evaluated once per node and allocation
+        Map<String, Decision> decisions = allocation.cached(clusterFilterCacheKey, HashMap::new);
+        Decision decision = decisions.get(node.nodeId());
+        if (decision == null) {
+            decision = matchClusterFilters(node, allocation);
+            decisions.put(node.nodeId(), decision == null ? Decision.ALWAYS : decision);
+        }
+        return decision == Decision.ALWAYS ? null : decision;
+    }
+
+    private Decision matchClusterFilters(RoutingNode node, RoutingAllocation allocation) {
         if (clusterRequireFilters != null) {
             if (!clusterRequireFilters.match(node.node())) {
                 return allocation.decision(Decision.NO, NAME, "node does not match global required filters [%s]", clusterRequireFilters);
@@ -51,11 +51,33 @@ public class DeflateCompressor implements Compressor {
     // a XContent
     private static final byte[] HEADER = new byte[] { 'D', 'F', 'L', '\0' };
     // 3 is a good trade-off between speed and compression ratio
-    private static final int LEVEL = 3;
+    public static final int DEFAULT_LEVEL = 3;
     // We use buffering on the input and ouput of in/def-laters in order to
     // limit the number of JNI calls
     private static final int BUFFER_SIZE = 4096;
 
+    private final int level;
+
+    public DeflateCompressor() {
+        this(DEFAULT_LEVEL);
+    }
+
+    /**
+     * Creates a compressor that deflates with the given level. The level only affects
+     * compression, streams written with any level can be read by any instance.
+     */
+    public DeflateCompressor(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compression level must be between [" + Deflater.BEST_SPEED + "] and ["
+                    + Deflater.BEST_COMPRESSION + "] but was [" + level + "]");
+        }
+        this.level = level;
+    }
+
+    public int level() {
+        return level;
+    }
+
     @Override
     public boolean isCompressed(BytesReference bytes) {
         if (bytes.length() < HEADER.length) {
@@ -123,7 +145,7 @@ public class DeflateCompressor implements Compressor {
     public StreamOutput streamOutput(StreamOutput out) throws IOException {
         out.writeBytes(HEADER);
         final boolean nowrap = true;
-        final Deflater deflater = new Deflater(LEVEL, nowrap);
+        final Deflater deflater = new Deflater(level, nowrap);
         final boolean syncFlush = true;
         OutputStream compressedOut = new DeflaterOutputStream(out, deflater, BUFFER_SIZE, syncFlush);
         compressedOut = new BufferedOutputStream(compressedOut, BUFFER_SIZE);
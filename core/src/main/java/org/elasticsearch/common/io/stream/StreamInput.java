@@ -24,9 +24,9 @@ import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.CharsRefBuilder;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
@@ -290,36 +290,59 @@ public abstract class StreamInput extends InputStream {
         return null;
     }
 
-    private final CharsRefBuilder spare = new CharsRefBuilder();
+    // reusable buffers for readString
+    private char[] charBuffer = new char[0];
+    private byte[] stringBytesBuffer = new byte[0];
 
     public String readString() throws IOException {
         final int charCount = readVInt();
-        spare.clear();
-        spare.grow(charCount);
-        int c;
-        while (spare.length() < charCount) {
-            c = readByte() & 0xff;
-            switch (c >> 4) {
-                case 0:
-                case 1:
-                case 2:
-                case 3:
-                case 4:
-                case 5:
-                case 6:
-                case 7:
-                    spare.append((char) c);
-                    break;
-                case 12:
-                case 13:
-                    spare.append((char) ((c & 0x1F) << 6 | readByte() & 0x3F));
-                    break;
-                case 14:
-                    spare.append((char) ((c & 0x0F) << 12 | (readByte() & 0x3F) << 6 | (readByte() & 0x3F) << 0));
-                    break;
+        if (charBuffer.length < charCount) {
+            charBuffer = new char[ArrayUtil.oversize(charCount, Character.BYTES)];
+        }
+        final int bytesBufferSize = Math.min(charCount, 1024);
+        if (stringBytesBuffer.length < bytesBufferSize) {
+            stringBytesBuffer = new byte[ArrayUtil.oversize(bytesBufferSize, Byte.BYTES)];
+        }
+        final char[] buffer = charBuffer;
+        final byte[] bytes = stringBytesBuffer;
+        int count = 0;
+        while (count < charCount) {
+            // every char that is left takes at least one byte, so all of these bytes belong to the string
+            final int length = Math.min(charCount - count, bytes.length);
+            readBytes(bytes, 0, length);
+            int i = 0;
+            // ascii bytes are chars, widen them until the first multi byte char
+            while (i < length && bytes[i] >= 0) {
+                buffer[count++] = (char) bytes[i++];
+            }
+            while (i < length) {
+                final int c = bytes[i++] & 0xff;
+                switch (c >> 4) {
+                    case 0:
+                    case 1:
+                    case 2:
+                    case 3:
+                    case 4:
+                    case 5:
+                    case 6:
+                    case 7:
+                        buffer[count++] = (char) c;
+                        break;
+                    case 12:
+                    case 13:
+                        // continuation bytes past the end of this chunk are read from the stream
+                        final int b = i < length ? bytes[i++] : readByte();
+                        buffer[count++] = (char) ((c & 0x1F) << 6 | b & 0x3F);
+                        break;
+                    case 14:
+                        final int b1 = i < length ? bytes[i++] : readByte();
+                        final int b2 = i < length ? bytes[i++] : readByte();
+                        buffer[count++] = (char) ((c & 0x0F) << 12 | (b1 & 0x3F) << 6 | (b2 & 0x3F) << 0);
+                        break;
+                }
             }
         }
-        return spare.toString();
+        return new String(buffer, 0, charCount);
     }
 
 
@@ -24,6 +24,7 @@ import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
@@ -253,23 +254,57 @@ public abstract class StreamOutput extends OutputStream {
         }
     }
 
+    // reusable buffer for writeString, a char is encoded in at most 3 bytes
+    private byte[] convertStringBuffer = BytesRef.EMPTY_BYTES;
+
     public void writeString(String str) throws IOException {
-        int charCount = str.length();
+        final int charCount = str.length();
+        final int bufferSize = Math.min(3 * charCount, 1024 * 3);
+        if (convertStringBuffer.length < bufferSize) {
+            convertStringBuffer = new byte[ArrayUtil.oversize(bufferSize, Byte.BYTES)];
+        }
+        byte[] buffer = convertStringBuffer;
         writeVInt(charCount);
-        int c;
+        if (isAscii(str)) {
+            // every char is a single byte, copy them in chunks without any branching on the encoding
+            for (int start = 0; start < charCount; start += buffer.length) {
+                final int length = Math.min(charCount - start, buffer.length);
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = (byte) str.charAt(start + i);
+                }
+                writeBytes(buffer, length);
+            }
+            return;
+        }
+        int offset = 0;
         for (int i = 0; i < charCount; i++) {
-            c = str.charAt(i);
+            final int c = str.charAt(i);
             if (c <= 0x007F) {
-                writeByte((byte) c);
+                buffer[offset++] = ((byte) c);
             } else if (c > 0x07FF) {
-                writeByte((byte) (0xE0 | c >> 12 & 0x0F));
-                writeByte((byte) (0x80 | c >> 6 & 0x3F));
-                writeByte((byte) (0x80 | c >> 0 & 0x3F));
+                buffer[offset++] = ((byte) (0xE0 | c >> 12 & 0x0F));
+                buffer[offset++] = ((byte) (0x80 | c >> 6 & 0x3F));
+                buffer[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
             } else {
-                writeByte((byte) (0xC0 | c >> 6 & 0x1F));
-                writeByte((byte) (0x80 | c >> 0 & 0x3F));
+                buffer[offset++] = ((byte) (0xC0 | c >> 6 & 0x1F));
+                buffer[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
+            }
+            // flush the buffer if the next char might not fit, long strings are encoded in chunks
+            if (offset > buffer.length - 3) {
+                writeBytes(buffer, offset);
+                offset = 0;
+            }
+        }
+        writeBytes(buffer, offset);
+    }
+
+    private static boolean isAscii(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) > 0x007F) {
+                return false;
             }
         }
+        return true;
     }
 
     public void writeFloat(float v) throws IOException {
@@ -60,6 +60,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexStore.INDEX_STORE_THROTTLE_TYPE_SETTING,
         IndexStore.INDEX_STORE_THROTTLE_MAX_BYTES_PER_SEC_SETTING,
         MergeSchedulerConfig.AUTO_THROTTLE_SETTING,
+        MergeSchedulerConfig.AUTO_TUNE_SETTING,
         MergeSchedulerConfig.MAX_MERGE_COUNT_SETTING,
         MergeSchedulerConfig.MAX_THREAD_COUNT_SETTING,
         IndexMetaData.INDEX_ROUTING_EXCLUDE_GROUP_SETTING,
@@ -105,6 +106,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexSettings.INDEX_TRANSLOG_DURABILITY_SETTING,
         IndexSettings.INDEX_WARMER_ENABLED_SETTING,
         IndexSettings.INDEX_REFRESH_INTERVAL_SETTING,
+        IndexSettings.INDEX_SEARCH_IDLE_AFTER,
         IndexSettings.MAX_RESULT_WINDOW_SETTING,
         IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING,
         IndexSettings.DEFAULT_FIELD_SETTING,
@@ -118,6 +120,9 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         EnableAllocationDecider.INDEX_ROUTING_REBALANCE_ENABLE_SETTING,
         EnableAllocationDecider.INDEX_ROUTING_ALLOCATION_ENABLE_SETTING,
         IndexSettings.INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTTING,
+        IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING,
+        IndexSettings.INDEX_TRANSLOG_RETENTION_AGE_SETTING,
+        IndexSettings.INDEX_WRITE_BUFFER_MAKE_SEARCHABLE_SETTING,
         IndexFieldDataService.INDEX_FIELDDATA_CACHE_KEY,
         FieldMapper.IGNORE_MALFORMED_SETTING,
         FieldMapper.COERCE_SETTING,
@@ -131,6 +136,12 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexModule.INDEX_QUERY_CACHE_EVERYTHING_SETTING,
         PrimaryShardAllocator.INDEX_RECOVERY_INITIAL_SHARDS_SETTING,
         FsDirectoryService.INDEX_LOCK_FACTOR_SETTING,
+        FsDirectoryService.INDEX_LAZY_RESTORE_SETTING,
+        FsDirectoryService.INDEX_LAZY_RESTORE_REPOSITORY_SETTING,
+        FsDirectoryService.INDEX_LAZY_RESTORE_SNAPSHOT_SETTING,
+        FsDirectoryService.INDEX_LAZY_RESTORE_INDEX_SETTING,
+        FsDirectoryService.INDEX_BLOCK_CACHE_ENABLED_SETTING,
+        FsDirectoryService.INDEX_BLOCK_CACHE_SIZE_SETTING,
         EngineConfig.INDEX_CODEC_SETTING,
         SearchService.INDEX_NORMS_LOADING_SETTING,
         // this sucks but we can't really validate all the analyzers/similarity in here
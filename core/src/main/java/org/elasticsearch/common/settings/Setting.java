@@ -305,6 +305,10 @@ public class Setting<T> extends ToXContentToBytes {
         return new Setting<>(key, (s) -> Integer.toString(defaultValue), (s) -> parseInt(s, minValue, key), dynamic, scope);
     }
 
+    public static Setting<Integer> intSetting(String key, int defaultValue, int minValue, int maxValue, boolean dynamic, Scope scope) {
+        return new Setting<>(key, (s) -> Integer.toString(defaultValue), (s) -> parseInt(s, minValue, maxValue, key), dynamic, scope);
+    }
+
     public static Setting<Long> longSetting(String key, long defaultValue, long minValue, boolean dynamic, Scope scope) {
         return new Setting<>(key, (s) -> Long.toString(defaultValue), (s) -> parseLong(s, minValue, key), dynamic, scope);
     }
@@ -317,6 +321,14 @@ public class Setting<T> extends ToXContentToBytes {
         return value;
     }
 
+    public static int parseInt(String s, int minValue, int maxValue, String key) {
+        int value = parseInt(s, minValue, key);
+        if (value > maxValue) {
+            throw new IllegalArgumentException("Failed to parse value [" + s + "] for setting [" + key + "] must be <= " + maxValue);
+        }
+        return value;
+    }
+
     public static long parseLong(String s, long minValue, String key) {
         long value = Long.parseLong(s);
         if (value < minValue) {
@@ -33,10 +33,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static org.elasticsearch.common.xcontent.ToXContent.EMPTY_PARAMS;
 
@@ -216,6 +218,99 @@ public class XContentHelper {
         return modified;
     }
 
+    /**
+     * Streaming variant of {@link #update(Map, Map, boolean)}: copies the source into the builder token by token and writes
+     * the changes in place of the values they override, without converting the source into a map. Keys of the changes that
+     * don't exist in the source are appended at the end of their object, just like the map based variant does.
+     *
+     * @param source                 the original source, must be uncompressed xcontent
+     * @param changes                the changes to update into the source
+     * @param checkUpdatesAreUnequal should this method check if updates to the same key (that are not both maps) are unequal?
+     * @param builder                the builder the updated source is written to
+     * @return true if the source was modified
+     */
+    public static boolean update(BytesReference source, Map<String, Object> changes, boolean checkUpdatesAreUnequal, XContentBuilder builder) throws IOException {
+        try (XContentParser parser = XContentFactory.xContent(source).createParser(source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("source must be an object but found [{}]", parser.currentToken());
+            }
+            return update(parser, changes, checkUpdatesAreUnequal, builder);
+        }
+    }
+
+    private static boolean update(XContentParser parser, Map<String, Object> changes, boolean checkUpdatesAreUnequal, XContentBuilder builder) throws IOException {
+        boolean modified = false;
+        final Set<String> applied = new HashSet<>();
+        builder.startObject();
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+            final String field = parser.currentName();
+            if (changes.containsKey(field) == false) {
+                // copies the field name and its value
+                builder.copyCurrentStructure(parser);
+                continue;
+            }
+            applied.add(field);
+            final Object change = changes.get(field);
+            token = parser.nextToken();
+            builder.field(field);
+            if (token == XContentParser.Token.START_OBJECT && change instanceof Map) {
+                // recursive merge objects
+                modified |= update(parser, (Map<String, Object>) change, checkUpdatesAreUnequal && !modified, builder);
+                continue;
+            }
+            // update the field
+            builder.value(change);
+            if (modified || checkUpdatesAreUnequal == false) {
+                parser.skipChildren();
+                modified = true;
+                continue;
+            }
+            modified = !Objects.equals(readValue(parser, token), change);
+        }
+        for (Map.Entry<String, Object> changesEntry : changes.entrySet()) {
+            if (applied.contains(changesEntry.getKey()) == false) {
+                // safe to copy, change does not exist in source
+                builder.field(changesEntry.getKey(), changesEntry.getValue());
+                modified = true;
+            }
+        }
+        builder.endObject();
+        return modified;
+    }
+
+    /**
+     * Reads the value the parser is positioned on the same way {@link XContentParser#mapOrdered()} reads values
+     */
+    private static Object readValue(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return parser.mapOrdered();
+            case START_ARRAY:
+                return parser.listOrderedMap();
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                switch (parser.numberType()) {
+                    case INT:
+                        return parser.intValue();
+                    case LONG:
+                        return parser.longValue();
+                    case FLOAT:
+                        return parser.floatValue();
+                    case DOUBLE:
+                        return parser.doubleValue();
+                }
+                return null;
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            default:
+                return null;
+        }
+    }
+
     /**
      * Merges the defaults provided as the second parameter into the content of the first. Only does recursive merge
      * for inner maps.
@@ -62,6 +62,8 @@ public class Environment {
 
     private final Path sharedDataFile;
 
+    private final Path cacheFile;
+
     /** location of bin/, used by plugin manager */
     private final Path binFile;
 
@@ -136,6 +138,11 @@ public class Environment {
         } else {
             sharedDataFile = null;
         }
+        if (settings.get("path.cache") != null) {
+            cacheFile = PathUtils.get(cleanPath(settings.get("path.cache")));
+        } else {
+            cacheFile = null;
+        }
         String[] repoPaths = settings.getAsArray("path.repo");
         if (repoPaths.length > 0) {
             repoFiles = new Path[repoPaths.length];
@@ -183,6 +190,13 @@ public class Environment {
         return sharedDataFile;
     }
 
+    /**
+     * The location of local caches, or <code>null</code> if not configured
+     */
+    public Path cacheFile() {
+        return cacheFile;
+    }
+
     /**
      * The data location with the cluster name as a sub directory.
      */
@@ -32,6 +32,7 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.MultiDataPathUpgrader;
@@ -54,10 +55,13 @@ import static java.util.Collections.unmodifiableSet;
  */
 public class GatewayMetaState extends AbstractComponent implements ClusterStateListener {
 
+    public static final Setting<Boolean> BATCH_STATE_WRITES_SETTING = Setting.boolSetting("gateway.batch_state_writes", true, false, Setting.Scope.CLUSTER);
+
     private final NodeEnvironment nodeEnv;
     private final MetaStateService metaStateService;
     private final DanglingIndicesState danglingIndicesState;
     private final MetaDataIndexUpgradeService metaDataIndexUpgradeService;
+    private final boolean batchStateWrites;
 
     @Nullable
     private volatile MetaData previousMetaData;
@@ -73,6 +77,7 @@ public class GatewayMetaState extends AbstractComponent implements ClusterStateL
         this.metaStateService = metaStateService;
         this.danglingIndicesState = danglingIndicesState;
         this.metaDataIndexUpgradeService = metaDataIndexUpgradeService;
+        this.batchStateWrites = BATCH_STATE_WRITES_SETTING.get(settings);
         nodesListGatewayMetaState.init(this);
 
         if (DiscoveryNode.dataNode(settings)) {
@@ -145,10 +150,16 @@ public class GatewayMetaState extends AbstractComponent implements ClusterStateL
                     success = false;
                 }
             }
+            // all states are moved in place together when batching, so that state directories are only fsynced once
+            final MetaDataStateFormat.WriteBatch writeBatch = batchStateWrites ? new MetaDataStateFormat.WriteBatch() : null;
             // check if the global state changed?
             if (previousMetaData == null || !MetaData.isGlobalStateEquals(previousMetaData, newMetaData)) {
                 try {
-                    metaStateService.writeGlobalState("changed", newMetaData);
+                    if (writeBatch != null) {
+                        metaStateService.writeGlobalState("changed", newMetaData, writeBatch);
+                    } else {
+                        metaStateService.writeGlobalState("changed", newMetaData);
+                    }
                 } catch (Throwable e) {
                     success = false;
                 }
@@ -160,7 +171,18 @@ public class GatewayMetaState extends AbstractComponent implements ClusterStateL
             // check and write changes in indices
             for (IndexMetaWriteInfo indexMetaWrite : writeInfo) {
                 try {
-                    metaStateService.writeIndex(indexMetaWrite.reason, indexMetaWrite.newMetaData, indexMetaWrite.previousMetaData);
+                    if (writeBatch != null) {
+                        metaStateService.writeIndex(indexMetaWrite.reason, indexMetaWrite.newMetaData, writeBatch);
+                    } else {
+                        metaStateService.writeIndex(indexMetaWrite.reason, indexMetaWrite.newMetaData, indexMetaWrite.previousMetaData);
+                    }
+                } catch (Throwable e) {
+                    success = false;
+                }
+            }
+            if (writeBatch != null) {
+                try {
+                    metaStateService.commitWrites(writeBatch);
                 } catch (Throwable e) {
                     success = false;
                 }
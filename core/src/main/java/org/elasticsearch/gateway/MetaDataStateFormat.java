@@ -39,6 +39,7 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -48,8 +49,11 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -93,7 +97,8 @@ public abstract class MetaDataStateFormat<T> {
      * Writes the given state to the given directories. The state is written to a
      * state directory ({@value #STATE_DIR_NAME}) underneath each of the given file locations and is created if it
      * doesn't exist. The state is serialized to a temporary file in that directory and is then atomically moved to
-     * it's target filename of the pattern <tt>{prefix}{version}.st</tt>.
+     * it's target filename of the pattern <tt>{prefix}{version}.st</tt>. Nothing is written if the latest state file
+     * in all locations already has exactly the same content.
      *
      * @param state the state object to write
      * @param version the version of the state
@@ -101,60 +106,201 @@ public abstract class MetaDataStateFormat<T> {
      * @throws IOException if an IOException occurs
      */
     public final void write(final T state, final long version, final Path... locations) throws IOException {
+        final WriteBatch batch = new WriteBatch();
+        batch.add(this, state, version, locations);
+        batch.commit();
+    }
+
+    /**
+     * Serializes the given state and writes it to a fsynced temporary file in the state directory of each location.
+     * Returns <code>null</code> if the latest state file in all locations already has the same content.
+     */
+    private PendingWrite prepareWrite(final T state, final long version, final Path... locations) throws IOException {
         if (locations == null) {
             throw new IllegalArgumentException("Locations must not be null");
         }
         if (locations.length <= 0) {
             throw new IllegalArgumentException("One or more locations required");
         }
-        final long maxStateId = findMaxStateId(prefix, locations)+1;
+        final byte[] content = serialize(state, version);
+        final long checksum = readFooterChecksum(content);
+        final long latestStateId = findMaxStateId(prefix, locations);
+        if (latestStateId >= 0 && hasContent(prefix + latestStateId + STATE_FILE_EXTENSION, content, checksum, locations)) {
+            return null;
+        }
+        final long maxStateId = latestStateId + 1;
         assert maxStateId >= 0 : "maxStateId must be positive but was: [" + maxStateId + "]";
         final String fileName = prefix + maxStateId + STATE_FILE_EXTENSION;
-        Path stateLocation = locations[0].resolve(STATE_DIR_NAME);
-        Files.createDirectories(stateLocation);
-        final Path tmpStatePath = stateLocation.resolve(fileName + ".tmp");
-        final Path finalStatePath = stateLocation.resolve(fileName);
+        final Path[] stateLocations = new Path[locations.length];
+        final Path[] tmpPaths = new Path[locations.length];
+        boolean success = false;
         try {
-            final String resourceDesc = "MetaDataStateFormat.write(path=\"" + tmpStatePath + "\")";
-            try (OutputStreamIndexOutput out = new OutputStreamIndexOutput(resourceDesc, Files.newOutputStream(tmpStatePath), BUFFER_SIZE)) {
-                CodecUtil.writeHeader(out, STATE_FILE_CODEC, STATE_FILE_VERSION);
-                out.writeInt(format.index());
-                out.writeLong(version);
-                try (XContentBuilder builder = newXContentBuilder(format, new IndexOutputOutputStream(out) {
-                    @Override
-                    public void close() throws IOException {
-                        // this is important since some of the XContentBuilders write bytes on close.
-                        // in order to write the footer we need to prevent closing the actual index input.
-                    } })) {
-
-                    builder.startObject();
-                    {
-                        toXContent(builder, state);
-                    }
-                    builder.endObject();
+            for (int i = 0; i < locations.length; i++) {
+                stateLocations[i] = locations[i].resolve(STATE_DIR_NAME);
+                Files.createDirectories(stateLocations[i]);
+                tmpPaths[i] = stateLocations[i].resolve(fileName + ".tmp");
+                try (OutputStream out = Files.newOutputStream(tmpPaths[i])) {
+                    out.write(content);
                 }
-                CodecUtil.writeFooter(out);
+                IOUtils.fsync(tmpPaths[i], false); // fsync the state file
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.deleteFilesIgnoringExceptions(tmpPaths);
             }
-            IOUtils.fsync(tmpStatePath, false); // fsync the state file
-            Files.move(tmpStatePath, finalStatePath, StandardCopyOption.ATOMIC_MOVE);
-            IOUtils.fsync(stateLocation, true);
-            for (int i = 1; i < locations.length; i++) {
-                stateLocation = locations[i].resolve(STATE_DIR_NAME);
-                Files.createDirectories(stateLocation);
-                Path tmpPath = stateLocation.resolve(fileName + ".tmp");
-                Path finalPath = stateLocation.resolve(fileName);
-                try {
-                    Files.copy(finalStatePath, tmpPath);
-                    Files.move(tmpPath, finalPath, StandardCopyOption.ATOMIC_MOVE); // we are on the same FileSystem / Partition here we can do an atomic move
-                    IOUtils.fsync(stateLocation, true); // we just fsync the dir here..
-                } finally {
-                    Files.deleteIfExists(tmpPath);
+        }
+        return new PendingWrite(this, fileName, locations, stateLocations, tmpPaths);
+    }
+
+    private byte[] serialize(final T state, final long version) throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final String resourceDesc = "MetaDataStateFormat.write(prefix=\"" + prefix + "\")";
+        try (OutputStreamIndexOutput out = new OutputStreamIndexOutput(resourceDesc, stream, BUFFER_SIZE)) {
+            CodecUtil.writeHeader(out, STATE_FILE_CODEC, STATE_FILE_VERSION);
+            out.writeInt(format.index());
+            out.writeLong(version);
+            try (XContentBuilder builder = newXContentBuilder(format, new IndexOutputOutputStream(out) {
+                @Override
+                public void close() throws IOException {
+                    // this is important since some of the XContentBuilders write bytes on close.
+                    // in order to write the footer we need to prevent closing the actual index input.
+                } })) {
+
+                builder.startObject();
+                {
+                    toXContent(builder, state);
                 }
+                builder.endObject();
+            }
+            CodecUtil.writeFooter(out);
+        }
+        return stream.toByteArray();
+    }
+
+    private static long readFooterChecksum(byte[] content) {
+        // the footer ends with the checksum written as a big-endian long
+        long checksum = 0;
+        for (int i = content.length - 8; i < content.length; i++) {
+            checksum = (checksum << 8) | (content[i] & 0xFFL);
+        }
+        return checksum;
+    }
+
+    /**
+     * Returns <code>true</code> if the given state file exists in all locations and has exactly the given content. The
+     * checksum in the footer is compared first so that state files with a different content don't need to be read.
+     */
+    private boolean hasContent(final String fileName, final byte[] content, final long checksum, final Path... locations) throws IOException {
+        for (Path location : locations) {
+            final Path stateLocation = location.resolve(STATE_DIR_NAME);
+            final Path stateFile = stateLocation.resolve(fileName);
+            if (Files.exists(stateFile) == false || Files.size(stateFile) != content.length) {
+                return false;
+            }
+            try (Directory dir = newDirectory(stateLocation);
+                 IndexInput indexInput = dir.openInput(fileName, IOContext.READONCE)) {
+                if (CodecUtil.retrieveChecksum(indexInput) != checksum) {
+                    return false;
+                }
+            } catch (CorruptIndexException ex) {
+                // the file is rewritten below
+                return false;
+            }
+            if (Arrays.equals(Files.readAllBytes(stateFile), content) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A state file that was written to temporary files in all its locations and still needs to be moved to its
+     * target file name.
+     */
+    private static final class PendingWrite {
+        final MetaDataStateFormat<?> format;
+        final String fileName;
+        final Path[] locations;
+        final Path[] stateLocations;
+        final Path[] tmpPaths;
+
+        PendingWrite(MetaDataStateFormat<?> format, String fileName, Path[] locations, Path[] stateLocations, Path[] tmpPaths) {
+            this.format = format;
+            this.fileName = fileName;
+            this.locations = locations;
+            this.stateLocations = stateLocations;
+            this.tmpPaths = tmpPaths;
+        }
+    }
+
+    /**
+     * Writes the state files of one or more formats together. Each state is serialized and written to fsynced temporary
+     * files when it is added, but all of them are only moved to their target file names on {@link #commit()}. This way
+     * every state directory is fsynced once per batch, after all state files were moved, and the file system can
+     * persist all renames with a single journal commit instead of one per state file.
+     */
+    public static final class WriteBatch {
+
+        private final List<PendingWrite> pendingWrites = new ArrayList<>();
+
+        /**
+         * Adds the given state to this batch, see {@link MetaDataStateFormat#write(Object, long, Path...)}. Returns
+         * <code>false</code> if the latest state file in all locations already has the same content and nothing needs to be written.
+         */
+        public <T> boolean add(MetaDataStateFormat<T> format, T state, long version, Path... locations) throws IOException {
+            for (PendingWrite pendingWrite : pendingWrites) {
+                if (pendingWrite.format.prefix.equals(format.prefix) && Arrays.equals(pendingWrite.locations, locations)) {
+                    throw new IllegalArgumentException("a state with prefix [" + format.prefix + "] is already pending for " + Arrays.toString(locations));
+                }
+            }
+            final PendingWrite pendingWrite = format.prepareWrite(state, version, locations);
+            if (pendingWrite == null) {
+                return false;
+            }
+            pendingWrites.add(pendingWrite);
+            return true;
+        }
+
+        /**
+         * Returns the number of state files that will be written on {@link #commit()}
+         */
+        public int size() {
+            return pendingWrites.size();
+        }
+
+        /**
+         * Atomically moves all state files of this batch to their target file names, fsyncs each state directory that
+         * was written to once and finally removes the older state files. The batch is empty afterwards, even if
+         * committing failed.
+         */
+        public void commit() throws IOException {
+            final List<PendingWrite> writes = new ArrayList<>(pendingWrites);
+            pendingWrites.clear();
+            if (writes.isEmpty()) {
+                return;
+            }
+            try {
+                final Set<Path> stateLocations = new LinkedHashSet<>();
+                for (PendingWrite write : writes) {
+                    for (int i = 0; i < write.tmpPaths.length; i++) {
+                        // we are on the same FileSystem / Partition here we can do an atomic move
+                        Files.move(write.tmpPaths[i], write.stateLocations[i].resolve(write.fileName), StandardCopyOption.ATOMIC_MOVE);
+                        stateLocations.add(write.stateLocations[i]);
+                    }
+                }
+                for (Path stateLocation : stateLocations) {
+                    IOUtils.fsync(stateLocation, true);
+                }
+            } finally {
+                for (PendingWrite write : writes) {
+                    IOUtils.deleteFilesIgnoringExceptions(write.tmpPaths);
+                }
+            }
+            for (PendingWrite write : writes) {
+                write.format.cleanupOldFiles(write.format.prefix, write.fileName, write.locations);
             }
-        } finally {
-            Files.deleteIfExists(tmpStatePath);
         }
-        cleanupOldFiles(prefix, fileName, locations);
     }
 
     protected XContentBuilder newXContentBuilder(XContentType type, OutputStream stream ) throws IOException {
@@ -153,6 +153,52 @@ public class MetaStateService extends AbstractComponent {
         }
     }
 
+    /**
+     * Adds the index state to the given batch, the state is written once the batch is committed
+     * with {@link #commitWrites(MetaDataStateFormat.WriteBatch)}.
+     */
+    void writeIndex(String reason, IndexMetaData indexMetaData, MetaDataStateFormat.WriteBatch batch) throws Exception {
+        logger.trace("[{}] writing state, reason [{}]", indexMetaData.getIndex(), reason);
+        try {
+            if (batch.add(indexStateFormat, indexMetaData, indexMetaData.getVersion(),
+                    nodeEnv.indexPaths(new Index(indexMetaData.getIndex()))) == false) {
+                logger.trace("[{}] state is unchanged, skipping write", indexMetaData.getIndex());
+            }
+        } catch (Throwable ex) {
+            logger.warn("[{}]: failed to write index state", ex, indexMetaData.getIndex());
+            throw new IOException("failed to write state for [" + indexMetaData.getIndex() + "]", ex);
+        }
+    }
+
+    /**
+     * Adds the global state, *without* the indices states, to the given batch. The state is written once the batch
+     * is committed with {@link #commitWrites(MetaDataStateFormat.WriteBatch)}.
+     */
+    void writeGlobalState(String reason, MetaData metaData, MetaDataStateFormat.WriteBatch batch) throws Exception {
+        logger.trace("[_global] writing state, reason [{}]",  reason);
+        try {
+            if (batch.add(globalStateFormat, metaData, metaData.version(), nodeEnv.nodeDataPaths()) == false) {
+                logger.trace("[_global] state is unchanged, skipping write");
+            }
+        } catch (Throwable ex) {
+            logger.warn("[_global]: failed to write global state", ex);
+            throw new IOException("failed to write global state", ex);
+        }
+    }
+
+    /**
+     * Moves all states of the given batch in place and persists them.
+     */
+    void commitWrites(MetaDataStateFormat.WriteBatch batch) throws Exception {
+        final int size = batch.size();
+        try {
+            batch.commit();
+        } catch (Throwable ex) {
+            logger.warn("failed to commit [{}] state writes", ex, size);
+            throw new IOException("failed to commit [" + size + "] state writes", ex);
+        }
+    }
+
     /**
      * Returns a StateFormat that can read and write {@link MetaData}
      */
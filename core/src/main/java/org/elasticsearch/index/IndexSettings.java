@@ -81,7 +81,30 @@ public final class IndexSettings {
     public static final Setting<Integer> MAX_RESULT_WINDOW_SETTING = Setting.intSetting("index.max_result_window", 10000, 1, true, Setting.Scope.INDEX);
     public static final TimeValue DEFAULT_REFRESH_INTERVAL = new TimeValue(1, TimeUnit.SECONDS);
     public static final Setting<TimeValue> INDEX_REFRESH_INTERVAL_SETTING = Setting.timeSetting("index.refresh_interval", DEFAULT_REFRESH_INTERVAL, new TimeValue(-1, TimeUnit.MILLISECONDS), true, Setting.Scope.INDEX);
+    /**
+     * Index setting describing how long a shard may go without a search before it is considered search idle. Scheduled refreshes
+     * are skipped on search idle shards until the next search arrives. A value of <tt>-1</tt> (the default) disables this.
+     * This setting is realtime updateable
+     */
+    public static final Setting<TimeValue> INDEX_SEARCH_IDLE_AFTER = Setting.timeSetting("index.search.idle.after", new TimeValue(-1, TimeUnit.MILLISECONDS), new TimeValue(-1, TimeUnit.MILLISECONDS), true, Setting.Scope.INDEX);
+    /**
+     * Index setting that controls whether writing the indexing buffer to disk to free up heap may make the buffered documents
+     * visible to searches. If <code>false</code> the engine keeps a separate internal searcher to clear its version map so that
+     * documents only become visible to searches with scheduled or explicit refreshes.
+     */
+    public static final Setting<Boolean> INDEX_WRITE_BUFFER_MAKE_SEARCHABLE_SETTING = Setting.boolSetting("index.write_buffer.make_searchable", true, false, Setting.Scope.INDEX);
+    /**
+     * Index setting to enable / disable compression of document sources written to the translog.
+     * This setting is realtime updateable
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_COMPRESS_SETTING = Setting.boolSetting("index.translog.compress", false, true, Setting.Scope.INDEX);
     public static final Setting<ByteSizeValue> INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTTING = Setting.byteSizeSetting("index.translog.flush_threshold_size", new ByteSizeValue(512, ByteSizeUnit.MB), true, Setting.Scope.INDEX);
+    /**
+     * Index setting that controls how long translog files are kept after a flush. While a synced flush is covered by the
+     * retained files, a copy with that sync id can recover by replaying operations instead of copying files.
+     * This setting is realtime updateable
+     */
+    public static final Setting<TimeValue> INDEX_TRANSLOG_RETENTION_AGE_SETTING = Setting.positiveTimeSetting("index.translog.retention.age", TimeValue.timeValueMillis(0), true, Setting.Scope.INDEX);
 
 
     /**
@@ -112,7 +135,10 @@ public final class IndexSettings {
     private volatile Translog.Durability durability;
     private final TimeValue syncInterval;
     private volatile TimeValue refreshInterval;
+    private volatile TimeValue searchIdleAfter;
     private volatile ByteSizeValue flushThresholdSize;
+    private volatile boolean translogCompress;
+    private volatile TimeValue translogRetentionAge;
     private final MergeSchedulerConfig mergeSchedulerConfig;
     private final MergePolicyConfig mergePolicyConfig;
     private final IndexScopedSettings scopedSettings;
@@ -204,8 +230,14 @@ public final class IndexSettings {
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
+        searchIdleAfter = scopedSettings.get(INDEX_SEARCH_IDLE_AFTER);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_AFTER, this::setSearchIdleAfter);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTTING);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTTING, this::setTranslogFlushThresholdSize);
+        translogCompress = scopedSettings.get(INDEX_TRANSLOG_COMPRESS_SETTING);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_COMPRESS_SETTING, this::setTranslogCompress);
+        translogRetentionAge = scopedSettings.get(INDEX_TRANSLOG_RETENTION_AGE_SETTING);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_AGE_SETTING, this::setTranslogRetentionAge);
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
         scopedSettings.addSettingsUpdateConsumer(INDEX_GC_DELETES_SETTING, this::setGCDeletes);
         gcDeletesInMillis = scopedSettings.get(INDEX_GC_DELETES_SETTING).getMillis();
@@ -224,6 +256,14 @@ public final class IndexSettings {
         this.flushThresholdSize = byteSizeValue;
     }
 
+    private void setTranslogCompress(boolean translogCompress) {
+        this.translogCompress = translogCompress;
+    }
+
+    private void setTranslogRetentionAge(TimeValue translogRetentionAge) {
+        this.translogRetentionAge = translogRetentionAge;
+    }
+
     private void setGCDeletes(TimeValue timeValue) {
         this.gcDeletesInMillis = timeValue.getMillis();
     }
@@ -232,6 +272,10 @@ public final class IndexSettings {
         this.refreshInterval = timeValue;
     }
 
+    private void setSearchIdleAfter(TimeValue searchIdleAfter) {
+        this.searchIdleAfter = searchIdleAfter;
+    }
+
     /**
      * Returns the settings for this index. These settings contain the node and index level settings where
      * settings that are specified on both index and node level are overwritten by the index settings.
@@ -404,11 +448,29 @@ public final class IndexSettings {
         return refreshInterval;
     }
 
+    /**
+     * Returns the time after which a shard without any search activity is considered search idle. <tt>-1</tt> means shards never
+     * become search idle.
+     */
+    public TimeValue getSearchIdleAfter() {
+        return searchIdleAfter;
+    }
+
     /**
      * Returns the transaction log threshold size when to forcefully flush the index and clear the transaction log.
      */
     public ByteSizeValue getFlushThresholdSize() { return flushThresholdSize; }
 
+    /**
+     * Returns <code>true</code> iff document sources are compressed before they are written to the transaction log.
+     */
+    public boolean isTranslogCompress() { return translogCompress; }
+
+    /**
+     * Returns how long translog files are retained after they are no longer needed for the last commit.
+     */
+    public TimeValue getTranslogRetentionAge() { return translogRetentionAge; }
+
     /**
      * Returns the {@link MergeSchedulerConfig}
      */
@@ -49,6 +49,14 @@ import org.elasticsearch.index.IndexSettings;
  *     unluckily suddenly requires a large merge will see that merge aggressively
  *     throttled, while an application doing heavy indexing will see the throttle
  *     move higher to allow merges to keep up with ongoing indexing.
+ *
+ * <li><code>index.merge.scheduler.auto_tune</code>:
+ *
+ *     If this is true, then the merge scheduler adjusts the number of threads that
+ *     may be merging at once between 1 and <code>index.merge.scheduler.max_thread_count</code>
+ *     at runtime. The thread count is raised while merges back up behind ongoing
+ *     indexing and lowered again once merges keep up so that searches are not
+ *     starved of IO. Defaults to <code>false</code>.
  * </ul>
  */
 public final class MergeSchedulerConfig {
@@ -56,8 +64,10 @@ public final class MergeSchedulerConfig {
     public static final Setting<Integer> MAX_THREAD_COUNT_SETTING = new Setting<>("index.merge.scheduler.max_thread_count", (s) -> Integer.toString(Math.max(1, Math.min(4, EsExecutors.boundedNumberOfProcessors(s) / 2))), (s) -> Setting.parseInt(s, 1, "index.merge.scheduler.max_thread_count"), true, Setting.Scope.INDEX);
     public static final Setting<Integer> MAX_MERGE_COUNT_SETTING = new Setting<>("index.merge.scheduler.max_merge_count", (s) -> Integer.toString(MAX_THREAD_COUNT_SETTING.get(s) + 5), (s) -> Setting.parseInt(s, 1, "index.merge.scheduler.max_merge_count"), true, Setting.Scope.INDEX);
     public static final Setting<Boolean> AUTO_THROTTLE_SETTING = Setting.boolSetting("index.merge.scheduler.auto_throttle", true, true, Setting.Scope.INDEX);
+    public static final Setting<Boolean> AUTO_TUNE_SETTING = Setting.boolSetting("index.merge.scheduler.auto_tune", false, true, Setting.Scope.INDEX);
 
     private volatile boolean autoThrottle;
+    private volatile boolean autoTune;
     private volatile int maxThreadCount;
     private volatile int maxMergeCount;
 
@@ -65,9 +75,11 @@ public final class MergeSchedulerConfig {
         indexSettings.getScopedSettings().addSettingsUpdateConsumer(MAX_THREAD_COUNT_SETTING, this::setMaxThreadCount);
         indexSettings.getScopedSettings().addSettingsUpdateConsumer(MAX_MERGE_COUNT_SETTING, this::setMaxMergeCount);
         indexSettings.getScopedSettings().addSettingsUpdateConsumer(AUTO_THROTTLE_SETTING, this::setAutoThrottle);
+        indexSettings.getScopedSettings().addSettingsUpdateConsumer(AUTO_TUNE_SETTING, this::setAutoTune);
         maxThreadCount = indexSettings.getValue(MAX_THREAD_COUNT_SETTING);
         maxMergeCount = indexSettings.getValue(MAX_MERGE_COUNT_SETTING);
         this.autoThrottle = indexSettings.getValue(AUTO_THROTTLE_SETTING);
+        this.autoTune = indexSettings.getValue(AUTO_TUNE_SETTING);
     }
 
     /**
@@ -85,6 +97,20 @@ public final class MergeSchedulerConfig {
         this.autoThrottle = autoThrottle;
     }
 
+    /**
+     * Returns <code>true</code> iff the number of merge threads is tuned at runtime based on the merge backlog.
+     */
+    public boolean isAutoTune() {
+        return autoTune;
+    }
+
+    /**
+     * Enables / disables runtime tuning of the number of merge threads
+     */
+    void setAutoTune(boolean autoTune) {
+        this.autoTune = autoTune;
+    }
+
     /**
      * Returns {@code maxThreadCount}.
      */
@@ -62,16 +62,21 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
     private final CounterMetric currentMergesSizeInBytes = new CounterMetric();
     private final CounterMetric totalMergeStoppedTime = new CounterMetric();
     private final CounterMetric totalMergeThrottledTime = new CounterMetric();
+    private final CounterMetric totalThreadCountIncreases = new CounterMetric();
+    private final CounterMetric totalThreadCountDecreases = new CounterMetric();
 
     private final Set<OnGoingMerge> onGoingMerges = ConcurrentCollections.newConcurrentSet();
     private final Set<OnGoingMerge> readOnlyOnGoingMerges = Collections.unmodifiableSet(onGoingMerges);
     private final MergeSchedulerConfig config;
+    /** the maximum number of merge threads currently in effect, this is lower than the configured value if auto tuning reduced it */
+    private volatile int effectiveMaxThreadCount;
 
     public ElasticsearchConcurrentMergeScheduler(ShardId shardId, IndexSettings indexSettings) {
         this.config = indexSettings.getMergeSchedulerConfig();
         this.shardId = shardId;
         this.indexSettings = indexSettings.getSettings();
         this.logger = Loggers.getLogger(getClass(), this.indexSettings, shardId);
+        this.effectiveMaxThreadCount = config.getMaxThreadCount();
         refreshConfig();
     }
 
@@ -102,6 +107,7 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
 
             onGoingMerges.remove(onGoingMerge);
             afterMerge(onGoingMerge);
+            maybeAutoTune(writer);
 
             currentMerges.dec();
             currentMergesNumDocs.dec(totalNumDocs);
@@ -136,6 +142,34 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         }
     }
 
+    /**
+     * Adjusts the number of merge threads if auto tuning is enabled. Once a merge finishes we add a thread if the writer
+     * still has merges waiting for a thread, which means merges are falling behind indexing. If there are no pending merges
+     * and at least two threads are idle we remove a thread to leave more IO for searches.
+     */
+    private synchronized void maybeAutoTune(IndexWriter writer) {
+        if (config.isAutoTune() == false) {
+            return;
+        }
+        final int maxThreadCount = config.getMaxThreadCount();
+        final int current = effectiveMaxThreadCount;
+        int tuned = current;
+        if (writer.hasPendingMerges()) {
+            if (current < maxThreadCount) {
+                tuned = current + 1;
+                totalThreadCountIncreases.inc();
+            }
+        } else if (current > 1 && currentMerges.count() < current - 1) {
+            tuned = current - 1;
+            totalThreadCountDecreases.inc();
+        }
+        if (tuned != current) {
+            logger.debug("auto tune merge threads from [{}] to [{}], running merges [{}]", current, tuned, currentMerges.count());
+            effectiveMaxThreadCount = tuned;
+            setMaxMergesAndThreads(config.getMaxMergeCount(), tuned);
+        }
+    }
+
     /**
      * A callback allowing for custom logic before an actual merge starts.
      */
@@ -173,12 +207,21 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
                 totalMergeStoppedTime.count(),
                 totalMergeThrottledTime.count(),
                 config.isAutoThrottle() ? getIORateLimitMBPerSec() : Double.POSITIVE_INFINITY);
+        mergeStats.addAutoTune(effectiveMaxThreadCount, totalThreadCountIncreases.count(), totalThreadCountDecreases.count());
         return mergeStats;
     }
 
-    void refreshConfig() {
-        if (this.getMaxMergeCount() != config.getMaxMergeCount() || this.getMaxThreadCount() != config.getMaxThreadCount()) {
-            this.setMaxMergesAndThreads(config.getMaxMergeCount(), config.getMaxThreadCount());
+    synchronized void refreshConfig() {
+        final int maxThreadCount;
+        if (config.isAutoTune()) {
+            // keep the tuned value unless the configured maximum went below it
+            maxThreadCount = Math.max(1, Math.min(effectiveMaxThreadCount, config.getMaxThreadCount()));
+        } else {
+            maxThreadCount = config.getMaxThreadCount();
+        }
+        effectiveMaxThreadCount = maxThreadCount;
+        if (this.getMaxMergeCount() != config.getMaxMergeCount() || this.getMaxThreadCount() != maxThreadCount) {
+            this.setMaxMergesAndThreads(config.getMaxMergeCount(), maxThreadCount);
         }
         boolean isEnabled = getIORateLimitMBPerSec() != Double.POSITIVE_INFINITY;
         if (config.isAutoThrottle() && isEnabled == false) {
@@ -336,13 +336,21 @@ public abstract class Engine implements Closeable {
      * @see Searcher#close()
      */
     public final Searcher acquireSearcher(String source) throws EngineException {
+        return acquireSearcher(source, getSearcherManager());
+    }
+
+    /**
+     * Returns a new searcher instance acquired from the given searcher manager.
+     *
+     * @see #acquireSearcher(String)
+     */
+    protected final Searcher acquireSearcher(String source, SearcherManager manager) throws EngineException {
         boolean success = false;
          /* Acquire order here is store -> manager since we need
           * to make sure that the store is not closed before
           * the searcher is acquired. */
         store.incRef();
         try {
-            final SearcherManager manager = getSearcherManager(); // can never be null
             /* This might throw NPE but that's fine we will run ensureOpen()
             *  in the catch block and throw the right exception */
             final IndexSearcher searcher = manager.acquire();
@@ -642,6 +650,11 @@ public abstract class Engine implements Closeable {
          * Called when a fatal exception occurred
          */
         default void onFailedEngine(String reason, @Nullable Throwable t) {}
+
+        /**
+         * Called after a new commit point was successfully written to the store
+         */
+        default void onCommit() {}
     }
 
     public static class Searcher implements Releasable {
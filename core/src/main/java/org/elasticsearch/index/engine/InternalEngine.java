@@ -101,6 +101,12 @@ public class InternalEngine extends Engine {
 
     private final SearcherFactory searcherFactory;
     private final SearcherManager searcherManager;
+    /**
+     * The searcher manager used for realtime gets and version lookups. Its refreshes clear the version map. This is the same
+     * instance as {@link #searcherManager} unless writing the indexing buffer must not make documents visible to searches, see
+     * {@link IndexSettings#INDEX_WRITE_BUFFER_MAKE_SEARCHABLE_SETTING}.
+     */
+    private final SearcherManager internalSearcherManager;
 
     private final Lock flushLock = new ReentrantLock();
     private final ReentrantLock optimizeLock = new ReentrantLock();
@@ -129,6 +135,7 @@ public class InternalEngine extends Engine {
         IndexWriter writer = null;
         Translog translog = null;
         SearcherManager manager = null;
+        SearcherManager internalManager = null;
         EngineMergeScheduler scheduler = null;
         boolean success = false;
         try {
@@ -163,7 +170,13 @@ public class InternalEngine extends Engine {
             this.translog = translog;
             manager = createSearcherManager();
             this.searcherManager = manager;
-            this.versionMap.setManager(searcherManager);
+            if (engineConfig.getIndexSettings().getValue(IndexSettings.INDEX_WRITE_BUFFER_MAKE_SEARCHABLE_SETTING)) {
+                internalManager = manager;
+            } else {
+                internalManager = createInternalSearcherManager();
+            }
+            this.internalSearcherManager = internalManager;
+            this.versionMap.setManager(internalSearcherManager);
             try {
                 if (skipInitialTranslogRecovery) {
                     // make sure we point at the latest translog from now on..
@@ -177,7 +190,7 @@ public class InternalEngine extends Engine {
             success = true;
         } finally {
             if (success == false) {
-                IOUtils.closeWhileHandlingException(writer, translog, manager, scheduler);
+                IOUtils.closeWhileHandlingException(writer, translog, manager, internalManager == manager ? null : internalManager, scheduler);
                 versionMap.clear();
                 if (isClosed.get() == false) {
                     // failure we need to dec the store reference
@@ -311,6 +324,29 @@ public class InternalEngine extends Engine {
         }
     }
 
+    // pkg private for testing
+    void markVersionMapRefreshPending() {
+        versionMapRefreshPending.set(true);
+    }
+
+    /**
+     * Creates the searcher manager for realtime gets and version lookups if it is separate from the one used for searches.
+     * It doesn't warm its searchers since they are never exposed to searches.
+     */
+    private SearcherManager createInternalSearcherManager() throws EngineException {
+        try {
+            final DirectoryReader directoryReader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(indexWriter, true), shardId);
+            return new SearcherManager(directoryReader, new SearcherFactory());
+        } catch (IOException e) {
+            maybeFailEngine("start", e);
+            throw new EngineCreationFailureException(shardId, "failed to open internal reader on writer", e);
+        }
+    }
+
+    private Searcher acquireInternalSearcher(String source) {
+        return acquireSearcher(source, internalSearcherManager);
+    }
+
     @Override
     public GetResult get(Get get, Function<String, Searcher> searcherFactory) throws EngineException {
         try (ReleasableLock lock = readLock.acquire()) {
@@ -334,6 +370,10 @@ public class InternalEngine extends Engine {
             }
 
             // no version, get the version from the index, we know that we refresh on flush
+            if (get.realtime() && internalSearcherManager != searcherManager) {
+                // the version map might have been cleared by a refresh that searches don't see yet
+                return getFromSearcher(get, this::acquireInternalSearcher);
+            }
             return getFromSearcher(get, searcherFactory);
         }
     }
@@ -495,6 +535,10 @@ public class InternalEngine extends Engine {
         // since it flushes the index as well (though, in terms of concurrency, we are allowed to do it)
         try (ReleasableLock lock = readLock.acquire()) {
             ensureOpen();
+            if (internalSearcherManager != searcherManager) {
+                // refresh the internal searcher first such that searches never see documents that realtime gets don't
+                internalSearcherManager.maybeRefreshBlocking();
+            }
             searcherManager.maybeRefreshBlocking();
         } catch (AlreadyClosedException e) {
             ensureOpen();
@@ -529,7 +573,15 @@ public class InternalEngine extends Engine {
             final long indexingBufferBytes = indexWriter.ramBytesUsed();
 
             final boolean useRefresh = versionMapRefreshPending.get() || (indexingBufferBytes/4 < versionMapBytes);
-            if (useRefresh) {
+            if (useRefresh && internalSearcherManager != searcherManager) {
+                // The version map is using > 25% of the indexing buffer, refresh the internal searcher only so the version map
+                // clears without making the buffered documents visible to searches
+                logger.debug("use internal refresh to write indexing buffer (heap size=[{}]), to also clear version map (heap size=[{}])",
+                             new ByteSizeValue(indexingBufferBytes), new ByteSizeValue(versionMapBytes));
+                internalSearcherManager.maybeRefreshBlocking();
+                maybePruneDeletedTombstones();
+                versionMapRefreshPending.set(false);
+            } else if (useRefresh) {
                 // The version map is using > 25% of the indexing buffer, so we do a refresh so the version map also clears
                 logger.debug("use refresh to write indexing buffer (heap size=[{}]), to also clear version map (heap size=[{}])",
                              new ByteSizeValue(indexingBufferBytes), new ByteSizeValue(versionMapBytes));
@@ -862,7 +914,7 @@ public class InternalEngine extends Engine {
             try {
                 this.versionMap.clear();
                 try {
-                    IOUtils.close(searcherManager);
+                    IOUtils.close(searcherManager, internalSearcherManager == searcherManager ? null : internalSearcherManager);
                 } catch (Throwable t) {
                     logger.warn("Failed to close SearcherManager", t);
                 }
@@ -903,7 +955,7 @@ public class InternalEngine extends Engine {
     }
 
     private long loadCurrentVersionFromIndex(Term uid) throws IOException {
-        try (final Searcher searcher = acquireSearcher("load_version")) {
+        try (final Searcher searcher = acquireInternalSearcher("load_version")) {
             return Versions.loadVersion(searcher.reader(), uid);
         }
     }
@@ -1164,10 +1216,15 @@ public class InternalEngine extends Engine {
             }
             indexWriter.setCommitData(commitData);
             writer.commit();
+            if (syncId != null) {
+                // lets peer recoveries of copies with this sync id replay the translog instead of copying files
+                translog.addSyncMarker(syncId, translogGeneration.translogFileGeneration);
+            }
         } catch (Throwable ex) {
             failEngine("lucene commit failed", ex);
             throw ex;
         }
+        eventListener.onCommit();
     }
 
     private void commitIndexWriter(IndexWriter writer, Translog translog) throws IOException {
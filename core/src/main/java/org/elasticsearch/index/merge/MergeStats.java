@@ -51,6 +51,13 @@ public class MergeStats implements Streamable, ToXContent {
 
     private long totalBytesPerSecAutoThrottle;
 
+    /** Sum of the maximum number of merge threads currently in effect, this reflects runtime tuning if enabled. */
+    private long totalMaxThreadCount;
+
+    /** Total number of times merge threads were added or removed by runtime tuning. */
+    private long totalAutoTuneThreadIncreases;
+    private long totalAutoTuneThreadDecreases;
+
     public MergeStats() {
 
     }
@@ -74,6 +81,12 @@ public class MergeStats implements Streamable, ToXContent {
         }
     }
 
+    public void addAutoTune(long maxThreadCount, long threadIncreases, long threadDecreases) {
+        this.totalMaxThreadCount += maxThreadCount;
+        this.totalAutoTuneThreadIncreases += threadIncreases;
+        this.totalAutoTuneThreadDecreases += threadDecreases;
+    }
+
     public void add(MergeStats mergeStats) {
         if (mergeStats == null) {
             return;
@@ -100,6 +113,9 @@ public class MergeStats implements Streamable, ToXContent {
         } else {
             this.totalBytesPerSecAutoThrottle += mergeStats.totalBytesPerSecAutoThrottle;
         }
+        this.totalMaxThreadCount += mergeStats.totalMaxThreadCount;
+        this.totalAutoTuneThreadIncreases += mergeStats.totalAutoTuneThreadIncreases;
+        this.totalAutoTuneThreadDecreases += mergeStats.totalAutoTuneThreadDecreases;
     }
 
     /**
@@ -167,6 +183,27 @@ public class MergeStats implements Streamable, ToXContent {
         return totalBytesPerSecAutoThrottle;
     }
 
+    /**
+     * The sum of the maximum number of merge threads currently allowed per shard.
+     */
+    public long getTotalMaxThreadCount() {
+        return totalMaxThreadCount;
+    }
+
+    /**
+     * The total number of times a merge thread was added because merges fell behind.
+     */
+    public long getTotalAutoTuneThreadIncreases() {
+        return totalAutoTuneThreadIncreases;
+    }
+
+    /**
+     * The total number of times a merge thread was removed because merges kept up.
+     */
+    public long getTotalAutoTuneThreadDecreases() {
+        return totalAutoTuneThreadDecreases;
+    }
+
     /**
      * The current number of merges executing.
      */
@@ -205,12 +242,21 @@ public class MergeStats implements Streamable, ToXContent {
         builder.timeValueField(Fields.TOTAL_STOPPED_TIME_IN_MILLIS, Fields.TOTAL_STOPPED_TIME, totalStoppedTimeInMillis);
         builder.timeValueField(Fields.TOTAL_THROTTLED_TIME_IN_MILLIS, Fields.TOTAL_THROTTLED_TIME, totalThrottledTimeInMillis);
         builder.byteSizeField(Fields.TOTAL_THROTTLE_BYTES_PER_SEC_IN_BYTES, Fields.TOTAL_THROTTLE_BYTES_PER_SEC, totalBytesPerSecAutoThrottle);
+        builder.field(Fields.TOTAL_MAX_THREAD_COUNT, totalMaxThreadCount);
+        builder.startObject(Fields.AUTO_TUNE);
+        builder.field(Fields.THREAD_INCREASES, totalAutoTuneThreadIncreases);
+        builder.field(Fields.THREAD_DECREASES, totalAutoTuneThreadDecreases);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
 
     static final class Fields {
         static final XContentBuilderString MERGES = new XContentBuilderString("merges");
+        static final XContentBuilderString TOTAL_MAX_THREAD_COUNT = new XContentBuilderString("total_max_thread_count");
+        static final XContentBuilderString AUTO_TUNE = new XContentBuilderString("auto_tune");
+        static final XContentBuilderString THREAD_INCREASES = new XContentBuilderString("thread_increases");
+        static final XContentBuilderString THREAD_DECREASES = new XContentBuilderString("thread_decreases");
         static final XContentBuilderString CURRENT = new XContentBuilderString("current");
         static final XContentBuilderString CURRENT_DOCS = new XContentBuilderString("current_docs");
         static final XContentBuilderString CURRENT_SIZE = new XContentBuilderString("current_size");
@@ -242,6 +288,9 @@ public class MergeStats implements Streamable, ToXContent {
         totalStoppedTimeInMillis = in.readVLong();
         totalThrottledTimeInMillis = in.readVLong();
         totalBytesPerSecAutoThrottle = in.readVLong();
+        totalMaxThreadCount = in.readVLong();
+        totalAutoTuneThreadIncreases = in.readVLong();
+        totalAutoTuneThreadDecreases = in.readVLong();
     }
 
     @Override
@@ -257,5 +306,8 @@ public class MergeStats implements Streamable, ToXContent {
         out.writeVLong(totalStoppedTimeInMillis);
         out.writeVLong(totalThrottledTimeInMillis);
         out.writeVLong(totalBytesPerSecAutoThrottle);
+        out.writeVLong(totalMaxThreadCount);
+        out.writeVLong(totalAutoTuneThreadIncreases);
+        out.writeVLong(totalAutoTuneThreadDecreases);
     }
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.index.shard;
 import org.apache.lucene.index.CheckIndex;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.QueryCachingPolicy;
@@ -100,6 +101,7 @@ import org.elasticsearch.index.store.Store.MetadataSnapshot;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.index.store.StoreSummary;
 import org.elasticsearch.index.suggest.stats.ShardSuggestMetric;
 import org.elasticsearch.index.suggest.stats.SuggestStats;
 import org.elasticsearch.index.termvectors.TermVectorsService;
@@ -153,6 +155,9 @@ public class IndexShard extends AbstractIndexShardComponent {
     private final ShardSuggestMetric shardSuggestMetric = new ShardSuggestMetric();
     private final ShardBitsetFilterCache shardBitsetFilterCache;
     private final Object mutex = new Object();
+    private final Object storeSummaryMutex = new Object();
+    private final AtomicBoolean storeSummaryPending = new AtomicBoolean();
+    private long storeSummaryGeneration = -1; // guarded by storeSummaryMutex
     private final String checkIndexOnStartup;
     private final CodecService codecService;
     private final IndicesWarmer warmer;
@@ -171,6 +176,11 @@ public class IndexShard extends AbstractIndexShardComponent {
     private final AtomicLong writingBytes = new AtomicLong();
 
     private volatile ScheduledFuture<?> refreshScheduledFuture;
+    /** The last time (estimated, in millis) a search acquired a searcher on this shard, see {@link #markSearcherAccessed()} */
+    private volatile long lastSearcherAccess;
+    /** Set when a scheduled refresh was skipped because the shard was search idle, the next search refreshes the shard first */
+    private volatile boolean searchIdleRefreshPending;
+    private final Object searchIdleRefreshMutex = new Object();
     protected volatile ShardRouting shardRouting;
     protected volatile IndexShardState state;
     protected final AtomicReference<Engine> currentEngineReference = new AtomicReference<>();
@@ -217,6 +227,7 @@ public class IndexShard extends AbstractIndexShardComponent {
         this.store = store;
         this.indexEventListener = indexEventListener;
         this.threadPool = provider.getThreadPool();
+        this.lastSearcherAccess = threadPool.estimatedTimeInMillis();
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -561,6 +572,51 @@ public class IndexShard extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Executes a scheduled refresh if one is needed, unless this shard is {@link #isSearchIdle() search idle} in which case the
+     * refresh is deferred until the next search hits the shard. Returns <code>true</code> iff a refresh was executed.
+     */
+    public boolean scheduledRefresh() {
+        if (isRefreshNeeded()) {
+            if (isSearchIdle()) {
+                logger.trace("skipping scheduled refresh, shard is search idle");
+                searchIdleRefreshPending = true;
+                return false;
+            }
+            refresh("schedule");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if no search has hit this shard within the index's search idle window. Scheduled refreshes are
+     * skipped while the shard is search idle.
+     */
+    public boolean isSearchIdle() {
+        final long searchIdleAfter = indexSettings.getSearchIdleAfter().millis();
+        return searchIdleAfter >= 0 && (threadPool.estimatedTimeInMillis() - lastSearcherAccess) >= searchIdleAfter;
+    }
+
+    /**
+     * Marks this shard as accessed by a search. If scheduled refreshes have been skipped while the shard was search idle,
+     * the shard is refreshed before this method returns so that the search sees all changes indexed so far. Concurrent
+     * searches wait for the same refresh.
+     */
+    public void markSearcherAccessed() {
+        readAllowed();
+        lastSearcherAccess = threadPool.estimatedTimeInMillis();
+        if (searchIdleRefreshPending) {
+            synchronized (searchIdleRefreshMutex) {
+                if (searchIdleRefreshPending) {
+                    // cleared before refreshing so that changes indexed during the refresh can mark it pending again
+                    searchIdleRefreshPending = false;
+                    refresh("search_idle_wakeup");
+                }
+            }
+        }
+    }
+
     /** Returns how many bytes we are currently moving from heap to disk */
     public long getWritingBytes() {
         return writingBytes.get();
@@ -575,7 +631,7 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     public DocsStats docStats() {
-        try (Engine.Searcher searcher = acquireSearcher("doc_stats")) {
+        try (Engine.Searcher searcher = acquireSearcher("doc_stats", false)) {
             return new DocsStats(searcher.reader().numDocs(), searcher.reader().numDeletedDocs());
         }
     }
@@ -665,7 +721,7 @@ public class IndexShard extends AbstractIndexShardComponent {
 
     public CompletionStats completionStats(String... fields) {
         CompletionStats completionStats = new CompletionStats();
-        try (final Engine.Searcher currentSearcher = acquireSearcher("completion_stats")) {
+        try (final Engine.Searcher currentSearcher = acquireSearcher("completion_stats", false)) {
             completionStats.add(CompletionFieldStats.completionStats(currentSearcher.reader(), fields));
         }
         return completionStats;
@@ -769,8 +825,18 @@ public class IndexShard extends AbstractIndexShardComponent {
         getEngine().failEngine(reason, e);
     }
 
+    /**
+     * Acquires a searcher and marks the shard as accessed by a search, see {@link #markSearcherAccessed()}.
+     */
     public Engine.Searcher acquireSearcher(String source) {
+        return acquireSearcher(source, true);
+    }
+
+    private Engine.Searcher acquireSearcher(String source, boolean markSearcherAccessed) {
         readAllowed();
+        if (markSearcherAccessed) {
+            markSearcherAccessed();
+        }
         final Engine engine = getEngine();
         final Engine.Searcher searcher = engine.acquireSearcher(source);
         boolean success = false;
@@ -1093,6 +1159,16 @@ public class IndexShard extends AbstractIndexShardComponent {
         return engine.getTranslog().newView();
     }
 
+    /**
+     * Acquires a translog view that starts at the synced flush with the given sync id, or returns <code>null</code>
+     * if the translog since that synced flush isn't retained anymore.
+     */
+    public Translog.View acquireTranslogViewForSyncId(String syncId) {
+        Engine engine = getEngine();
+        assert engine.getTranslog() != null : "translog must not be null";
+        return engine.getTranslog().newViewFromSyncMarker(syncId);
+    }
+
     public List<Segment> segments(boolean verbose) {
         return getEngine().segments(verbose);
     }
@@ -1292,6 +1368,21 @@ public class IndexShard extends AbstractIndexShardComponent {
                 }
             }
         }
+
+        // called by the current engine
+        @Override
+        public void onCommit() {
+            if (state == IndexShardState.CLOSED) {
+                // the final flush of a closing shard, the engine is already gone so the summary is written right away
+                try {
+                    persistStoreSummary(null);
+                } catch (Throwable t) {
+                    logger.warn("failed to write store summary", t);
+                }
+            } else {
+                persistStoreSummaryAsync();
+            }
+        }
     }
 
     private void createNewEngine(boolean skipTranslogRecovery, EngineConfig config) {
@@ -1345,6 +1436,58 @@ public class IndexShard extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Writes the summary of the latest commit to the shard state directory on the generic thread pool, see {@link StoreSummary}.
+     * Commits that happen while a write is pending are covered by it since it always summarizes the latest commit.
+     */
+    private void persistStoreSummaryAsync() {
+        if (storeSummaryPending.compareAndSet(false, true)) { // released by the task that picks up the pending write
+            threadPool.executor(ThreadPool.Names.GENERIC).execute(new AbstractRunnable() {
+                @Override
+                public void onFailure(Throwable t) {
+                    if (state != IndexShardState.CLOSED) {
+                        // an outdated summary is detected when it's loaded, the index is read instead
+                        logger.warn("failed to write store summary", t);
+                    }
+                }
+
+                @Override
+                public void onRejection(Throwable t) {
+                    storeSummaryPending.set(false);
+                    logger.debug("failed to schedule writing the store summary", t);
+                }
+
+                @Override
+                protected void doRun() throws Exception {
+                    storeSummaryPending.set(false);
+                    final Engine engine = getEngineOrNull();
+                    if (engine == null) {
+                        // committed while the engine was created, the next commit writes the summary
+                        return;
+                    }
+                    final IndexCommit commit = engine.snapshotIndex(false);
+                    try {
+                        persistStoreSummary(commit);
+                    } finally {
+                        deletionPolicy.release(commit);
+                    }
+                }
+            });
+        }
+    }
+
+    private void persistStoreSummary(@Nullable IndexCommit commit) throws IOException {
+        synchronized (storeSummaryMutex) {
+            if (commit != null && commit.getGeneration() <= storeSummaryGeneration) {
+                return; // a newer commit was summarized in the meantime
+            }
+            final MetadataSnapshot snapshot = store.getMetadata(commit);
+            logger.trace("{} writing store summary of [{}]", shardId, snapshot.getSegmentsFile().name());
+            StoreSummary.write(snapshot, shardPath().getShardStatePath());
+            storeSummaryGeneration = SegmentInfos.generationFromSegmentsFileName(snapshot.getSegmentsFile().name());
+        }
+    }
+
     private String getIndexUUID() {
         return indexSettings.getUUID();
     }
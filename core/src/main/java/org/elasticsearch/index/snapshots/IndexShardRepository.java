@@ -62,6 +62,18 @@ public interface IndexShardRepository {
      */
     void restore(SnapshotId snapshotId, Version version, ShardId shardId, ShardId snapshotShardId, RecoveryState recoveryState);
 
+    /**
+     * Resumes a lazy restore of the shard after it was recovered from its local store, for instance after a restart.
+     * Files of the latest commit that weren't fetched from the snapshot yet are served from the repository again and
+     * fetched in the background.
+     *
+     * @param snapshotId      snapshot id
+     * @param version         version of elasticsearch that created this snapshot
+     * @param shardId         shard id (in the current index)
+     * @param snapshotShardId shard id (in the snapshot)
+     */
+    void resumeLazyRestore(SnapshotId snapshotId, Version version, ShardId shardId, ShardId snapshotShardId);
+
     /**
      * Retrieve shard snapshot status for the stored snapshot
      *
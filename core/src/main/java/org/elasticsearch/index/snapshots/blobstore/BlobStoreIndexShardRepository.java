@@ -21,8 +21,10 @@ package org.elasticsearch.index.snapshots.blobstore;
 
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
+import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
@@ -30,6 +32,7 @@ import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RateLimiter;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterService;
@@ -43,11 +46,14 @@ import org.elasticsearch.common.blobstore.BlobStore;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.hash.MessageDigests;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -57,6 +63,7 @@ import org.elasticsearch.index.snapshots.IndexShardSnapshotException;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotFailedException;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
+import org.elasticsearch.index.store.LazyRestoreDirectory;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.indices.IndicesService;
@@ -67,16 +74,27 @@ import org.elasticsearch.repositories.blobstore.BlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.repositories.blobstore.ChecksumBlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.LegacyBlobStoreFormat;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableMap;
@@ -92,6 +110,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private BlobPath basePath;
 
+    private BlobContainer contentBlobContainer;
+
     private final String repositoryName;
 
     private ByteSizeValue chunkSize;
@@ -100,6 +120,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private final ClusterService clusterService;
 
+    private final ThreadPool threadPool;
+
     private RateLimiter snapshotRateLimiter;
 
     private RateLimiter restoreRateLimiter;
@@ -112,6 +134,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private boolean compress;
 
+    private int maxConcurrentFileTransfers = 1;
+
+    private boolean deduplicate;
+
     private final ParseFieldMatcher parseFieldMatcher;
 
     protected static final String LEGACY_SNAPSHOT_PREFIX = "snapshot-";
@@ -132,6 +158,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     protected static final String DATA_BLOB_PREFIX = "__";
 
+    protected static final String CONTENT_BLOB_PREFIX = "content-";
+
+    protected static final String CONTENT_REF_PREFIX = "ref-";
+
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotFormat;
 
     private LegacyBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotLegacyFormat;
@@ -139,12 +169,14 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshots> indexShardSnapshotsFormat;
 
     @Inject
-    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService) {
+    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService,
+                                         ThreadPool threadPool) {
         super(settings);
         this.parseFieldMatcher = new ParseFieldMatcher(settings);
         this.repositoryName = repositoryName.name();
         this.indicesService = indicesService;
         this.clusterService = clusterService;
+        this.threadPool = threadPool;
     }
 
     /**
@@ -153,12 +185,16 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
      * @param blobStore blob store
      * @param basePath  base path to blob store
      * @param chunkSize chunk size
+     * @param maxConcurrentFileTransfers number of files of a shard that are uploaded or downloaded concurrently
+     * @param deduplicate whether new files are stored once per repository, keyed by their content
      */
     public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize,
                            RateLimiter snapshotRateLimiter, RateLimiter restoreRateLimiter,
-                           final RateLimiterListener rateLimiterListener, boolean compress) {
+                           final RateLimiterListener rateLimiterListener, boolean compress, int maxConcurrentFileTransfers,
+                           boolean deduplicate) {
         this.blobStore = blobStore;
         this.basePath = basePath;
+        this.contentBlobContainer = blobStore.blobContainer(basePath.add("content"));
         this.chunkSize = chunkSize;
         this.snapshotRateLimiter = snapshotRateLimiter;
         this.restoreRateLimiter = restoreRateLimiter;
@@ -166,6 +202,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         this.snapshotThrottleListener = nanos -> rateLimiterListener.onSnapshotPause(nanos);
         this.restoreThrottleListener = nanos -> rateLimiterListener.onRestorePause(nanos);
         this.compress = compress;
+        this.maxConcurrentFileTransfers = maxConcurrentFileTransfers;
+        this.deduplicate = deduplicate;
         indexShardSnapshotFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_CODEC, SNAPSHOT_NAME_FORMAT, BlobStoreIndexShardSnapshot.PROTO, parseFieldMatcher, isCompress());
         indexShardSnapshotLegacyFormat = new LegacyBlobStoreFormat<>(LEGACY_SNAPSHOT_NAME_FORMAT, BlobStoreIndexShardSnapshot.PROTO, parseFieldMatcher);
         indexShardSnapshotsFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_INDEX_CODEC, SNAPSHOT_INDEX_NAME_FORMAT, BlobStoreIndexShardSnapshots.PROTO, parseFieldMatcher, isCompress());
@@ -208,6 +246,19 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resumeLazyRestore(SnapshotId snapshotId, Version version, ShardId shardId, ShardId snapshotShardId) {
+        final RestoreContext restoreContext = new RestoreContext(snapshotId, version, shardId, snapshotShardId, null);
+        try {
+            restoreContext.resumeLazyRestore();
+        } catch (Throwable e) {
+            throw new IndexShardRestoreFailedException(shardId, "failed to resume lazy restore of snapshot [" + snapshotId.getSnapshot() + "]", e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -270,6 +321,70 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         return compress;
     }
 
+    /**
+     * Returns true if the given file is stored in the shared content container rather than in the shard's container
+     */
+    private static boolean isContentBlob(FileInfo fileInfo) {
+        return fileInfo.name().startsWith(CONTENT_BLOB_PREFIX);
+    }
+
+    /**
+     * Transfers a single file from or to the repository
+     */
+    private interface FileTransfer {
+        void transfer(FileInfo fileInfo) throws IOException;
+    }
+
+    /**
+     * Transfers the given files, at most {@code maxConcurrentFileTransfers} at a time. The calling thread takes part in the
+     * work and the remaining transfers are picked up by the snapshot thread pool, so the files are transferred even if
+     * the pool has no thread to spare. Files that weren't started yet are skipped after the first failure, which is
+     * rethrown once all running transfers are done.
+     */
+    private void transferFiles(List<FileInfo> files, FileTransfer fileTransfer) throws IOException {
+        final Queue<FileInfo> queue = new ConcurrentLinkedQueue<>(files);
+        final CountDownLatch latch = new CountDownLatch(files.size());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            FileInfo fileInfo;
+            while ((fileInfo = queue.poll()) != null) {
+                try {
+                    if (failure.get() == null) {
+                        fileTransfer.transfer(fileInfo);
+                    }
+                } catch (Throwable t) {
+                    if (failure.compareAndSet(null, t) == false) {
+                        failure.get().addSuppressed(t);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+        final int helpers = Math.min(maxConcurrentFileTransfers, files.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                threadPool.executor(ThreadPool.Names.SNAPSHOT).execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread transfers the remaining files
+                break;
+            }
+        }
+        worker.run();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for file transfers", e);
+        }
+        final Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t != null) {
+            throw ExceptionsHelper.convertToRuntime(t);
+        }
+    }
+
     BlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotFormat(Version version) {
         if (BlobStoreRepository.legacyMetaData(version)) {
             return indexShardSnapshotLegacyFormat;
@@ -302,6 +417,72 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             blobContainer = blobStore.blobContainer(basePath.add("indices").add(snapshotShardId.getIndex()).add(Integer.toString(snapshotShardId.getId())));
         }
 
+        /**
+         * Returns the container that holds the parts of the given file, which is the shared content container for
+         * deduplicated files and the shard's container otherwise
+         */
+        protected BlobContainer blobContainer(FileInfo fileInfo) {
+            return isContentBlob(fileInfo) ? contentBlobContainer : blobContainer;
+        }
+
+        /**
+         * Returns the name of the blob that records that this shard references the given deduplicated file. A file's
+         * content blobs are only deleted once no shard references them anymore.
+         */
+        protected String contentRefName(FileInfo fileInfo) {
+            return CONTENT_REF_PREFIX + fileInfo.name().substring(CONTENT_BLOB_PREFIX.length()) + "-" + contentRefOwner();
+        }
+
+        private String contentRefOwner() {
+            return shardId.id() + "-" + shardId.getIndex();
+        }
+
+        /**
+         * Drops the references of this shard to deduplicated files that are used by the given previous snapshots of the
+         * shard but not by the remaining ones, and deletes the content of those files if no other shard references them.
+         */
+        protected void reconcileContentBlobs(Iterable<SnapshotFiles> previousSnapshots, List<SnapshotFiles> remainingSnapshots) {
+            final Set<String> remaining = contentBlobNames(remainingSnapshots);
+            final Map<String, FileInfo> dropped = new HashMap<>();
+            for (SnapshotFiles point : previousSnapshots) {
+                for (FileInfo fileInfo : point.indexFiles()) {
+                    if (isContentBlob(fileInfo) && remaining.contains(fileInfo.name()) == false) {
+                        dropped.put(fileInfo.name(), fileInfo);
+                    }
+                }
+            }
+            for (FileInfo fileInfo : dropped.values()) {
+                try {
+                    contentBlobContainer.deleteBlob(contentRefName(fileInfo));
+                    final String content = fileInfo.name().substring(CONTENT_BLOB_PREFIX.length());
+                    if (contentBlobContainer.listBlobsByPrefix(CONTENT_REF_PREFIX + content + "-").isEmpty()) {
+                        List<String> blobsToDelete = new ArrayList<>();
+                        for (int i = 0; i < fileInfo.numberOfParts(); i++) {
+                            blobsToDelete.add(fileInfo.partName(i));
+                        }
+                        contentBlobContainer.deleteBlobs(blobsToDelete);
+                    }
+                } catch (IOException e) {
+                    logger.debug("[{}] [{}] error releasing content blob [{}]", e, snapshotId, shardId, fileInfo.name());
+                }
+            }
+        }
+
+        /**
+         * Returns the names of the deduplicated files used by the given snapshots
+         */
+        protected Set<String> contentBlobNames(Iterable<SnapshotFiles> snapshots) {
+            Set<String> names = new HashSet<>();
+            for (SnapshotFiles point : snapshots) {
+                for (FileInfo fileInfo : point.indexFiles()) {
+                    if (isContentBlob(fileInfo)) {
+                        names.add(fileInfo.name());
+                    }
+                }
+            }
+            return names;
+        }
+
         /**
          * Delete shard snapshot
          */
@@ -332,6 +513,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
             // finalize the snapshot and rewrite the snapshot index with the next sequential snapshot index
             finalize(newSnapshotsList, fileListGeneration + 1, blobs);
+            // only now that the new index file doesn't point to them anymore, content blobs can go away. Snapshots
+            // aren't created while a snapshot is deleted, so no other shard can start referencing them concurrently.
+            // That's why this isn't done when a snapshot is finalized, other shards may be checking for content then
+            reconcileContentBlobs(snapshots, newSnapshotsList);
         }
 
         /**
@@ -516,6 +701,9 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          */
         public void snapshot(IndexCommit snapshotIndexCommit) {
             logger.debug("[{}] [{}] snapshot to [{}] ...", shardId, snapshotId, repositoryName);
+            // deduplicated files this shard starts to reference with this snapshot
+            final List<FileInfo> newContentRefs = new ArrayList<>();
+            boolean contentRefsCommitted = false;
             store.incRef();
             try {
                 final Map<String, BlobMetaData> blobs;
@@ -531,6 +719,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                 int fileListGeneration = tuple.v2();
 
                 final List<BlobStoreIndexShardSnapshot.FileInfo> indexCommitPointFiles = new ArrayList<>();
+                final Set<String> existingContentBlobs = contentBlobNames(snapshots);
 
                 int indexNumberOfFiles = 0;
                 long indexTotalFilesSize = 0;
@@ -560,11 +749,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                                 // to ensure we don't double the space in the repo since old snapshots
                                 // don't have this hash we try to read that hash from the blob store
                                 // in a bwc compatible way.
-                                maybeRecalculateMetadataHash(blobContainer, fileInfo, metadata);
+                                maybeRecalculateMetadataHash(blobContainer(fileInfo), fileInfo, metadata);
                             } catch (Throwable e) {
                                 logger.warn("{} Can't calculate hash from blob for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
                             }
-                            if (fileInfo.isSame(md) && snapshotFileExistsInBlobs(fileInfo, blobs)) {
+                            if (fileInfo.isSame(md) && snapshotFileExists(fileInfo, blobs)) {
                                 // a commit point file with the same name, size and checksum was already copied to repository
                                 // we will reuse it for this snapshot
                                 existingFileInfo = fileInfo;
@@ -572,7 +761,30 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                             }
                         }
                     }
-                    if (existingFileInfo == null) {
+                    if (existingFileInfo == null && deduplicate) {
+                        final FileInfo contentFileInfo;
+                        final boolean contentExists;
+                        try {
+                            contentFileInfo = new FileInfo(contentBlobName(md), md, chunkSize);
+                            // reference the content before checking for it, a deletion of the last other reference
+                            // then either sees this reference or already removed the content
+                            if (existingContentBlobs.contains(contentFileInfo.name()) == false) {
+                                newContentRefs.add(contentFileInfo);
+                            }
+                            contentBlobContainer.writeBlob(contentRefName(contentFileInfo), new BytesArray(new byte[0]));
+                            contentExists = snapshotFileExists(contentFileInfo, blobs);
+                        } catch (IOException e) {
+                            throw new IndexShardSnapshotFailedException(shardId, "Failed to deduplicate file [" + fileName + "]", e);
+                        }
+                        indexCommitPointFiles.add(contentFileInfo);
+                        if (contentExists) {
+                            logger.trace("[{}] [{}] content of [{}] is already in the repository as [{}]", shardId, snapshotId, fileName, contentFileInfo.name());
+                        } else {
+                            indexNumberOfFiles++;
+                            indexTotalFilesSize += md.length();
+                            filesToSnapshot.add(contentFileInfo);
+                        }
+                    } else if (existingFileInfo == null) {
                         indexNumberOfFiles++;
                         indexTotalFilesSize += md.length();
                         // create a new FileInfo
@@ -593,12 +805,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
-                for (FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
-                    }
+                try {
+                    transferFiles(filesToSnapshot, this::snapshotFile);
+                } catch (IOException e) {
+                    throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
                 }
 
                 snapshotStatus.indexVersion(snapshotIndexCommit.getGeneration());
@@ -624,14 +834,34 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                 for (SnapshotFiles point : snapshots) {
                     newSnapshotsList.add(point);
                 }
+                // from here on the new index file may reference the content, so the references have to stay
+                contentRefsCommitted = true;
                 // finalize the snapshot and rewrite the snapshot index with the next sequential snapshot index
                 finalize(newSnapshotsList, fileListGeneration + 1, blobs);
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.DONE);
             } finally {
+                if (contentRefsCommitted == false) {
+                    releaseContentRefs(newContentRefs);
+                }
                 store.decRef();
             }
         }
 
+        /**
+         * Drops the references of a failed snapshot to deduplicated files that no other snapshot of this shard uses. The
+         * content itself is left in place, another shard may have found it while it was referenced and skipped uploading it.
+         * It's deleted once a later snapshot of this shard that references it again is deleted.
+         */
+        private void releaseContentRefs(List<FileInfo> contentRefs) {
+            for (FileInfo fileInfo : contentRefs) {
+                try {
+                    contentBlobContainer.deleteBlob(contentRefName(fileInfo));
+                } catch (IOException e) {
+                    logger.debug("[{}] [{}] failed to release content reference [{}]", e, shardId, snapshotId, fileInfo.name());
+                }
+            }
+        }
+
         /**
          * Snapshot individual file
          * <p>
@@ -649,7 +879,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     final InputStreamIndexInput inputStreamIndexInput = new InputStreamIndexInput(indexInput, partBytes);
                     InputStream inputStream = snapshotRateLimiter == null ? inputStreamIndexInput : new RateLimitingInputStream(inputStreamIndexInput, snapshotRateLimiter, snapshotThrottleListener);
                     inputStream = new AbortableInputStream(inputStream, fileInfo.physicalName());
-                    blobContainer.writeBlob(fileInfo.partName(i), inputStream, partBytes);
+                    blobContainer(fileInfo).writeBlob(fileInfo.partName(i), inputStream, partBytes);
                 }
                 Store.verify(indexInput);
                 snapshotStatus.addProcessedFile(fileInfo.length());
@@ -670,6 +900,43 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
         }
 
+        /**
+         * Computes the name of the content blob of a file from a hash of its content. Files are only split into parts of
+         * the same size if the chunk size is the same, so it's part of the name too.
+         */
+        private String contentBlobName(StoreFileMetaData md) throws IOException {
+            final MessageDigest digest = MessageDigests.sha256();
+            try (IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                long remaining = indexInput.length();
+                while (remaining > 0) {
+                    final int length = (int) Math.min(buffer.length, remaining);
+                    indexInput.readBytes(buffer, 0, length);
+                    digest.update(buffer, 0, length);
+                    remaining -= length;
+                }
+            }
+            final String name = CONTENT_BLOB_PREFIX + MessageDigests.toHexString(digest.digest());
+            return chunkSize == null ? name : name + "_" + chunkSize.bytes();
+        }
+
+        /**
+         * Checks if a snapshot file already exists, in the content container for deduplicated files and in the given
+         * blobs of the shard's container otherwise
+         */
+        private boolean snapshotFileExists(FileInfo fileInfo, Map<String, BlobMetaData> blobs) {
+            if (isContentBlob(fileInfo)) {
+                try {
+                    return snapshotFileExistsInBlobs(fileInfo, contentBlobContainer.listBlobsByPrefix(fileInfo.name()));
+                } catch (IOException e) {
+                    // uploading the content again is safe, it's identical
+                    logger.debug("[{}] [{}] failed to list content blobs of [{}]", e, shardId, snapshotId, fileInfo.name());
+                    return false;
+                }
+            }
+            return snapshotFileExistsInBlobs(fileInfo, blobs);
+        }
+
         /**
          * Checks if snapshot file already exists in the list of blobs
          *
@@ -769,6 +1036,73 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         }
     }
 
+    /**
+     * Reads a file from its parts in the repository for a {@link LazyRestoreDirectory}
+     */
+    private static final class BlobRemoteFile implements LazyRestoreDirectory.RemoteFile {
+
+        private final BlobContainer container;
+        private final FileInfo info;
+
+        BlobRemoteFile(BlobContainer container, FileInfo info) {
+            this.container = container;
+            this.info = info;
+        }
+
+        @Override
+        public long length() {
+            return info.length();
+        }
+
+        @Override
+        public String checksum() {
+            return info.metadata().checksum();
+        }
+
+        @Override
+        public InputStream openStream(long position) throws IOException {
+            // all parts but the last one have the same size, so the part that holds the position can be computed
+            final long partSize = info.partBytes(0);
+            final long firstPart = partSize > 0 ? Math.min(position / partSize, info.numberOfParts() - 1) : 0;
+            final long offset = position - firstPart * partSize;
+            return new SlicedInputStream(info.numberOfParts() - firstPart) {
+                @Override
+                protected InputStream openSlice(long slice) throws IOException {
+                    final String partName = info.partName(firstPart + slice);
+                    final InputStream part = container.readBlob(partName);
+                    if (slice == 0) {
+                        // skip on the part itself, the blob stream can usually skip without reading
+                        boolean success = false;
+                        try {
+                            skipFully(part, partName, offset);
+                            success = true;
+                        } finally {
+                            if (success == false) {
+                                IOUtils.closeWhileHandlingException(part);
+                            }
+                        }
+                    }
+                    return part;
+                }
+            };
+        }
+
+        private static void skipFully(InputStream stream, String partName, long bytes) throws IOException {
+            long toSkip = bytes;
+            while (toSkip > 0) {
+                long skipped = stream.skip(toSkip);
+                if (skipped <= 0) {
+                    // skip may return 0 before the end of the stream, only a read tells if the end was reached
+                    if (stream.read() < 0) {
+                        throw new EOFException("blob [" + partName + "] ended before offset [" + bytes + "]");
+                    }
+                    skipped = 1;
+                }
+                toSkip -= skipped;
+            }
+        }
+    }
+
     /**
      * Context for restore operations
      */
@@ -818,7 +1152,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                         // to ensure we don't double the space in the repo since old snapshots
                         // don't have this hash we try to read that hash from the blob store
                         // in a bwc compatible way.
-                        maybeRecalculateMetadataHash(blobContainer, fileInfo, recoveryTargetMetadata);
+                        maybeRecalculateMetadataHash(blobContainer(fileInfo), fileInfo, recoveryTargetMetadata);
                     } catch (Throwable e) {
                         // if the index is broken we might not be able to read it
                         logger.warn("{} Can't calculate hash from blog for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
@@ -857,10 +1191,26 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     logger.trace("[{}] [{}] recovering_files [{}] with total_size [{}], reusing_files [{}] with reused_size [{}]", shardId, snapshotId,
                             index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedFileCount()));
                 }
+                final LazyRestoreDirectory lazyRestoreDirectory = LazyRestoreDirectory.unwrap(store.directory());
+                final List<FileInfo> filesToRestoreLazily = new ArrayList<>();
+                if (lazyRestoreDirectory != null) {
+                    for (Iterator<FileInfo> iterator = filesToRecover.iterator(); iterator.hasNext(); ) {
+                        FileInfo fileInfo = iterator.next();
+                        if (restoreLazily(fileInfo)) {
+                            iterator.remove();
+                            filesToRestoreLazily.add(fileInfo);
+                        }
+                    }
+                }
                 try {
-                    for (final FileInfo fileToRecover : filesToRecover) {
+                    transferFiles(filesToRecover, fileToRecover -> {
                         logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
                         restoreFile(fileToRecover);
+                    });
+                    for (FileInfo fileInfo : filesToRestoreLazily) {
+                        logger.trace("[{}] [{}] restoring file [{}] lazily", shardId, snapshotId, fileInfo.name());
+                        store.deleteQuiet(fileInfo.physicalName());
+                        lazyRestoreDirectory.addRemoteFile(fileInfo.physicalName(), new BlobRemoteFile(blobContainer(fileInfo), fileInfo));
                     }
                 } catch (IOException ex) {
                     throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
@@ -895,11 +1245,108 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                 } catch (IOException e) {
                     logger.warn("[{}] failed to list directory - some of files might not be deleted", snapshotId);
                 }
+                if (filesToRestoreLazily.isEmpty() == false) {
+                    fetchRemainingInBackground(lazyRestoreDirectory, filesToRestoreLazily);
+                }
+            } finally {
+                store.decRef();
+            }
+        }
+
+        /**
+         * Registers the files of the latest local commit that weren't fetched before the shard was closed, they are
+         * served from the repository again and fetched in the background
+         */
+        public void resumeLazyRestore() throws IOException {
+            final LazyRestoreDirectory lazyRestoreDirectory = LazyRestoreDirectory.unwrap(store.directory());
+            if (lazyRestoreDirectory == null) {
+                return;
+            }
+            store.incRef();
+            try {
+                final SegmentInfos segmentInfos;
+                try {
+                    segmentInfos = store.readLastCommittedSegmentsInfo();
+                } catch (IndexNotFoundException e) {
+                    logger.trace("[{}] [{}] no local commit to resume the lazy restore of [{}] from", snapshotId, repositoryName, shardId);
+                    return;
+                }
+                final Set<String> localFiles = new HashSet<>(Arrays.asList(lazyRestoreDirectory.listAll()));
+                final List<FileInfo> filesToRestoreLazily = new ArrayList<>();
+                Map<String, FileInfo> fileInfos = null;
+                for (String name : segmentInfos.files(lazyRestoreDirectory, false)) {
+                    if (localFiles.contains(name)) {
+                        continue;
+                    }
+                    if (fileInfos == null) {
+                        fileInfos = new HashMap<>();
+                        for (FileInfo fileInfo : loadSnapshot().indexFiles()) {
+                            fileInfos.put(fileInfo.physicalName(), fileInfo);
+                        }
+                    }
+                    final FileInfo fileInfo = fileInfos.get(name);
+                    if (fileInfo == null) {
+                        throw new IndexShardRestoreFailedException(shardId, "file [" + name + "] is neither in the local store nor in snapshot [" + snapshotId.getSnapshot() + "]");
+                    }
+                    logger.trace("[{}] [{}] resuming lazy restore of file [{}]", shardId, snapshotId, fileInfo.name());
+                    lazyRestoreDirectory.addRemoteFile(name, new BlobRemoteFile(blobContainer(fileInfo), fileInfo));
+                    filesToRestoreLazily.add(fileInfo);
+                }
+                if (filesToRestoreLazily.isEmpty() == false) {
+                    logger.debug("[{}] [{}] resuming lazy restore of [{}] files of [{}]", snapshotId, repositoryName, filesToRestoreLazily.size(), shardId);
+                    fetchRemainingInBackground(lazyRestoreDirectory, filesToRestoreLazily);
+                }
             } finally {
                 store.decRef();
             }
         }
 
+        /**
+         * Returns true if the file can be served from the repository until it is fetched. Segments files are needed to
+         * open the index and files with legacy checksums need their checksums written, so they are always restored upfront.
+         */
+        private boolean restoreLazily(FileInfo fileInfo) {
+            final String name = fileInfo.physicalName();
+            return name.startsWith(IndexFileNames.SEGMENTS) == false
+                && name.endsWith(".si") == false
+                && fileInfo.metadata().hasLegacyChecksum() == false;
+        }
+
+        /**
+         * Fetches the files that are restored lazily on the generic thread pool, the shard serves them from the
+         * repository until then
+         */
+        private void fetchRemainingInBackground(final LazyRestoreDirectory lazyRestoreDirectory, final List<FileInfo> files) {
+            store.incRef();
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() throws Exception {
+                        for (FileInfo fileInfo : files) {
+                            long pausedNanos = lazyRestoreDirectory.fetchRemaining(fileInfo.physicalName(), restoreRateLimiter);
+                            if (pausedNanos > 0) {
+                                rateLimiterListener.onRestorePause(pausedNanos);
+                            }
+                        }
+                        logger.debug("[{}] [{}] fetched [{}] lazily restored files of [{}]", snapshotId, repositoryName, files.size(), shardId);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        logger.warn("[{}] [{}] failed to fetch lazily restored files of [{}], they are fetched on access", t, snapshotId, repositoryName, shardId);
+                    }
+
+                    @Override
+                    public void onAfter() {
+                        store.decRef();
+                    }
+                });
+            } catch (EsRejectedExecutionException e) {
+                store.decRef();
+                logger.warn("[{}] [{}] failed to fetch lazily restored files of [{}], they are fetched on access", e, snapshotId, repositoryName, shardId);
+            }
+        }
+
         /**
          * Restores a file
          * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
@@ -910,7 +1357,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         private void restoreFile(final FileInfo fileInfo) throws IOException {
             boolean success = false;
 
-            try (InputStream partSliceStream = new PartSliceStream(blobContainer, fileInfo)) {
+            try (InputStream partSliceStream = new PartSliceStream(blobContainer(fileInfo), fileInfo)) {
                 final InputStream stream;
                 if (restoreRateLimiter == null) {
                     stream = partSliceStream;
@@ -928,10 +1375,12 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     indexOutput.close();
                     // write the checksum
                     if (fileInfo.metadata().hasLegacyChecksum()) {
-                        Store.LegacyChecksums legacyChecksums = new Store.LegacyChecksums();
-                        legacyChecksums.add(fileInfo.metadata());
-                        legacyChecksums.write(store);
-
+                        // files can be restored concurrently, don't let them race on the checksums file
+                        synchronized (this) {
+                            Store.LegacyChecksums legacyChecksums = new Store.LegacyChecksums();
+                            legacyChecksums.add(fileInfo.metadata());
+                            legacyChecksums.write(store);
+                        }
                     }
                     store.directory().sync(Collections.singleton(fileInfo.physicalName()));
                     success = true;
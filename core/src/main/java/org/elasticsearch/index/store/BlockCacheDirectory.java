@@ -0,0 +1,588 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A directory that keeps frequently read blocks of the wrapped directory's files in a local cache file, for indices
+ * that live on slow or high latency storage. The cache file is split into slots of {@link #BLOCK_SIZE} bytes, and
+ * when all slots are taken the block that was read least frequently is evicted. Access counts are halved periodically
+ * so blocks that were hot a long time ago don't stay in the cache forever.
+ * <p>
+ * The slots are split into segments with their own lock and their own eviction order, a block always maps to the same
+ * segment. Within a segment, the slots are kept in one list per access count so that the block to evict is found
+ * without scanning the segment. Inputs read whole blocks, so a segment is locked once per block that is read.
+ * <p>
+ * Cached blocks of a file are dropped when the file is deleted, renamed or written again. Reads for merges bypass the
+ * cache. The cache isn't persisted, it's cleared when the directory is opened and removed when it's closed.
+ */
+public final class BlockCacheDirectory extends FilterDirectory {
+
+    static final int BLOCK_SIZE = 1 << 14;
+
+    private static final String CACHE_FILE_NAME = "blocks.cache";
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final int MIN_SLOTS_PER_SEGMENT = 64;
+
+    // access counts saturate, they are halved long before most blocks get there
+    private static final int MAX_FREQUENCY = 255;
+
+    private final Path cacheLocation;
+
+    private final FileChannel channel;
+
+    private final Segment[] segments;
+
+    private final ConcurrentMap<String, CachedFile> files = ConcurrentCollections.newConcurrentMap();
+
+    private final CounterMetric hits = new CounterMetric();
+
+    private final CounterMetric misses = new CounterMetric();
+
+    private final CounterMetric bytesSaved = new CounterMetric();
+
+    /**
+     * @param in            the wrapped directory
+     * @param cacheLocation the location of the cache file, ideally on fast local storage
+     * @param cacheSize     the size of the cache in bytes, rounded up to a multiple of {@link #BLOCK_SIZE}
+     */
+    public BlockCacheDirectory(Directory in, Path cacheLocation, long cacheSize) throws IOException {
+        super(in);
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cache size must be positive but was [" + cacheSize + "]");
+        }
+        this.cacheLocation = cacheLocation;
+        final int numSlots = (int) Math.min(Integer.MAX_VALUE, (cacheSize + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        if (Files.exists(cacheLocation)) {
+            IOUtils.rm(cacheLocation);
+        }
+        Files.createDirectories(cacheLocation);
+        this.channel = FileChannel.open(cacheLocation.resolve(CACHE_FILE_NAME), StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final int numSegments = Math.max(1, Math.min(MAX_SEGMENTS, numSlots / MIN_SLOTS_PER_SEGMENT));
+        this.segments = new Segment[numSegments];
+        int firstSlot = 0;
+        for (int i = 0; i < numSegments; i++) {
+            final int segmentSlots = numSlots / numSegments + (i < numSlots % numSegments ? 1 : 0);
+            segments[i] = new Segment(firstSlot, segmentSlots);
+            firstSlot += segmentSlots;
+        }
+    }
+
+    /**
+     * Returns the block cache directory in the given chain of directories, or <code>null</code> if there is none
+     */
+    @Nullable
+    public static BlockCacheDirectory unwrap(Directory directory) {
+        Directory current = directory;
+        while (true) {
+            if (current instanceof BlockCacheDirectory) {
+                return (BlockCacheDirectory) current;
+            } else if (current instanceof FilterDirectory) {
+                current = ((FilterDirectory) current).getDelegate();
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of blocks that were read from the cache
+     */
+    public long hits() {
+        return hits.count();
+    }
+
+    /**
+     * Returns the number of blocks that were read from the wrapped directory because they weren't cached
+     */
+    public long misses() {
+        return misses.count();
+    }
+
+    /**
+     * Returns the number of bytes that were served from the cache instead of the wrapped directory
+     */
+    public long bytesSaved() {
+        return bytesSaved.count();
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        if (context.context == IOContext.Context.MERGE) {
+            // merged segments are read once, don't let them push the blocks that searches use out of the cache
+            return in.openInput(name, context);
+        }
+        CachedFile file = files.get(name);
+        if (file == null) {
+            CachedFile newFile = new CachedFile(name);
+            file = files.putIfAbsent(name, newFile);
+            if (file == null) {
+                file = newFile;
+            }
+        }
+        final IndexInput delegate = in.openInput(name, context);
+        if (files.get(name) != file) {
+            // invalidated while opening, we can't tell which version of the file we opened
+            return delegate;
+        }
+        return new CachingIndexInput("BlockCacheDirectory(" + name + ")", file, delegate, 0, delegate.length());
+    }
+
+    @Override
+    public IndexOutput createOutput(String name, IOContext context) throws IOException {
+        invalidate(name);
+        return in.createOutput(name, context);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        invalidate(name);
+        in.deleteFile(name);
+    }
+
+    @Override
+    public void renameFile(String source, String dest) throws IOException {
+        invalidate(source);
+        invalidate(dest);
+        in.renameFile(source, dest);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(channel, super::close);
+        } finally {
+            IOUtils.rm(cacheLocation);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "block_cache(" + in.toString() + ")";
+    }
+
+    /**
+     * Drops all cached blocks of the given file. Inputs that are still open keep reading the old file from the wrapped
+     * directory without caching it.
+     */
+    private void invalidate(String name) {
+        final CachedFile file = files.remove(name);
+        if (file != null) {
+            for (Segment segment : segments) {
+                segment.invalidate(file);
+            }
+        }
+    }
+
+    private Segment segment(CachedFile file, long block) {
+        return segments[Math.floorMod(31 * file.name.hashCode() + Long.hashCode(block), segments.length)];
+    }
+
+    /**
+     * Reads the given block from the cache into the buffer. Returns false if the block isn't cached.
+     */
+    private boolean readCached(CachedFile file, long block, byte[] buffer, int length) throws IOException {
+        final Segment segment = segment(file, block);
+        final int slot = segment.pin(file, block);
+        if (slot == -1) {
+            return false;
+        }
+        try {
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+            final long position = segment.position(slot);
+            while (byteBuffer.hasRemaining()) {
+                if (channel.read(byteBuffer, position + byteBuffer.position()) < 0) {
+                    throw new EOFException("block cache file ended unexpectedly");
+                }
+            }
+        } finally {
+            segment.unpin(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Puts the given block into the cache, evicting the least frequently read block of its segment if the segment is full
+     */
+    private void cache(CachedFile file, long block, byte[] buffer, int length) throws IOException {
+        final Segment segment = segment(file, block);
+        final int slot = segment.reserve(file, block);
+        if (slot == -1) {
+            return;
+        }
+        boolean success = false;
+        try {
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+            final long position = segment.position(slot);
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer, position + byteBuffer.position());
+            }
+            success = true;
+        } finally {
+            segment.publish(slot, file, block, success);
+        }
+    }
+
+    /**
+     * A file of the wrapped directory, identity changes whenever the file is invalidated
+     */
+    private static final class CachedFile {
+
+        private final String name;
+
+        // block to slot in the block's segment, an entry is only modified under the lock of its segment
+        private final ConcurrentMap<Long, Integer> slots = ConcurrentCollections.newConcurrentMap();
+
+        CachedFile(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * A range of slots of the cache file with its own lock and eviction order. Slots are numbered from 0 within the
+     * segment. Slots that hold a block are linked into the list of their access count, least recently promoted first.
+     */
+    private final class Segment {
+
+        private final int firstSlot;
+        private final int numSlots;
+
+        // all of the below are guarded by this
+        private final int[] freeSlots;
+        private int numFreeSlots;
+        private final CachedFile[] slotFiles;
+        private final long[] slotBlocks;
+        private final int[] slotFrequencies;
+        private final int[] slotPins;
+        private final int[] previous;
+        private final int[] next;
+        private final int[] heads = new int[MAX_FREQUENCY + 1];
+        private final int[] tails = new int[MAX_FREQUENCY + 1];
+        private long accessesSinceDecay = 0;
+
+        Segment(int firstSlot, int numSlots) {
+            this.firstSlot = firstSlot;
+            this.numSlots = numSlots;
+            this.freeSlots = new int[numSlots];
+            for (int slot = 0; slot < numSlots; slot++) {
+                freeSlots[slot] = numSlots - 1 - slot;
+            }
+            this.numFreeSlots = numSlots;
+            this.slotFiles = new CachedFile[numSlots];
+            this.slotBlocks = new long[numSlots];
+            this.slotFrequencies = new int[numSlots];
+            this.slotPins = new int[numSlots];
+            this.previous = new int[numSlots];
+            this.next = new int[numSlots];
+            Arrays.fill(heads, -1);
+            Arrays.fill(tails, -1);
+        }
+
+        long position(int slot) {
+            return (long) (firstSlot + slot) * BLOCK_SIZE;
+        }
+
+        /**
+         * Pins the slot of the given block so it can't be reused while it's read, and counts the access. Returns -1
+         * if the block isn't cached.
+         */
+        synchronized int pin(CachedFile file, long block) {
+            final Integer slot = file.slots.get(block);
+            if (slot == null) {
+                return -1;
+            }
+            slotPins[slot]++;
+            if (slotFrequencies[slot] < MAX_FREQUENCY) {
+                unlink(slot);
+                slotFrequencies[slot]++;
+                link(slot);
+            }
+            if (++accessesSinceDecay >= 8L * numSlots) {
+                decay();
+            }
+            return slot;
+        }
+
+        synchronized void unpin(int slot) {
+            slotPins[slot]--;
+            if (slotFiles[slot] == null && slotPins[slot] == 0) {
+                // invalidated while it was read or written
+                freeSlots[numFreeSlots++] = slot;
+            }
+        }
+
+        /**
+         * Takes a free slot for the given block, or the slot of the least frequently read block, and pins it. Returns
+         * -1 if the block is cached already or if all slots are pinned. The slot isn't mapped until it's published so
+         * concurrent reads can't see partial blocks.
+         */
+        synchronized int reserve(CachedFile file, long block) {
+            if (files.get(file.name) != file || file.slots.containsKey(block)) {
+                return -1;
+            }
+            final int slot = numFreeSlots > 0 ? freeSlots[--numFreeSlots] : evict();
+            if (slot != -1) {
+                slotPins[slot]++;
+            }
+            return slot;
+        }
+
+        /**
+         * Maps a reserved slot to the block that was written to it, unless writing failed or the file was invalidated
+         */
+        synchronized void publish(int slot, CachedFile file, long block, boolean success) {
+            if (success && files.get(file.name) == file && file.slots.containsKey(block) == false) {
+                file.slots.put(block, slot);
+                slotFiles[slot] = file;
+                slotBlocks[slot] = block;
+                slotFrequencies[slot] = 1;
+                link(slot);
+            }
+            unpin(slot);
+        }
+
+        /**
+         * Drops the blocks of the given file that are cached in this segment. The file must not be mapped anymore so
+         * that no new blocks are published for it.
+         */
+        synchronized void invalidate(CachedFile file) {
+            for (Iterator<Map.Entry<Long, Integer>> iterator = file.slots.entrySet().iterator(); iterator.hasNext(); ) {
+                final Map.Entry<Long, Integer> entry = iterator.next();
+                if (segment(file, entry.getKey()) == this) {
+                    final int slot = entry.getValue();
+                    iterator.remove();
+                    unlink(slot);
+                    slotFiles[slot] = null;
+                    slotFrequencies[slot] = 0;
+                    if (slotPins[slot] == 0) {
+                        freeSlots[numFreeSlots++] = slot;
+                    }
+                }
+            }
+        }
+
+        // must be called under this
+        private int evict() {
+            for (int frequency = 1; frequency <= MAX_FREQUENCY; frequency++) {
+                for (int slot = heads[frequency]; slot != -1; slot = next[slot]) {
+                    if (slotPins[slot] == 0) {
+                        unlink(slot);
+                        slotFiles[slot].slots.remove(slotBlocks[slot]);
+                        slotFiles[slot] = null;
+                        slotFrequencies[slot] = 0;
+                        return slot;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        // must be called under this
+        private void decay() {
+            accessesSinceDecay = 0;
+            Arrays.fill(heads, -1);
+            Arrays.fill(tails, -1);
+            for (int slot = 0; slot < numSlots; slot++) {
+                if (slotFiles[slot] != null) {
+                    slotFrequencies[slot] = Math.max(1, slotFrequencies[slot] >>> 1);
+                    link(slot);
+                }
+            }
+        }
+
+        // must be called under this
+        private void link(int slot) {
+            final int frequency = slotFrequencies[slot];
+            previous[slot] = tails[frequency];
+            next[slot] = -1;
+            if (tails[frequency] == -1) {
+                heads[frequency] = slot;
+            } else {
+                next[tails[frequency]] = slot;
+            }
+            tails[frequency] = slot;
+        }
+
+        // must be called under this
+        private void unlink(int slot) {
+            final int frequency = slotFrequencies[slot];
+            if (previous[slot] == -1) {
+                heads[frequency] = next[slot];
+            } else {
+                next[previous[slot]] = next[slot];
+            }
+            if (next[slot] == -1) {
+                tails[frequency] = previous[slot];
+            } else {
+                previous[next[slot]] = previous[slot];
+            }
+        }
+    }
+
+    /**
+     * Reads a file block by block, from the cache if possible and from the wrapped directory otherwise. The input
+     * buffers the whole block it read last.
+     */
+    private final class CachingIndexInput extends IndexInput {
+
+        private final CachedFile file;
+        private final long offset;
+        private final long length;
+        private IndexInput delegate;
+        private boolean isClone = false;
+        private long pointer = 0;
+        private byte[] buffer;
+        private long bufferBlock = -1;
+        private int bufferLength = 0;
+
+        CachingIndexInput(String resourceDescription, CachedFile file, IndexInput delegate, long offset, long length) {
+            super(resourceDescription);
+            this.file = file;
+            this.delegate = delegate;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (pointer >= length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            final long position = offset + pointer;
+            final long block = position / BLOCK_SIZE;
+            loadBlock(block);
+            pointer++;
+            return buffer[(int) (position - block * BLOCK_SIZE)];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int off, int len) throws IOException {
+            if (pointer + len > length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            long position = offset + pointer;
+            while (len > 0) {
+                final long block = position / BLOCK_SIZE;
+                loadBlock(block);
+                final int inBlock = (int) (position - block * BLOCK_SIZE);
+                final int toCopy = Math.min(len, bufferLength - inBlock);
+                System.arraycopy(buffer, inBlock, b, off, toCopy);
+                position += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+            pointer = position - offset;
+        }
+
+        private void loadBlock(long block) throws IOException {
+            if (block == bufferBlock) {
+                return;
+            }
+            if (buffer == null) {
+                buffer = new byte[BLOCK_SIZE];
+            }
+            final long start = block * BLOCK_SIZE;
+            final int blockLength = (int) Math.min(BLOCK_SIZE, delegate.length() - start);
+            // forget the current block first, it's overwritten and may be left incomplete if reading fails
+            bufferBlock = -1;
+            if (readCached(file, block, buffer, blockLength)) {
+                hits.inc();
+                bytesSaved.inc(blockLength);
+            } else {
+                misses.inc();
+                delegate.seek(start);
+                delegate.readBytes(buffer, 0, blockLength);
+                cache(file, block, buffer, blockLength);
+            }
+            bufferBlock = block;
+            bufferLength = blockLength;
+        }
+
+        @Override
+        public long getFilePointer() {
+            return pointer;
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            if (pos < 0 || pos > length) {
+                throw new EOFException("seek past EOF: " + this);
+            }
+            pointer = pos;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public CachingIndexInput clone() {
+            CachingIndexInput clone = (CachingIndexInput) super.clone();
+            clone.delegate = delegate.clone();
+            clone.isClone = true;
+            clone.buffer = null;
+            clone.bufferBlock = -1;
+            return clone;
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+            if (offset < 0 || length < 0 || offset + length > this.length) {
+                throw new IllegalArgumentException("slice() " + sliceDescription + " out of bounds: " + this);
+            }
+            CachingIndexInput slice = new CachingIndexInput(getFullSliceDescription(sliceDescription), file, delegate.clone(),
+                this.offset + offset, length);
+            slice.isClone = true;
+            return slice;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isClone == false) {
+                delegate.close();
+            }
+        }
+    }
+}
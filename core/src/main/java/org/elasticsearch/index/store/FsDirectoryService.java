@@ -35,6 +35,8 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.IndexModule;
 import org.elasticsearch.index.IndexSettings;
@@ -45,6 +47,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  */
@@ -61,6 +64,26 @@ public class FsDirectoryService extends DirectoryService implements StoreRateLim
                 throw new IllegalArgumentException("unrecognized [index.store.fs.fs_lock] \"" + s + "\": must be native or simple");
         }
     }, false, Setting.Scope.INDEX);
+    /**
+     * If true, shards of the index that are restored from a snapshot serve files from the repository until they were
+     * fetched in the background, so they can be searched before the restore copied all their files.
+     */
+    public static final Setting<Boolean> INDEX_LAZY_RESTORE_SETTING = Setting.boolSetting("index.store.restore.lazy", false, false, Setting.Scope.INDEX);
+    /**
+     * The repository, snapshot and index in the snapshot an index was lazily restored from. They are set on restore and
+     * used to register the files that weren't fetched yet again when a shard is recovered from its local store.
+     */
+    public static final Setting<String> INDEX_LAZY_RESTORE_REPOSITORY_SETTING = new Setting<>("index.store.lazy_restore.repository", "", Function.identity(), false, Setting.Scope.INDEX);
+    public static final Setting<String> INDEX_LAZY_RESTORE_SNAPSHOT_SETTING = new Setting<>("index.store.lazy_restore.snapshot", "", Function.identity(), false, Setting.Scope.INDEX);
+    public static final Setting<String> INDEX_LAZY_RESTORE_INDEX_SETTING = new Setting<>("index.store.lazy_restore.index", "", Function.identity(), false, Setting.Scope.INDEX);
+    /**
+     * If true, frequently read blocks of the shard's files are kept in a local cache, see {@link BlockCacheDirectory}
+     */
+    public static final Setting<Boolean> INDEX_BLOCK_CACHE_ENABLED_SETTING = Setting.boolSetting("index.store.block_cache.enabled", false, false, Setting.Scope.INDEX);
+    /**
+     * The size of the block cache of each shard
+     */
+    public static final Setting<ByteSizeValue> INDEX_BLOCK_CACHE_SIZE_SETTING = Setting.byteSizeSetting("index.store.block_cache.size", new ByteSizeValue(1, ByteSizeUnit.GB), false, Setting.Scope.INDEX);
     private final CounterMetric rateLimitingTimeInNanos = new CounterMetric();
     private final ShardPath path;
 
@@ -86,9 +109,23 @@ public class FsDirectoryService extends DirectoryService implements StoreRateLim
         final Path location = path.resolveIndex();
         Files.createDirectories(location);
         Directory wrapped = newFSDirectory(location, indexSettings.getValue(INDEX_LOCK_FACTOR_SETTING));
-        return new RateLimitedFSDirectory(wrapped, this, this) ;
+        Directory directory = new RateLimitedFSDirectory(wrapped, this, this);
+        if (indexSettings.getValue(INDEX_BLOCK_CACHE_ENABLED_SETTING)) {
+            directory = new BlockCacheDirectory(directory, blockCacheLocation(), indexSettings.getValue(INDEX_BLOCK_CACHE_SIZE_SETTING).bytes());
+        }
+        if (indexSettings.getValue(INDEX_LAZY_RESTORE_SETTING)) {
+            directory = new LazyRestoreDirectory(directory, location, path.getDataPath().resolve("lazy_restore"));
+        }
+        return directory;
     }
 
+    private Path blockCacheLocation() {
+        final Path cachePath = indexStore.indexStoreConfig.getCachePath();
+        if (cachePath == null) {
+            return path.getDataPath().resolve("block_cache");
+        }
+        return cachePath.resolve("block_cache").resolve(indexSettings.getUUID()).resolve(Integer.toString(shardId.id()));
+    }
 
     @Override
     public void onPause(long nanos) {
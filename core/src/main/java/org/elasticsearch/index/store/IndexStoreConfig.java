@@ -19,12 +19,15 @@
 package org.elasticsearch.index.store;
 
 import org.apache.lucene.store.StoreRateLimiting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 
+import java.nio.file.Path;
+
 /**
  * IndexStoreConfig encapsulates node / cluster level configuration for index level {@link IndexStore} instances.
  * For instance it maintains the node level rate limiter configuration: updates to the cluster that disable or enable
@@ -45,8 +48,10 @@ public class IndexStoreConfig {
     private volatile ByteSizeValue rateLimitingThrottle;
     private final StoreRateLimiting rateLimiting = new StoreRateLimiting();
     private final ESLogger logger;
-    public IndexStoreConfig(Settings settings) {
+    private final Path cachePath;
+    public IndexStoreConfig(Settings settings, @Nullable Path cachePath) {
         logger = Loggers.getLogger(IndexStoreConfig.class, settings);
+        this.cachePath = cachePath;
         // we don't limit by default (we default to CMS's auto throttle instead):
         this.rateLimitingType = INDICES_STORE_THROTTLE_TYPE_SETTING.get(settings);
         rateLimiting.setType(rateLimitingType);
@@ -62,6 +67,15 @@ public class IndexStoreConfig {
         return rateLimiting;
     }
 
+    /**
+     * Returns the location of the local caches of this node within <tt>path.cache</tt>, or <code>null</code> if
+     * caches should be kept in the shard data paths
+     */
+    @Nullable
+    public Path getCachePath() {
+        return cachePath;
+    }
+
     public void setRateLimitingType(StoreRateLimiting.Type rateLimitingType) {
         this.rateLimitingType = rateLimitingType;
         rateLimiting.setType(rateLimitingType);
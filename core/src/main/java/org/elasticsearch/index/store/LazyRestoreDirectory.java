@@ -0,0 +1,550 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.BufferedIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A directory for shards that are restored lazily from a snapshot. Files that weren't copied yet are read from the
+ * repository in blocks when they are first accessed, and the blocks are kept in a local cache file. Once all blocks of
+ * a file were fetched, the cache file is verified and moved into the index directory, and the file is served by the
+ * wrapped directory from then on.
+ */
+public final class LazyRestoreDirectory extends FilterDirectory {
+
+    /**
+     * A file that is only available remotely
+     */
+    public interface RemoteFile {
+
+        /**
+         * Returns the length of the file
+         */
+        long length();
+
+        /**
+         * Returns the Lucene checksum of the file, or <code>null</code> if the file doesn't have one
+         */
+        @Nullable
+        String checksum();
+
+        /**
+         * Opens a stream that reads the file from the given position on
+         */
+        InputStream openStream(long position) throws IOException;
+    }
+
+    static final int BLOCK_SIZE = 1 << 20;
+
+    private final Path location;
+
+    private final Path cacheLocation;
+
+    // the directory holds a reference on each cache file until the file was fully fetched or deleted
+    private final ConcurrentMap<String, CachedFile> remoteFiles = ConcurrentCollections.newConcurrentMap();
+
+    private final AtomicInteger openCacheFiles = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param in            the wrapped directory
+     * @param location      the location of the wrapped directory, fully fetched files are moved there
+     * @param cacheLocation the location of the block cache files, on the same file system as the index directory
+     */
+    public LazyRestoreDirectory(Directory in, Path location, Path cacheLocation) throws IOException {
+        super(in);
+        this.location = location;
+        this.cacheLocation = cacheLocation;
+        // the fetched blocks aren't tracked across restarts, files that weren't fetched yet are registered again and
+        // fetched from scratch
+        if (Files.exists(cacheLocation)) {
+            IOUtils.rm(cacheLocation);
+        }
+        Files.createDirectories(cacheLocation);
+    }
+
+    /**
+     * Returns the lazy restore directory in the given chain of directories, or <code>null</code> if there is none
+     */
+    @Nullable
+    public static LazyRestoreDirectory unwrap(Directory directory) {
+        Directory current = directory;
+        while (true) {
+            if (current instanceof LazyRestoreDirectory) {
+                return (LazyRestoreDirectory) current;
+            } else if (current instanceof FilterDirectory) {
+                current = ((FilterDirectory) current).getDelegate();
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Registers a file that is read from the given remote file until it was fully fetched
+     */
+    public void addRemoteFile(String name, RemoteFile remoteFile) throws IOException {
+        ensureOpen();
+        if (remoteFiles.containsKey(name)) {
+            throw new IllegalStateException("remote file [" + name + "] is already registered");
+        }
+        CachedFile cachedFile = new CachedFile(name, remoteFile, cacheLocation.resolve(name));
+        if (remoteFiles.putIfAbsent(name, cachedFile) != null) {
+            cachedFile.decRef();
+            throw new IllegalStateException("remote file [" + name + "] is already registered");
+        }
+    }
+
+    /**
+     * Returns the names of the files that weren't fully fetched yet
+     */
+    public Set<String> remoteFileNames() {
+        return new TreeSet<>(remoteFiles.keySet());
+    }
+
+    /**
+     * Fetches all blocks of the given file that weren't fetched yet and moves the file into the index directory. Does
+     * nothing if the file was fetched or deleted already.
+     *
+     * @param rateLimiter limits the rate at which blocks are fetched, if not null
+     * @return the time in nanoseconds the fetching was paused by the rate limiter
+     */
+    public long fetchRemaining(String name, @Nullable RateLimiter rateLimiter) throws IOException {
+        long pausedNanos = 0;
+        CachedFile cachedFile = remoteFiles.get(name);
+        if (cachedFile == null || cachedFile.tryIncRef() == false) {
+            return pausedNanos;
+        }
+        // consecutive missing blocks are read through the same stream
+        try (BlockReader reader = cachedFile.newBlockReader()) {
+            for (int block = 0; block < cachedFile.numBlocks; block++) {
+                ensureOpen();
+                if (remoteFiles.get(name) != cachedFile) {
+                    // deleted in the meantime
+                    return pausedNanos;
+                }
+                int fetched = cachedFile.fetchBlock(block, reader);
+                if (rateLimiter != null && fetched > 0) {
+                    pausedNanos += rateLimiter.pause(fetched);
+                }
+            }
+            complete(name, cachedFile);
+        } finally {
+            cachedFile.decRef();
+        }
+        return pausedNanos;
+    }
+
+    private void complete(String name, CachedFile cachedFile) throws IOException {
+        synchronized (cachedFile) {
+            if (remoteFiles.get(name) != cachedFile) {
+                return;
+            }
+            cachedFile.channel.force(true);
+            final String expectedChecksum = cachedFile.remoteFile.checksum();
+            if (expectedChecksum != null) {
+                try (IndexInput input = new CachedIndexInput("LazyRestoreDirectory.verify(" + name + ")", cachedFile, 0, cachedFile.length, false)) {
+                    String actualChecksum = Store.digestToString(CodecUtil.checksumEntireFile(input));
+                    if (expectedChecksum.equals(actualChecksum) == false) {
+                        // fetch everything again on the next access, the blocks may have been damaged on the way
+                        cachedFile.clear();
+                        throw new CorruptIndexException("checksum failed (hardware problem?) : expected=" + expectedChecksum +
+                            " actual=" + actualChecksum, name);
+                    }
+                }
+            }
+            Files.move(cachedFile.path, location.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            IOUtils.fsync(location, true);
+            // inputs that are already open keep reading the moved file through the open channel, it's closed with the last of them
+            if (remoteFiles.remove(name, cachedFile)) {
+                cachedFile.decRef();
+            }
+        }
+    }
+
+    @Override
+    public String[] listAll() throws IOException {
+        Set<String> files = new TreeSet<>(Arrays.asList(in.listAll()));
+        files.addAll(remoteFiles.keySet());
+        return files.toArray(new String[files.size()]);
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        CachedFile cachedFile = remoteFiles.get(name);
+        if (cachedFile != null) {
+            return cachedFile.length;
+        }
+        return in.fileLength(name);
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        CachedFile cachedFile = remoteFiles.get(name);
+        if (cachedFile != null && cachedFile.tryIncRef()) {
+            return new CachedIndexInput("LazyRestoreDirectory(" + name + ")", cachedFile, 0, cachedFile.length, true);
+        }
+        // the file was fully fetched or deleted in the meantime
+        return in.openInput(name, context);
+    }
+
+    @Override
+    public IndexOutput createOutput(String name, IOContext context) throws IOException {
+        if (remoteFiles.containsKey(name)) {
+            throw new IllegalStateException("file [" + name + "] is restored lazily and can't be overwritten");
+        }
+        return in.createOutput(name, context);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        CachedFile cachedFile = remoteFiles.remove(name);
+        if (cachedFile != null) {
+            try {
+                synchronized (cachedFile) {
+                    // open inputs keep reading the deleted file through the open channel, it's closed with the last of them
+                    Files.deleteIfExists(cachedFile.path);
+                }
+            } finally {
+                cachedFile.decRef();
+            }
+        } else {
+            in.deleteFile(name);
+        }
+    }
+
+    @Override
+    public void renameFile(String source, String dest) throws IOException {
+        if (remoteFiles.containsKey(source) || remoteFiles.containsKey(dest)) {
+            throw new IllegalStateException("can't rename [" + source + "] to [" + dest + "], files that are restored lazily can't be renamed");
+        }
+        in.renameFile(source, dest);
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        // remote files are durable in the repository and are synced when they are moved into the index directory
+        List<String> localNames = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (remoteFiles.containsKey(name) == false) {
+                localNames.add(name);
+            }
+        }
+        in.sync(localNames);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            // inputs that are still open keep their cache files open until they are closed
+            for (Map.Entry<String, CachedFile> entry : remoteFiles.entrySet()) {
+                if (remoteFiles.remove(entry.getKey(), entry.getValue())) {
+                    entry.getValue().decRef();
+                }
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    // pkg private for testing
+    int openCacheFiles() {
+        return openCacheFiles.get();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new AlreadyClosedException("this directory is closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "lazy_restore(" + in.toString() + ")";
+    }
+
+    /**
+     * The local cache file of a remote file, which holds the blocks that were fetched so far. The channel is closed once
+     * the file was fully fetched or deleted and all inputs that read it were closed.
+     */
+    private final class CachedFile extends AbstractRefCounted {
+
+        private final String name;
+        private final RemoteFile remoteFile;
+        private final Path path;
+        private final long length;
+        private final int numBlocks;
+        private final FileChannel channel;
+        // one bit per block, set once the block was written to the cache file. Checked without locking on every read
+        private final AtomicLongArray fetchedBlocks;
+        // the blocks that are being fetched, concurrent reads of such a block wait for the fetch instead of fetching it again
+        private final ConcurrentMap<Integer, CompletableFuture<Void>> pendingFetches = ConcurrentCollections.newConcurrentMap();
+
+        CachedFile(String name, RemoteFile remoteFile, Path path) throws IOException {
+            super("lazy_restore(" + name + ")");
+            this.name = name;
+            this.remoteFile = remoteFile;
+            this.path = path;
+            this.length = remoteFile.length();
+            this.numBlocks = (int) ((length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            this.fetchedBlocks = new AtomicLongArray(Math.max(1, (numBlocks + 63) >>> 6));
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            openCacheFiles.incrementAndGet();
+        }
+
+        private boolean isFetched(int block) {
+            return (fetchedBlocks.get(block >>> 6) & (1L << block)) != 0;
+        }
+
+        private void setFetched(int block) {
+            final long mask = 1L << block;
+            fetchedBlocks.getAndUpdate(block >>> 6, word -> word | mask);
+        }
+
+        BlockReader newBlockReader() {
+            return new BlockReader(remoteFile, name);
+        }
+
+        /**
+         * Fetches the given block unless it was fetched before and returns the number of bytes that were fetched. Only
+         * fetches of the same block are serialized, a block that is being fetched by another thread is waited for.
+         */
+        int fetchBlock(int block, BlockReader reader) throws IOException {
+            while (isFetched(block) == false) {
+                final CompletableFuture<Void> fetch = new CompletableFuture<>();
+                final CompletableFuture<Void> pending = pendingFetches.putIfAbsent(block, fetch);
+                if (pending != null) {
+                    try {
+                        pending.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ThreadInterruptedException(e);
+                    } catch (ExecutionException e) {
+                        // the other fetch failed, try again
+                    }
+                    continue;
+                }
+                try {
+                    // the block may have been fetched between the check and the registration of this fetch
+                    final int fetched = isFetched(block) ? 0 : doFetchBlock(block, reader);
+                    fetch.complete(null);
+                    return fetched;
+                } catch (Throwable t) {
+                    fetch.completeExceptionally(t);
+                    throw t;
+                } finally {
+                    pendingFetches.remove(block, fetch);
+                }
+            }
+            return 0;
+        }
+
+        private int doFetchBlock(int block, BlockReader reader) throws IOException {
+            final long position = (long) block * BLOCK_SIZE;
+            final int blockLength = (int) Math.min(BLOCK_SIZE, length - position);
+            final byte[] bytes = new byte[blockLength];
+            reader.read(position, bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            setFetched(block);
+            return blockLength;
+        }
+
+        void clear() {
+            for (int i = 0; i < fetchedBlocks.length(); i++) {
+                fetchedBlocks.set(i, 0);
+            }
+        }
+
+        void read(long position, byte[] b, int offset, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            final int lastBlock = (int) ((position + len - 1) / BLOCK_SIZE);
+            BlockReader reader = null;
+            try {
+                for (int block = (int) (position / BLOCK_SIZE); block <= lastBlock; block++) {
+                    if (isFetched(block) == false) {
+                        if (reader == null) {
+                            reader = newBlockReader();
+                        }
+                        fetchBlock(block, reader);
+                    }
+                }
+            } finally {
+                IOUtils.close(reader);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, offset, len);
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position() - offset);
+                if (read < 0) {
+                    throw new EOFException("read past EOF: " + name);
+                }
+            }
+        }
+
+        @Override
+        protected void closeInternal() {
+            IOUtils.closeWhileHandlingException(channel);
+            openCacheFiles.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reads blocks of a remote file, consecutive blocks are read through the same stream
+     */
+    private static final class BlockReader implements Closeable {
+
+        private final RemoteFile remoteFile;
+        private final String name;
+        private InputStream stream;
+        private long streamPosition;
+
+        BlockReader(RemoteFile remoteFile, String name) {
+            this.remoteFile = remoteFile;
+            this.name = name;
+        }
+
+        void read(long position, byte[] bytes) throws IOException {
+            if (stream == null || streamPosition != position) {
+                IOUtils.close(stream);
+                stream = null;
+                stream = remoteFile.openStream(position);
+                streamPosition = position;
+            }
+            final int read = Streams.readFully(stream, bytes, 0, bytes.length);
+            streamPosition += read;
+            if (read != bytes.length) {
+                throw new EOFException("remote file [" + name + "] ended before position [" + (position + bytes.length) + "]");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(stream);
+        }
+    }
+
+    /**
+     * Reads a remote file through its cache file, fetching missing blocks on the way
+     */
+    private static final class CachedIndexInput extends BufferedIndexInput {
+
+        private final CachedFile file;
+        private final long offset;
+        private final long length;
+        // only the input that was opened releases the cache file, not its clones and slices
+        private boolean releaseOnClose;
+
+        CachedIndexInput(String resourceDescription, CachedFile file, long offset, long length, boolean releaseOnClose) {
+            super(resourceDescription, BufferedIndexInput.BUFFER_SIZE);
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.releaseOnClose = releaseOnClose;
+        }
+
+        @Override
+        protected void readInternal(byte[] b, int off, int len) throws IOException {
+            final long position = getFilePointer();
+            if (position + len > length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            file.read(offset + position, b, off, len);
+        }
+
+        @Override
+        protected void seekInternal(long pos) throws IOException {
+            if (pos > length) {
+                throw new EOFException("seek past EOF: " + this);
+            }
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+            if (offset < 0 || length < 0 || offset + length > this.length) {
+                throw new IllegalArgumentException("slice() " + sliceDescription + " out of bounds: " + this);
+            }
+            return new CachedIndexInput(getFullSliceDescription(sliceDescription), file, this.offset + offset, length, false);
+        }
+
+        @Override
+        public CachedIndexInput clone() {
+            CachedIndexInput clone = (CachedIndexInput) super.clone();
+            clone.releaseOnClose = false;
+            return clone;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (releaseOnClose) {
+                releaseOnClose = false;
+                file.decRef();
+            }
+        }
+    }
+}
@@ -596,7 +596,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         failIfCorrupted(directory, shardId);
     }
 
-    private static final void failIfCorrupted(Directory directory, ShardId shardId) throws IOException {
+    static void failIfCorrupted(Directory directory, ShardId shardId) throws IOException {
         final String[] files = directory.listAll();
         List<CorruptIndexException> ex = new ArrayList<>();
         for (String file : files) {
@@ -1549,7 +1549,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         private final DirectoryService directoryService;
 
         public StoreStatsCache(TimeValue refreshInterval, Directory directory, DirectoryService directoryService) throws IOException {
-            super(refreshInterval, new StoreStats(estimateSize(directory), directoryService.throttleTimeInNanos()));
+            super(refreshInterval, newStats(directory, directoryService));
             this.directory = directory;
             this.directoryService = directoryService;
         }
@@ -1557,12 +1557,21 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         @Override
         protected StoreStats refresh() {
             try {
-                return new StoreStats(estimateSize(directory), directoryService.throttleTimeInNanos());
+                return newStats(directory, directoryService);
             } catch (IOException ex) {
                 throw new ElasticsearchException("failed to refresh store stats", ex);
             }
         }
 
+        private static StoreStats newStats(Directory directory, DirectoryService directoryService) throws IOException {
+            final BlockCacheDirectory blockCache = BlockCacheDirectory.unwrap(directory);
+            if (blockCache == null) {
+                return new StoreStats(estimateSize(directory), directoryService.throttleTimeInNanos());
+            }
+            return new StoreStats(estimateSize(directory), directoryService.throttleTimeInNanos(),
+                blockCache.hits(), blockCache.misses(), blockCache.bytesSaved());
+        }
+
         private static long estimateSize(Directory directory) throws IOException {
             long estimatedSize = 0;
             String[] files = directory.listAll();
@@ -38,13 +38,26 @@ public class StoreStats implements Streamable, ToXContent {
 
     private long throttleTimeInNanos;
 
+    private long blockCacheHits;
+
+    private long blockCacheMisses;
+
+    private long blockCacheBytesSaved;
+
     public StoreStats() {
 
     }
 
     public StoreStats(long sizeInBytes, long throttleTimeInNanos) {
+        this(sizeInBytes, throttleTimeInNanos, 0, 0, 0);
+    }
+
+    public StoreStats(long sizeInBytes, long throttleTimeInNanos, long blockCacheHits, long blockCacheMisses, long blockCacheBytesSaved) {
         this.sizeInBytes = sizeInBytes;
         this.throttleTimeInNanos = throttleTimeInNanos;
+        this.blockCacheHits = blockCacheHits;
+        this.blockCacheMisses = blockCacheMisses;
+        this.blockCacheBytesSaved = blockCacheBytesSaved;
     }
 
     public void add(StoreStats stats) {
@@ -53,6 +66,9 @@ public class StoreStats implements Streamable, ToXContent {
         }
         sizeInBytes += stats.sizeInBytes;
         throttleTimeInNanos += stats.throttleTimeInNanos;
+        blockCacheHits += stats.blockCacheHits;
+        blockCacheMisses += stats.blockCacheMisses;
+        blockCacheBytesSaved += stats.blockCacheBytesSaved;
     }
 
 
@@ -80,6 +96,35 @@ public class StoreStats implements Streamable, ToXContent {
         return throttleTime();
     }
 
+    /**
+     * Returns the number of reads that were served from the block cache
+     */
+    public long getBlockCacheHits() {
+        return blockCacheHits;
+    }
+
+    /**
+     * Returns the number of blocks that were read from the underlying storage because they weren't in the block cache
+     */
+    public long getBlockCacheMisses() {
+        return blockCacheMisses;
+    }
+
+    /**
+     * Returns the share of block cache lookups that were hits, or 0 if the block cache wasn't used
+     */
+    public double getBlockCacheHitRate() {
+        final long lookups = blockCacheHits + blockCacheMisses;
+        return lookups == 0 ? 0 : (double) blockCacheHits / lookups;
+    }
+
+    /**
+     * Returns the number of bytes that were read from the block cache instead of the underlying storage
+     */
+    public ByteSizeValue getBlockCacheBytesSaved() {
+        return new ByteSizeValue(blockCacheBytesSaved);
+    }
+
     public static StoreStats readStoreStats(StreamInput in) throws IOException {
         StoreStats store = new StoreStats();
         store.readFrom(in);
@@ -90,12 +135,18 @@ public class StoreStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         sizeInBytes = in.readVLong();
         throttleTimeInNanos = in.readVLong();
+        blockCacheHits = in.readVLong();
+        blockCacheMisses = in.readVLong();
+        blockCacheBytesSaved = in.readVLong();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(sizeInBytes);
         out.writeVLong(throttleTimeInNanos);
+        out.writeVLong(blockCacheHits);
+        out.writeVLong(blockCacheMisses);
+        out.writeVLong(blockCacheBytesSaved);
     }
 
     @Override
@@ -103,6 +154,14 @@ public class StoreStats implements Streamable, ToXContent {
         builder.startObject(Fields.STORE);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, sizeInBytes);
         builder.timeValueField(Fields.THROTTLE_TIME_IN_MILLIS, Fields.THROTTLE_TIME, throttleTime());
+        if (blockCacheHits + blockCacheMisses > 0) {
+            builder.startObject(Fields.BLOCK_CACHE);
+            builder.field(Fields.HITS, blockCacheHits);
+            builder.field(Fields.MISSES, blockCacheMisses);
+            builder.field(Fields.HIT_RATE, getBlockCacheHitRate());
+            builder.byteSizeField(Fields.BYTES_SAVED_IN_BYTES, Fields.BYTES_SAVED, blockCacheBytesSaved);
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -113,5 +172,11 @@ public class StoreStats implements Streamable, ToXContent {
         static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
         static final XContentBuilderString THROTTLE_TIME = new XContentBuilderString("throttle_time");
         static final XContentBuilderString THROTTLE_TIME_IN_MILLIS = new XContentBuilderString("throttle_time_in_millis");
+        static final XContentBuilderString BLOCK_CACHE = new XContentBuilderString("block_cache");
+        static final XContentBuilderString HITS = new XContentBuilderString("hits");
+        static final XContentBuilderString MISSES = new XContentBuilderString("misses");
+        static final XContentBuilderString HIT_RATE = new XContentBuilderString("hit_rate");
+        static final XContentBuilderString BYTES_SAVED = new XContentBuilderString("bytes_saved");
+        static final XContentBuilderString BYTES_SAVED_IN_BYTES = new XContentBuilderString("bytes_saved_in_bytes");
     }
 }
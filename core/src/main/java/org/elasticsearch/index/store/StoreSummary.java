@@ -0,0 +1,173 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.gateway.CorruptStateException;
+import org.elasticsearch.gateway.MetaDataStateFormat;
+import org.elasticsearch.index.shard.ShardPath;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Persists the {@link Store.MetadataSnapshot} of the latest commit of a shard in the shard state directory, next to
+ * the shard state. The summary is written after every commit and allows to list the files and the commit user data
+ * of a shard copy without opening its Lucene index, for instance when the master fetches the shard stores to allocate
+ * unassigned shards after a full cluster restart.
+ * <p>
+ * A summary is only used as long as the latest segments file in the index directory is the one it was written for,
+ * otherwise, or if the index is marked as corrupted, the index has to be read.
+ */
+public final class StoreSummary {
+
+    static final String STORE_SUMMARY_FILE_PREFIX = "store-";
+    private static final String VERSION_KEY = "version";
+    private static final String SNAPSHOT_KEY = "snapshot";
+
+    public static final MetaDataStateFormat<Store.MetadataSnapshot> FORMAT = new MetaDataStateFormat<Store.MetadataSnapshot>(XContentType.SMILE, STORE_SUMMARY_FILE_PREFIX) {
+
+        @Override
+        public void toXContent(XContentBuilder builder, Store.MetadataSnapshot snapshot) throws IOException {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                snapshot.writeTo(out);
+                builder.field(VERSION_KEY, Version.CURRENT.id);
+                builder.field(SNAPSHOT_KEY, out.bytes());
+            }
+        }
+
+        @Override
+        public Store.MetadataSnapshot fromXContent(XContentParser parser) throws IOException {
+            XContentParser.Token token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            int version = -1;
+            byte[] snapshot = null;
+            String currentFieldName = null;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (VERSION_KEY.equals(currentFieldName)) {
+                    version = parser.intValue();
+                } else if (SNAPSHOT_KEY.equals(currentFieldName)) {
+                    snapshot = parser.binaryValue();
+                } else {
+                    throw new CorruptStateException("unexpected field in store summary [" + currentFieldName + "]");
+                }
+            }
+            if (snapshot == null) {
+                throw new CorruptStateException("missing value for [snapshot] in store summary");
+            }
+            if (version != Version.CURRENT.id) {
+                // the snapshot uses the wire format of the version that wrote it, the index needs to be read instead
+                return null;
+            }
+            return new Store.MetadataSnapshot(StreamInput.wrap(snapshot));
+        }
+    };
+
+    private StoreSummary() {
+    }
+
+    /**
+     * Writes the given snapshot of the latest commit of a shard to the given shard state directory.
+     */
+    public static void write(Store.MetadataSnapshot snapshot, Path shardStatePath) throws IOException {
+        final StoreFileMetaData segmentsFile = snapshot.getSegmentsFile();
+        if (segmentsFile == null) {
+            throw new IllegalArgumentException("can't write a store summary without a commit");
+        }
+        FORMAT.write(snapshot, SegmentInfos.generationFromSegmentsFileName(segmentsFile.name()), shardStatePath);
+    }
+
+    /**
+     * Returns the snapshot of the latest commit of the shard in the given path. The persisted summary is used if it
+     * is still current, otherwise the snapshot is read from the index. An empty snapshot is returned if there is no index.
+     *
+     * @throws IOException if the index is marked as corrupted
+     */
+    public static Store.MetadataSnapshot readMetadataSnapshot(ShardPath shardPath, ESLogger logger) throws IOException {
+        final Store.MetadataSnapshot snapshot = loadIfCurrent(shardPath, logger);
+        if (snapshot != null) {
+            logger.trace("{} using store summary of [{}]", shardPath.getShardId(), snapshot.getSegmentsFile().name());
+            return snapshot;
+        }
+        return Store.readMetadataSnapshot(shardPath.resolveIndex(), logger);
+    }
+
+    /**
+     * Returns the persisted summary of the shard in the given path if the segments file it was written for is still
+     * the latest commit of the index, otherwise <code>null</code>. Only the index directory is listed and the footer
+     * of the segments file is read, the index itself isn't opened.
+     *
+     * @throws IOException if the index is marked as corrupted
+     */
+    @Nullable
+    public static Store.MetadataSnapshot loadIfCurrent(ShardPath shardPath, ESLogger logger) throws IOException {
+        final Store.MetadataSnapshot snapshot;
+        try {
+            snapshot = FORMAT.loadLatestState(logger, shardPath.getShardStatePath());
+        } catch (Exception e) {
+            logger.debug("{} failed to load store summary, reading the index instead", e, shardPath.getShardId());
+            return null;
+        }
+        if (snapshot == null || snapshot.getSegmentsFile() == null) {
+            return null;
+        }
+        final StoreFileMetaData segmentsFile = snapshot.getSegmentsFile();
+        try (Directory dir = new SimpleFSDirectory(shardPath.resolveIndex())) {
+            Store.failIfCorrupted(dir, shardPath.getShardId());
+            if (segmentsFile.name().equals(SegmentInfos.getLastCommitSegmentsFileName(dir.listAll())) == false) {
+                logger.trace("{} store summary of [{}] is outdated", shardPath.getShardId(), segmentsFile.name());
+                return null;
+            }
+            try (IndexInput input = dir.openInput(segmentsFile.name(), IOContext.READONCE)) {
+                if (input.length() != segmentsFile.length()
+                        || Store.digestToString(CodecUtil.retrieveChecksum(input)).equals(segmentsFile.checksum()) == false) {
+                    logger.trace("{} store summary doesn't match [{}]", shardPath.getShardId(), segmentsFile.name());
+                    return null;
+                }
+            } catch (CorruptIndexException e) {
+                // reading the index reports the corruption
+                return null;
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return null;
+        }
+        return snapshot;
+    }
+}
@@ -30,6 +30,8 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -57,7 +59,9 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -116,6 +120,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     // this is a concurrent set and is not protected by any of the locks. The main reason
     // is that is being accessed by two separate classes (additions & reading are done by Translog, remove by View when closed)
     private final Set<View> outstandingViews = ConcurrentCollections.newConcurrentSet();
+    // the generation that was current when a commit with a given sync id was made
+    private final Map<String, Long> syncMarkers = ConcurrentCollections.newConcurrentMap();
+    // the time at which a generation was rolled into a reader, used for retention. guarded by the write lock
+    private final Map<Long, Long> rolledGenerationNanos = new HashMap<>();
     private BigArrays bigArrays;
     protected final ReleasableLock readLock;
     protected final ReleasableLock writeLock;
@@ -419,7 +427,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
             final long start = out.position();
             out.skip(RamUsageEstimator.NUM_BYTES_INT);
-            writeOperationNoSize(checksumStreamOutput, operation);
+            writeOperationNoSize(checksumStreamOutput, operation, config.isCompress());
             final long end = out.position();
             final int operationSize = (int) (end - RamUsageEstimator.NUM_BYTES_INT - start);
             out.seek(start);
@@ -768,6 +776,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     public static class Index implements Operation {
         public static final int SERIALIZATION_FORMAT = 6;
+        /** same as {@link #SERIALIZATION_FORMAT} but the source is compressed, only written if translog compression is enabled */
+        public static final int COMPRESSED_SOURCE_FORMAT = 7;
+        /** sources smaller than this are never compressed since the compression header would outweigh the savings */
+        static final int COMPRESS_SOURCE_MIN_BYTES = 512;
 
         private String id;
         private String type;
@@ -857,6 +869,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             id = in.readString();
             type = in.readString();
             source = in.readBytesReference();
+            if (version >= COMPRESSED_SOURCE_FORMAT) {
+                source = CompressorFactory.uncompress(source);
+            }
             try {
                 if (version >= 1) {
                     if (in.readBoolean()) {
@@ -889,10 +904,29 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
-            out.writeVInt(SERIALIZATION_FORMAT);
+            writeTo(out, false);
+        }
+
+        /**
+         * Writes this operation. If <code>compressSource</code> is <code>true</code> and the source is large enough, the
+         * source is compressed with the default compressor and the operation is written in {@link #COMPRESSED_SOURCE_FORMAT}.
+         * Otherwise the operation is written in {@link #SERIALIZATION_FORMAT} such that nodes that don't understand compressed
+         * sources can still read it.
+         */
+        void writeTo(StreamOutput out, boolean compressSource) throws IOException {
+            final boolean compress = compressSource && source.length() >= COMPRESS_SOURCE_MIN_BYTES;
+            out.writeVInt(compress ? COMPRESSED_SOURCE_FORMAT : SERIALIZATION_FORMAT);
             out.writeString(id);
             out.writeString(type);
-            out.writeBytesReference(source);
+            if (compress) {
+                final BytesStreamOutput bytes = new BytesStreamOutput();
+                try (StreamOutput compressed = CompressorFactory.defaultCompressor().streamOutput(bytes)) {
+                    source.writeTo(compressed);
+                }
+                out.writeBytesReference(bytes.bytes());
+            } else {
+                out.writeBytesReference(source);
+            }
             if (routing == null) {
                 out.writeBoolean(false);
             } else {
@@ -1164,12 +1198,24 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op) throws IOException {
+        writeOperationNoSize(out, op, false);
+    }
+
+    /**
+     * Writes the given operation without its size. If <code>compressSource</code> is <code>true</code> the source of
+     * {@link Index} operations is compressed, see {@link Index#writeTo(StreamOutput, boolean)}.
+     */
+    static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op, boolean compressSource) throws IOException {
         // This BufferedChecksumStreamOutput remains unclosed on purpose,
         // because closing it closes the underlying stream, which we don't
         // want to do here.
         out.resetDigest();
         out.writeByte(op.opType().id());
-        op.writeTo(out);
+        if (compressSource && op instanceof Index) {
+            ((Index) op).writeTo(out, true);
+        } else {
+            op.writeTo(out);
+        }
         long checksum = out.getChecksum();
         out.writeInt((int) checksum);
     }
@@ -1202,6 +1248,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             currentCommittingGeneration = current.getGeneration();
             TranslogReader currentCommittingTranslog = current.closeIntoReader();
             readers.add(currentCommittingTranslog);
+            rolledGenerationNanos.put(currentCommittingTranslog.getGeneration(), System.nanoTime());
             Path checkpoint = location.resolve(CHECKPOINT_FILE_NAME);
             assert Checkpoint.read(checkpoint).generation == currentCommittingTranslog.getGeneration();
             Path commitCheckpoint = location.resolve(getCommitCheckpointFileName(currentCommittingTranslog.getGeneration()));
@@ -1242,6 +1289,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             }
             long minReferencedGen = outstandingViews.stream().mapToLong(View::minTranslogGeneration).min().orElse(Long.MAX_VALUE);
             minReferencedGen = Math.min(lastCommittedTranslogFileGeneration, minReferencedGen);
+            minReferencedGen = Math.min(minRetainedGeneration(), minReferencedGen);
             final long finalMinReferencedGen = minReferencedGen;
             List<TranslogReader> unreferenced = readers.stream().filter(r -> r.getGeneration() < finalMinReferencedGen).collect(Collectors.toList());
             for (final TranslogReader unreferencedReader : unreferenced) {
@@ -1250,8 +1298,62 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 IOUtils.closeWhileHandlingException(unreferencedReader);
                 IOUtils.deleteFilesIgnoringExceptions(translogPath,
                         translogPath.resolveSibling(getCommitCheckpointFileName(unreferencedReader.getGeneration())));
+                rolledGenerationNanos.remove(unreferencedReader.getGeneration());
             }
             readers.removeAll(unreferenced);
+            final long minGeneration = readers.stream().mapToLong(TranslogReader::getGeneration).min().orElse(current.getGeneration());
+            syncMarkers.values().removeIf(generation -> generation < minGeneration);
+        }
+    }
+
+    /**
+     * Returns the smallest generation that was rolled less than the retention age ago, or {@link Long#MAX_VALUE} if no
+     * generation needs to be retained. Must be called under the write lock.
+     */
+    private long minRetainedGeneration() {
+        final long retentionNanos = config.getIndexSettings().getTranslogRetentionAge().nanos();
+        if (retentionNanos <= 0) {
+            return Long.MAX_VALUE;
+        }
+        final long now = System.nanoTime();
+        long minGeneration = Long.MAX_VALUE;
+        for (TranslogReader reader : readers) {
+            Long rolledNanos = rolledGenerationNanos.get(reader.getGeneration());
+            if (rolledNanos != null && now - rolledNanos < retentionNanos) {
+                minGeneration = Math.min(minGeneration, reader.getGeneration());
+            }
+        }
+        return minGeneration;
+    }
+
+    /**
+     * Records that the commit with the given sync id was made while the given generation was current. All operations
+     * after that commit are in this or later generations.
+     */
+    public void addSyncMarker(String syncId, long generation) {
+        syncMarkers.put(syncId, generation);
+    }
+
+    /**
+     * Returns a view that starts at the generation that was current when the commit with the given sync id was made,
+     * or <code>null</code> if that generation is not retained anymore.
+     */
+    public Translog.View newViewFromSyncMarker(String syncId) {
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            final Long generation = syncMarkers.get(syncId);
+            if (generation == null) {
+                return null;
+            }
+            // readers are only removed under the write lock, so the generation can't go away before the view is registered
+            final boolean retained = generation >= current.getGeneration()
+                || readers.stream().anyMatch(reader -> reader.getGeneration() == generation);
+            if (retained == false) {
+                return null;
+            }
+            View view = new View(generation);
+            outstandingViews.add(view);
+            return view;
         }
     }
 
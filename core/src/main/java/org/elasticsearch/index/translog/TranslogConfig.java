@@ -72,6 +72,13 @@ public final class TranslogConfig {
         return indexSettings.getTranslogSyncInterval().millis() == 0;
     }
 
+    /**
+     * Returns <code>true</code> iff document sources should be compressed when written to the translog
+     */
+    public boolean isCompress() {
+        return indexSettings.isTranslogCompress();
+    }
+
     /**
      * Returns the index indexSettings
      */
@@ -41,6 +41,7 @@ import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.env.ShardLock;
 import org.elasticsearch.gateway.MetaDataStateFormat;
@@ -70,6 +71,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -113,8 +115,21 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     protected void doStart() {
     }
 
+    /**
+     * Returns the location of the local caches of this node. Nodes that share <tt>path.cache</tt> keep their caches in
+     * the same node ordinal directory they use in their data paths.
+     */
+    @Nullable
+    private static Path nodeCachePath(Environment environment, NodeEnvironment nodeEnv) {
+        final Path cachePath = environment.cacheFile();
+        if (cachePath == null || nodeEnv.hasNodeFile() == false) {
+            return cachePath;
+        }
+        return cachePath.resolve(NodeEnvironment.NODES_FOLDER).resolve(Integer.toString(nodeEnv.localNodeId()));
+    }
+
     @Inject
-    public IndicesService(Settings settings, PluginsService pluginsService, NodeEnvironment nodeEnv,
+    public IndicesService(Settings settings, Environment environment, PluginsService pluginsService, NodeEnvironment nodeEnv,
                           ClusterSettings clusterSettings, AnalysisRegistry analysisRegistry,
                           IndicesQueriesRegistry indicesQueriesRegistry, IndexNameExpressionResolver indexNameExpressionResolver,
                           ClusterService clusterService, MapperRegistry mapperRegistry, ThreadPool threadPool, IndexScopedSettings indexScopedSettings) {
@@ -122,7 +137,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         this.pluginsService = pluginsService;
         this.nodeEnv = nodeEnv;
         this.shardsClosedTimeout = settings.getAsTime(INDICES_SHARDS_CLOSED_TIMEOUT, new TimeValue(1, TimeUnit.DAYS));
-        this.indexStoreConfig = new IndexStoreConfig(settings);
+        this.indexStoreConfig = new IndexStoreConfig(settings, nodeCachePath(environment, nodeEnv));
         this.analysisRegistry = analysisRegistry;
         this.indicesQueriesRegistry = indicesQueriesRegistry;
         this.clusterService = clusterService;
@@ -21,6 +21,7 @@ package org.elasticsearch.indices.cluster;
 
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
@@ -31,6 +32,7 @@ import org.elasticsearch.cluster.action.shard.NoOpShardStateActionListener;
 import org.elasticsearch.cluster.action.shard.ShardStateAction;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
@@ -45,10 +47,13 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.Callback;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.IndexShardAlreadyExistsException;
@@ -61,6 +66,7 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
+import org.elasticsearch.index.store.FsDirectoryService;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.flush.SyncedFlushService;
 import org.elasticsearch.indices.recovery.RecoveryFailedException;
@@ -72,17 +78,29 @@ import org.elasticsearch.search.SearchService;
 import org.elasticsearch.snapshots.RestoreService;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 /**
  *
  */
 public class IndicesClusterStateService extends AbstractLifecycleComponent<IndicesClusterStateService> implements ClusterStateListener {
 
+    /**
+     * The maximum number of indices whose mappings are merged concurrently while applying a cluster state
+     */
+    public static final Setting<Integer> APPLY_CONCURRENCY_SETTING = new Setting<>("indices.cluster.apply_concurrency",
+            (s) -> Integer.toString(Math.min(4, EsExecutors.boundedNumberOfProcessors(s))),
+            (s) -> Setting.parseInt(s, 1, "indices.cluster.apply_concurrency"), false, Setting.Scope.CLUSTER);
+
     private final IndicesService indicesService;
     private final ClusterService clusterService;
     private final ThreadPool threadPool;
@@ -118,6 +136,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
     private final FailedShardHandler failedShardHandler = new FailedShardHandler();
 
     private final boolean sendRefreshMapping;
+    private final int applyConcurrency;
     private final List<IndexEventListener> buildInIndexListener;
 
     @Inject
@@ -141,6 +160,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         this.restoreService = restoreService;
         this.repositoriesService = repositoriesService;
         this.sendRefreshMapping = this.settings.getAsBoolean("indices.cluster.send_refresh_mapping", true);
+        this.applyConcurrency = APPLY_CONCURRENCY_SETTING.get(settings);
         this.nodeServicesProvider = nodeServicesProvider;
     }
 
@@ -355,45 +375,110 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
 
     private void applyMappings(ClusterChangedEvent event) {
         // go over and update mappings
+        final List<IndexMetaData> indices = new ArrayList<>();
+        final List<IndexService> indexServices = new ArrayList<>();
         for (IndexMetaData indexMetaData : event.state().metaData()) {
             if (!indicesService.hasIndex(indexMetaData.getIndex())) {
                 // we only create / update here
                 continue;
             }
-            boolean requireRefresh = false;
-            String index = indexMetaData.getIndex();
-            IndexService indexService = indicesService.indexService(index);
+            IndexService indexService = indicesService.indexService(indexMetaData.getIndex());
             if (indexService == null) {
                 // got deleted on us, ignore (closing the node)
-                return;
+                break;
             }
+            indices.add(indexMetaData);
+            indexServices.add(indexService);
+        }
+
+        // merging mappings is independent per index, so it is done concurrently. Refresh requests and shard failures
+        // are only issued once all merges are done, from this thread and in index order, just as before
+        final boolean[] requireRefresh = new boolean[indices.size()];
+        final Throwable[] failures = new Throwable[indices.size()];
+        runConcurrently(indices.size(), applyConcurrency, threadPool.generic(), i -> {
             try {
-                MapperService mapperService = indexService.mapperService();
-                // go over and add the relevant mappings (or update them)
-                for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
-                    MappingMetaData mappingMd = cursor.value;
-                    String mappingType = mappingMd.type();
-                    CompressedXContent mappingSource = mappingMd.source();
-                    requireRefresh |= processMapping(index, mapperService, mappingType, mappingSource);
-                }
-                if (requireRefresh && sendRefreshMapping) {
-                    nodeMappingRefreshAction.nodeMappingRefresh(event.state(),
-                            new NodeMappingRefreshAction.NodeMappingRefreshRequest(index, indexMetaData.getIndexUUID(),
-                                    event.state().nodes().localNodeId())
-                    );
-                }
+                requireRefresh[i] = processMappings(indices.get(i), indexServices.get(i).mapperService());
             } catch (Throwable t) {
+                failures[i] = t;
+            }
+        });
+
+        for (int i = 0; i < indices.size(); i++) {
+            IndexMetaData indexMetaData = indices.get(i);
+            IndexService indexService = indexServices.get(i);
+            if (failures[i] != null) {
                 // if we failed the mappings anywhere, we need to fail the shards for this index, note, we safeguard
                 // by creating the processing the mappings on the master, or on the node the mapping was introduced on,
                 // so this failure typically means wrong node level configuration or something similar
                 for (IndexShard indexShard : indexService) {
                     ShardRouting shardRouting = indexShard.routingEntry();
-                    failAndRemoveShard(shardRouting, indexService.indexUUID(), indexService, true, "failed to update mappings", t);
+                    failAndRemoveShard(shardRouting, indexService.indexUUID(), indexService, true, "failed to update mappings", failures[i]);
                 }
+            } else if (requireRefresh[i] && sendRefreshMapping) {
+                nodeMappingRefreshAction.nodeMappingRefresh(event.state(),
+                        new NodeMappingRefreshAction.NodeMappingRefreshRequest(indexMetaData.getIndex(), indexMetaData.getIndexUUID(),
+                                event.state().nodes().localNodeId())
+                );
             }
         }
     }
 
+    /**
+     * Runs the given task once for every number in <code>[0, count)</code>, on up to <code>concurrency</code> threads, and
+     * returns once all of them are done. The calling thread takes part, so all tasks are run even if the executor never gets
+     * to the extra workers, it then only waits for the tasks that were picked up by workers that actually started.
+     */
+    // pkg private for testing
+    static void runConcurrently(int count, int concurrency, Executor executor, IntConsumer task) {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(count);
+        final Runnable worker = () -> {
+            for (int i = nextIndex.getAndIncrement(); i < count; i = nextIndex.getAndIncrement()) {
+                try {
+                    task.accept(i);
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+        final int extraWorkers = Math.min(concurrency, count) - 1;
+        for (int i = 0; i < extraWorkers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread does the work of this worker
+                break;
+            }
+        }
+        worker.run();
+        // all tasks have been picked up, we only wait for the ones still running on other workers
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                // the results of the running tasks are needed before we can go on, they are bounded by the workers
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean processMappings(IndexMetaData indexMetaData, MapperService mapperService) throws Throwable {
+        boolean requireRefresh = false;
+        // go over and add the relevant mappings (or update them)
+        for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
+            MappingMetaData mappingMd = cursor.value;
+            String mappingType = mappingMd.type();
+            CompressedXContent mappingSource = mappingMd.source();
+            requireRefresh |= processMapping(indexMetaData.getIndex(), mapperService, mappingType, mappingSource);
+        }
+        return requireRefresh;
+    }
+
     private boolean processMapping(String index, MapperService mapperService, String mappingType, CompressedXContent mappingSource) throws Throwable {
         // refresh mapping can happen when the parsing/merging of the mapping from the metadata doesn't result in the same
         // mapping, in this case, we send to the master to refresh its own version of the mappings (to conform with the
@@ -644,6 +729,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
             indexShard.markAsRecovering("from store", recoveryState); // mark the shard as recovering on the cluster state thread
             threadPool.generic().execute(() -> {
                 try {
+                    resumeLazyRestore(indexShard, indexMetaData);
                     if (indexShard.recoverFromStore(nodes.localNode())) {
                         shardStateAction.shardStarted(shardRouting, indexMetaData.getIndexUUID(), "after recovery from store", SHARD_STATE_ACTION_LISTENER);
                     }
@@ -680,6 +766,22 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         }
     }
 
+    /**
+     * Registers the files that a shard restored lazily didn't fetch before it was closed, so that they are read from
+     * the snapshot the index was restored from when the shard is recovered from its local store
+     */
+    private void resumeLazyRestore(IndexShard indexShard, IndexMetaData indexMetaData) {
+        final Settings indexSettings = indexMetaData.getSettings();
+        final String repository = FsDirectoryService.INDEX_LAZY_RESTORE_REPOSITORY_SETTING.get(indexSettings);
+        if (FsDirectoryService.INDEX_LAZY_RESTORE_SETTING.get(indexSettings) == false || repository.isEmpty()) {
+            return;
+        }
+        final SnapshotId snapshotId = new SnapshotId(repository, FsDirectoryService.INDEX_LAZY_RESTORE_SNAPSHOT_SETTING.get(indexSettings));
+        final ShardId snapshotShardId = new ShardId(FsDirectoryService.INDEX_LAZY_RESTORE_INDEX_SETTING.get(indexSettings), indexShard.shardId().id());
+        final Version version = repositoriesService.repository(repository).readSnapshot(snapshotId).version();
+        repositoriesService.indexShardRepository(repository).resumeLazyRestore(snapshotId, version, indexShard.shardId(), snapshotShardId);
+    }
+
     /**
      * Finds the routing source node for peer recovery, return null if its not found. Note, this method expects the shard
      * routing to *require* peer recovery, use {@link #isPeerRecovery(org.elasticsearch.cluster.routing.ShardRouting)} to
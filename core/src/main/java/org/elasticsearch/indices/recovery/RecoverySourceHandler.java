@@ -47,18 +47,24 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.RemoteTransportException;
+import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
@@ -85,6 +91,12 @@ public class RecoverySourceHandler {
     private final RecoverySettings recoverySettings;
     private final TransportService transportService;
     private final int chunkSizeInBytes;
+    // bounds the number of file chunks that were sent but not yet acknowledged by the target
+    private final int maxConcurrentFileChunks;
+    private final Semaphore fileChunkPermits;
+    private final AtomicReference<FileChunkFailure> fileChunkFailure = new AtomicReference<>();
+    // set if the translog since the target's synced flush is retained, the target then only needs to replay it
+    private boolean recoverFromRetainedTranslog = false;
 
     protected final RecoveryResponse response;
 
@@ -114,6 +126,8 @@ public class RecoverySourceHandler {
         this.indexName = this.request.shardId().index().name();
         this.shardId = this.request.shardId().id();
         this.chunkSizeInBytes = recoverySettings.getChunkSize().bytesAsInt();
+        this.maxConcurrentFileChunks = recoverySettings.maxConcurrentFileChunks();
+        this.fileChunkPermits = new Semaphore(maxConcurrentFileChunks);
         this.response = new RecoveryResponse();
     }
 
@@ -121,7 +135,7 @@ public class RecoverySourceHandler {
      * performs the recovery from the local engine to the target
      */
     public RecoveryResponse recoverToTarget() throws IOException {
-        try (Translog.View translogView = shard.acquireTranslogView()) {
+        try (Translog.View translogView = acquireTranslogView()) {
             logger.trace("captured translog id [{}] for recovery", translogView.minTranslogGeneration());
             final IndexCommit phase1Snapshot;
             try {
@@ -155,6 +169,22 @@ public class RecoverySourceHandler {
         return response;
     }
 
+    /**
+     * Acquires a view of the translog since the target's synced flush if it's still retained, otherwise a view of the
+     * translog since the last commit.
+     */
+    private Translog.View acquireTranslogView() {
+        final String recoveryTargetSyncId = request.metadataSnapshot().getSyncId();
+        if (recoveryTargetSyncId != null) {
+            final Translog.View retainedView = shard.acquireTranslogViewForSyncId(recoveryTargetSyncId);
+            if (retainedView != null) {
+                recoverFromRetainedTranslog = true;
+                return retainedView;
+            }
+        }
+        return shard.acquireTranslogView();
+    }
+
     /**
      * Perform phase1 of the recovery operations. Once this {@link IndexCommit}
      * snapshot has been performed no commit operations (files being fsync'd)
@@ -206,6 +236,11 @@ public class RecoverySourceHandler {
                 // so we don't return here
                 logger.trace("[{}][{}] skipping [phase1] to {} - identical sync id [{}] found on both source and target", indexName, shardId,
                         request.targetNode(), recoverySourceSyncId);
+            } else if (recoverFromRetainedTranslog) {
+                // the target's files are identical to the ones we had at its synced flush and all operations since
+                // then are in the translog view, which phase2 replays on top of them
+                logger.trace("[{}][{}] skipping [phase1] to {} - translog since sync id [{}] is retained", indexName, shardId,
+                        request.targetNode(), recoveryTargetSyncId);
             } else {
                 final Store.RecoveryDiff diff = recoverySourceMetadata.recoveryDiff(request.metadataSnapshot());
                 for (StoreFileMetaData md : diff.identical) {
@@ -538,7 +573,8 @@ public class RecoverySourceHandler {
 
         @Override
         public final void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the chunk is sent asynchronously, so it must not share the buffer that the caller reuses for the next chunk
+            sendNextChunk(position, new BytesArray(Arrays.copyOfRange(b, offset, offset + length)), md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
@@ -550,43 +586,96 @@ public class RecoverySourceHandler {
                 .withTimeout(recoverySettings.internalActionTimeout())
                 .build();
             cancellableThreads.execute(() -> {
-                // Pause using the rate limiter, if desired, to throttle the recovery
-                final long throttleTimeInNanos;
-                // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
-                final RateLimiter rl = recoverySettings.rateLimiter();
-                if (rl != null) {
-                    long bytes = bytesSinceLastPause.addAndGet(content.length());
-                    if (bytes > rl.getMinPauseCheckBytes()) {
-                        // Time to pause
-                        bytesSinceLastPause.addAndGet(-bytes);
-                        try {
-                            throttleTimeInNanos = rl.pause(bytes);
-                            shard.recoveryStats().addThrottleTime(throttleTimeInNanos);
-                        } catch (IOException e) {
-                            throw new ElasticsearchException("failed to pause recovery", e);
+                // wait until the target acknowledged enough chunks to stay within the window of in-flight chunks
+                fileChunkPermits.acquire();
+                boolean sent = false;
+                try {
+                    // Pause using the rate limiter, if desired, to throttle the recovery
+                    final long throttleTimeInNanos;
+                    // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
+                    final RateLimiter rl = recoverySettings.rateLimiter();
+                    if (rl != null) {
+                        long bytes = bytesSinceLastPause.addAndGet(content.length());
+                        if (bytes > rl.getMinPauseCheckBytes()) {
+                            // Time to pause
+                            bytesSinceLastPause.addAndGet(-bytes);
+                            try {
+                                throttleTimeInNanos = rl.pause(bytes);
+                                shard.recoveryStats().addThrottleTime(throttleTimeInNanos);
+                            } catch (IOException e) {
+                                throw new ElasticsearchException("failed to pause recovery", e);
+                            }
+                        } else {
+                            throttleTimeInNanos = 0;
                         }
                     } else {
                         throttleTimeInNanos = 0;
                     }
-                } else {
-                    throttleTimeInNanos = 0;
+                    // Actually send the file chunk to the target node, the permit is released once it is acknowledged
+                    transportService.sendRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK,
+                            new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), md, position, content, lastChunk,
+                                    translogView.totalOperations(),
+                                    /* we send totalOperations with every request since we collect stats on the target and that way we can
+                                     * see how many translog ops we accumulate while copying files across the network. A future optimization
+                                     * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
+                                     */
+                                    throttleTimeInNanos), chunkSendOptions, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                                @Override
+                                public void handleResponse(TransportResponse.Empty response) {
+                                    fileChunkPermits.release();
+                                }
+
+                                @Override
+                                public void handleException(TransportException exp) {
+                                    fileChunkFailure.compareAndSet(null, new FileChunkFailure(md, exp));
+                                    fileChunkPermits.release();
+                                }
+                            });
+                    sent = true;
+                } finally {
+                    if (sent == false) {
+                        fileChunkPermits.release();
+                    }
                 }
-                // Actually send the file chunk to the target node, waiting for it to complete
-                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK,
-                        new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), md, position, content, lastChunk,
-                                translogView.totalOperations(),
-                                /* we send totalOperations with every request since we collect stats on the target and that way we can
-                                 * see how many translog ops we accumulate while copying files across the network. A future optimization
-                                 * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
-                                 */
-                                throttleTimeInNanos), chunkSendOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
             });
+            throwIfFileChunkFailed();
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
         }
     }
 
+    /**
+     * Waits until the target acknowledged all file chunks that are still in flight.
+     */
+    private void waitForInFlightFileChunks() {
+        cancellableThreads.execute(() -> {
+            fileChunkPermits.acquire(maxConcurrentFileChunks);
+            fileChunkPermits.release(maxConcurrentFileChunks);
+        });
+        throwIfFileChunkFailed();
+    }
+
+    private void throwIfFileChunkFailed() {
+        FileChunkFailure failure = fileChunkFailure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The failure of a file chunk that was sent asynchronously, together with the file the chunk belongs to
+     * since the failure may only be noticed while sending a later file.
+     */
+    static final class FileChunkFailure extends RuntimeException {
+        private final StoreFileMetaData md;
+
+        FileChunkFailure(StoreFileMetaData md, Throwable cause) {
+            super(cause);
+            this.md = md;
+        }
+    }
+
     void sendFiles(Store store, StoreFileMetaData[] files, Function<StoreFileMetaData, OutputStream> outputStreamFactory) throws Throwable {
         store.incRef();
         try {
@@ -597,30 +686,41 @@ public class RecoverySourceHandler {
                     // it's fine that we are only having the indexInput in the try/with block. The copy methods handles
                     // exceptions during close correctly and doesn't hide the original exception.
                     Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
+                } catch (FileChunkFailure failure) {
+                    handleErrorOnSendFiles(store, failure.getCause(), failure.md);
                 } catch (Throwable t) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but checksums are ok", null);
-                            exception.addSuppressed(t);
-                            logger.warn("{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                corruptIndexException, shardId, request.targetNode(), md);
-                            throw exception;
-                        }
-                    } else {
-                        throw t;
-                    }
+                    handleErrorOnSendFiles(store, t, md);
                 }
             }
+            try {
+                waitForInFlightFileChunks();
+            } catch (FileChunkFailure failure) {
+                handleErrorOnSendFiles(store, failure.getCause(), failure.md);
+            }
         } finally {
             store.decRef();
         }
     }
 
+    private void handleErrorOnSendFiles(Store store, Throwable t, StoreFileMetaData md) throws Throwable {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but checksums are ok", null);
+                exception.addSuppressed(t);
+                logger.warn("{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                    corruptIndexException, shardId, request.targetNode(), md);
+                throw exception;
+            }
+        } else {
+            throw t;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
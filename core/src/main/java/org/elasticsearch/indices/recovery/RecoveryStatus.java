@@ -24,6 +24,7 @@ import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.util.CancellableThreads;
@@ -35,9 +36,13 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -66,6 +71,7 @@ public class RecoveryStatus extends AbstractRefCounted {
     private final AtomicBoolean finished = new AtomicBoolean();
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, FileChunkWriter> fileChunkWriters = ConcurrentCollections.newConcurrentMap();
     private final Store.LegacyChecksums legacyChecksums = new Store.LegacyChecksums();
 
     private final CancellableThreads cancellableThreads = new CancellableThreads();
@@ -237,6 +243,81 @@ public class RecoveryStatus extends AbstractRefCounted {
         return indexOutput;
     }
 
+    /**
+     * Writes a chunk of a file that is being recovered. The source may have several chunks in flight, so chunks can
+     * arrive out of order. A chunk that is ahead of the current position of its file is held back until all chunks
+     * before it have been written.
+     */
+    public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk) throws IOException {
+        ensureRefCount();
+        FileChunkWriter writer = fileChunkWriters.computeIfAbsent(fileMetaData.name(), name -> new FileChunkWriter());
+        writer.writeChunk(new FileChunk(fileMetaData, position, content, lastChunk));
+    }
+
+    private void innerWriteFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk) throws IOException {
+        final String name = fileMetaData.name();
+        IndexOutput indexOutput;
+        if (position == 0) {
+            indexOutput = openAndPutIndexOutput(name, fileMetaData, store);
+        } else {
+            indexOutput = getOpenIndexOutput(name);
+        }
+        if (!content.hasArray()) {
+            content = content.toBytesArray();
+        }
+        indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+        state().getIndex().addRecoveredBytesToFile(name, content.length());
+        if (indexOutput.getFilePointer() >= fileMetaData.length() || lastChunk) {
+            try {
+                Store.verify(indexOutput);
+            } finally {
+                // we are done
+                indexOutput.close();
+            }
+            // write the checksum
+            legacyChecksums().add(fileMetaData);
+            final String temporaryFileName = getTempNameForFile(name);
+            assert Arrays.asList(store.directory().listAll()).contains(temporaryFileName);
+            store.directory().sync(Collections.singleton(temporaryFileName));
+            IndexOutput remove = removeOpenIndexOutputs(name);
+            assert remove == null || remove == indexOutput; // remove maybe null if we got finished
+        }
+    }
+
+    private static final class FileChunk {
+        final StoreFileMetaData md;
+        final long position;
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(StoreFileMetaData md, long position, BytesReference content, boolean lastChunk) {
+            this.md = md;
+            this.position = position;
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+
+    private final class FileChunkWriter {
+        // chunks that arrived before the chunks preceding them, ordered by position
+        private final PriorityQueue<FileChunk> pendingChunks = new PriorityQueue<>(Comparator.comparingLong(chunk -> chunk.position));
+        private long lastPosition = 0;
+
+        synchronized void writeChunk(FileChunk newChunk) throws IOException {
+            pendingChunks.add(newChunk);
+            FileChunk chunk;
+            while ((chunk = pendingChunks.peek()) != null && chunk.position == lastPosition) {
+                pendingChunks.poll();
+                innerWriteFileChunk(chunk.md, chunk.position, chunk.content, chunk.lastChunk);
+                lastPosition += chunk.content.length();
+                if (chunk.lastChunk) {
+                    assert pendingChunks.isEmpty() : "received chunks after the last chunk of [" + chunk.md.name() + "]";
+                    fileChunkWriters.remove(chunk.md.name());
+                }
+            }
+        }
+    }
+
     public void resetRecovery() throws IOException {
         cleanOpenFiles();
         indexShard().performRecoveryRestart();
@@ -254,6 +335,7 @@ public class RecoveryStatus extends AbstractRefCounted {
     }
 
     protected void cleanOpenFiles() {
+        fileChunkWriters.clear();
         // clean open index outputs
         Iterator<Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -31,6 +31,7 @@ import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStore;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
@@ -62,12 +63,15 @@ import org.elasticsearch.snapshots.SnapshotException;
 import org.elasticsearch.snapshots.SnapshotMissingException;
 import org.elasticsearch.snapshots.SnapshotShardFailure;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -82,6 +86,8 @@ import java.util.Map;
  * {@code
  *   STORE_ROOT
  *   |- index             - list of all snapshot name as JSON array
+ *   |- index-5           - generation 5 of the repository index, lists all snapshots with their descriptions
+ *   |- index.latest      - the generation of the current repository index
  *   |- snapshot-20131010 - JSON serialized Snapshot for snapshot "20131010"
  *   |- meta-20131010.dat - JSON serialized MetaData for snapshot "20131010" (includes only global metadata)
  *   |- snapshot-20131011 - JSON serialized Snapshot for snapshot "20131011"
@@ -131,6 +137,14 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
     private static final String SNAPSHOTS_FILE = "index";
 
+    private static final String REPOSITORY_INDEX_PREFIX = "index-";
+
+    private static final String REPOSITORY_INDEX_NAME_FORMAT = REPOSITORY_INDEX_PREFIX + "%s";
+
+    private static final String REPOSITORY_INDEX_CODEC = "repository-index";
+
+    private static final String REPOSITORY_INDEX_LATEST = "index.latest";
+
     private static final String TESTS_FILE = "tests-";
 
     private static final String METADATA_NAME_FORMAT = "meta-%s.dat";
@@ -168,8 +182,17 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
     private LegacyBlobStoreFormat<Snapshot> snapshotLegacyFormat;
 
+    private ChecksumBlobStoreFormat<BlobStoreRepositoryIndex> repositoryIndexFormat;
+
+    // the last repository index that was read or written together with its generation, -1 if it was built by listing
+    private volatile Tuple<Long, BlobStoreRepositoryIndex> latestIndex;
+
     private final boolean readOnly;
 
+    private final int maxConcurrentFileTransfers;
+
+    private final boolean deduplicate;
+
     /**
      * Constructs new BlobStoreRepository
      *
@@ -184,6 +207,12 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         snapshotRateLimiter = getRateLimiter(repositorySettings, "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(repositorySettings, "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         readOnly = repositorySettings.settings().getAsBoolean("readonly", false);
+        maxConcurrentFileTransfers = repositorySettings.settings().getAsInt("max_concurrent_file_transfers",
+                settings.getAsInt("max_concurrent_file_transfers", 1));
+        if (maxConcurrentFileTransfers < 1) {
+            throw new RepositoryException(repositoryName, "max_concurrent_file_transfers must be at least 1 but was [" + maxConcurrentFileTransfers + "]");
+        }
+        deduplicate = repositorySettings.settings().getAsBoolean("deduplicate", false);
     }
 
     /**
@@ -192,7 +221,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
     @Override
     protected void doStart() {
         this.snapshotsBlobContainer = blobStore().blobContainer(basePath());
-        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress());
+        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress(),
+                maxConcurrentFileTransfers, deduplicate);
 
         ParseFieldMatcher parseFieldMatcher = new ParseFieldMatcher(settings);
         globalMetaDataFormat = new ChecksumBlobStoreFormat<>(METADATA_CODEC, METADATA_NAME_FORMAT, MetaData.PROTO, parseFieldMatcher, isCompress());
@@ -203,6 +233,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
         snapshotFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_CODEC, SNAPSHOT_NAME_FORMAT, Snapshot.PROTO, parseFieldMatcher, isCompress());
         snapshotLegacyFormat = new LegacyBlobStoreFormat<>(LEGACY_SNAPSHOT_NAME_FORMAT, Snapshot.PROTO, parseFieldMatcher);
+
+        repositoryIndexFormat = new ChecksumBlobStoreFormat<>(REPOSITORY_INDEX_CODEC, REPOSITORY_INDEX_NAME_FORMAT, BlobStoreRepositoryIndex.PROTO, parseFieldMatcher, isCompress());
     }
 
     /**
@@ -325,17 +357,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
                 globalMetaDataFormat.delete(snapshotsBlobContainer, snapshotId.getSnapshot());
             }
             // Delete snapshot from the snapshot list
-            List<SnapshotId> snapshotIds = snapshots();
-            if (snapshotIds.contains(snapshotId)) {
-                List<SnapshotId> builder = new ArrayList<>();
-                for (SnapshotId id : snapshotIds) {
-                    if (!snapshotId.equals(id)) {
-                        builder.add(id);
-                    }
-                }
-                snapshotIds = Collections.unmodifiableList(builder);
-            }
-            writeSnapshotList(snapshotIds);
+            Tuple<Long, BlobStoreRepositoryIndex> index = readIndex();
+            writeIndex(index.v2().withoutSnapshot(snapshotId.getSnapshot()), index.v1());
             // Now delete all indices
             for (String index : indices) {
                 BlobPath indexPath = basePath().add("indices").add(index);
@@ -372,13 +395,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         try {
             Snapshot blobStoreSnapshot = new Snapshot(snapshotId.getSnapshot(), indices, startTime, failure, System.currentTimeMillis(), totalShards, shardFailures);
             snapshotFormat.write(blobStoreSnapshot, snapshotsBlobContainer, snapshotId.getSnapshot());
-            List<SnapshotId> snapshotIds = snapshots();
-            if (!snapshotIds.contains(snapshotId)) {
-                snapshotIds = new ArrayList<>(snapshotIds);
-                snapshotIds.add(snapshotId);
-                snapshotIds = Collections.unmodifiableList(snapshotIds);
-            }
-            writeSnapshotList(snapshotIds);
+            Tuple<Long, BlobStoreRepositoryIndex> index = readIndex();
+            writeIndex(index.v2().withSnapshot(blobStoreSnapshot), index.v1());
             return blobStoreSnapshot;
         } catch (IOException ex) {
             throw new RepositoryException(this.repositoryName, "failed to update snapshot in repository", ex);
@@ -390,6 +408,21 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
      */
     @Override
     public List<SnapshotId> snapshots() {
+        try {
+            List<SnapshotId> snapshots = new ArrayList<>();
+            for (String name : readIndex().v2().snapshotNames()) {
+                snapshots.add(new SnapshotId(repositoryName, name));
+            }
+            return Collections.unmodifiableList(snapshots);
+        } catch (IOException ex) {
+            throw new RepositoryException(repositoryName, "failed to list snapshots in repository", ex);
+        }
+    }
+
+    /**
+     * Lists the snapshots in the repository by listing the snapshot files, used for repositories without an index
+     */
+    private List<SnapshotId> listSnapshots() {
         try {
             List<SnapshotId> snapshots = new ArrayList<>();
             Map<String, BlobMetaData> blobs;
@@ -434,6 +467,25 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
      */
     @Override
     public Snapshot readSnapshot(SnapshotId snapshotId) {
+        // snapshot files are never changed once written, so the description in the index can be used as is as long as
+        // the index is still the current one. Another node or cluster may have changed the repository in the meantime.
+        final Tuple<Long, BlobStoreRepositoryIndex> index = latestIndex;
+        if (index != null && index.v1() >= 0) {
+            try {
+                if (latestIndexGeneration() == index.v1()) {
+                    final Snapshot snapshot = index.v2().snapshot(snapshotId.getSnapshot());
+                    if (snapshot != null) {
+                        return snapshot;
+                    }
+                }
+            } catch (IOException ex) {
+                logger.debug("[{}] failed to read the repository index generation, reading snapshot file", ex, snapshotId);
+            }
+        }
+        return readSnapshotBlob(snapshotId);
+    }
+
+    private Snapshot readSnapshotBlob(SnapshotId snapshotId) {
         try {
             return snapshotFormat.read(snapshotsBlobContainer, snapshotId.getSnapshot());
         } catch (FileNotFoundException | NoSuchFileException ex) {
@@ -547,6 +599,131 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         }
     }
 
+    /**
+     * Reads the current generation of the repository index. Repositories that were written by older versions don't
+     * have an index yet, it's then built by listing and reading all snapshot files and the next change to the
+     * repository writes it.
+     *
+     * @return the generation of the index, or -1 if there is none yet, and the index
+     * @throws IOException I/O errors
+     */
+    protected Tuple<Long, BlobStoreRepositoryIndex> readIndex() throws IOException {
+        final long generation = latestIndexGeneration();
+        Tuple<Long, BlobStoreRepositoryIndex> index = latestIndex;
+        if (generation >= 0) {
+            if (index == null || index.v1() != generation) {
+                index = new Tuple<>(generation, readIndex(generation));
+            }
+        } else {
+            // snapshot files are never changed, so only the ones we didn't read before need to be read
+            Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+            for (SnapshotId snapshotId : listSnapshots()) {
+                Snapshot snapshot = index == null ? null : index.v2().snapshot(snapshotId.getSnapshot());
+                if (snapshot == null) {
+                    try {
+                        snapshot = readSnapshotBlob(snapshotId);
+                    } catch (Exception ex) {
+                        logger.debug("[{}] failed to read snapshot file, not adding it to the repository index", ex, snapshotId);
+                    }
+                }
+                snapshots.put(snapshotId.getSnapshot(), snapshot);
+            }
+            index = new Tuple<>(-1L, new BlobStoreRepositoryIndex(snapshots));
+        }
+        latestIndex = index;
+        return index;
+    }
+
+    private BlobStoreRepositoryIndex readIndex(long generation) throws IOException {
+        try {
+            return repositoryIndexFormat.read(snapshotsBlobContainer, Long.toString(generation));
+        } catch (FileNotFoundException | NoSuchFileException ex) {
+            // the generation was replaced after we read the pointer, the newer one is the one with the highest number
+            final long latest = listLatestIndexGeneration();
+            if (latest <= generation) {
+                throw ex;
+            }
+            return repositoryIndexFormat.read(snapshotsBlobContainer, Long.toString(latest));
+        }
+    }
+
+    /**
+     * Returns the generation of the current repository index, or -1 if the repository doesn't have an index yet
+     */
+    private long latestIndexGeneration() throws IOException {
+        try (InputStream blob = snapshotsBlobContainer.readBlob(REPOSITORY_INDEX_LATEST)) {
+            return new DataInputStream(blob).readLong();
+        } catch (FileNotFoundException | NoSuchFileException | EOFException ex) {
+            // the pointer is missing if the repository has no index yet, and it may be incomplete while it's overwritten
+            // on stores that can't replace blobs atomically - find the index by listing
+        }
+        return listLatestIndexGeneration();
+    }
+
+    /**
+     * Finds the generation of the current repository index by listing the index generations, returns -1 if there is none
+     */
+    private long listLatestIndexGeneration() throws IOException {
+        final Map<String, BlobMetaData> blobs;
+        try {
+            blobs = snapshotsBlobContainer.listBlobsByPrefix(REPOSITORY_INDEX_PREFIX);
+        } catch (UnsupportedOperationException ex) {
+            return -1;
+        }
+        long latest = -1;
+        for (String name : blobs.keySet()) {
+            try {
+                latest = Math.max(latest, Long.parseLong(name.substring(REPOSITORY_INDEX_PREFIX.length())));
+            } catch (NumberFormatException ex) {
+                logger.debug("failed to parse repository index file name [{}]", name);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Writes the given repository index as the generation after the given one and points the repository to it. Only
+     * the master node changes the repository and never does so concurrently.
+     *
+     * @param index      the new repository index
+     * @param generation the generation of the index the new one is based on, -1 if there was none
+     * @throws IOException I/O errors
+     */
+    protected void writeIndex(BlobStoreRepositoryIndex index, long generation) throws IOException {
+        final long newGeneration = generation + 1;
+        repositoryIndexFormat.writeAtomic(index, snapshotsBlobContainer, Long.toString(newGeneration));
+        final BytesReference bRef;
+        try (BytesStreamOutput bStream = new BytesStreamOutput()) {
+            bStream.writeLong(newGeneration);
+            bRef = bStream.bytes();
+        }
+        // the pointer is overwritten in place, readers fall back to listing the generations if it's missing or incomplete
+        try {
+            snapshotsBlobContainer.writeBlob(REPOSITORY_INDEX_LATEST, bRef);
+        } catch (IOException ex) {
+            // some stores can't overwrite blobs, the pointer has to be replaced then
+            if (snapshotsBlobContainer.blobExists(REPOSITORY_INDEX_LATEST) == false) {
+                throw ex;
+            }
+            snapshotsBlobContainer.deleteBlob(REPOSITORY_INDEX_LATEST);
+            snapshotsBlobContainer.writeBlob(REPOSITORY_INDEX_LATEST, bRef);
+        }
+        latestIndex = new Tuple<>(newGeneration, index);
+        if (generation >= 0) {
+            try {
+                repositoryIndexFormat.delete(snapshotsBlobContainer, Long.toString(generation));
+            } catch (IOException ex) {
+                logger.debug("failed to delete repository index generation [{}]", ex, generation);
+            }
+        }
+        // keep the plain snapshot list for read-only repositories of older versions that can't list blobs
+        List<SnapshotId> snapshotIds = new ArrayList<>();
+        for (String name : index.snapshotNames()) {
+            snapshotIds.add(new SnapshotId(repositoryName, name));
+        }
+        writeSnapshotList(snapshotIds);
+    }
+
     /**
      * Writes snapshot index file
      * <p>
@@ -0,0 +1,195 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.repositories.blobstore;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.xcontent.FromXContentBuilder;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.snapshots.Snapshot;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lists all snapshots in a blob store repository together with their description, so that the repository doesn't
+ * need to be listed and every snapshot file doesn't need to be read to find them.
+ * <p>
+ * The index is immutable, every change is written as a new generation of the index file.
+ */
+public class BlobStoreRepositoryIndex implements ToXContent, FromXContentBuilder<BlobStoreRepositoryIndex> {
+
+    public static final BlobStoreRepositoryIndex PROTO = new BlobStoreRepositoryIndex();
+
+    public static final BlobStoreRepositoryIndex EMPTY = PROTO;
+
+    // snapshot name to snapshot description, the description is null if the snapshot file couldn't be read
+    private final Map<String, Snapshot> snapshots;
+
+    private BlobStoreRepositoryIndex() {
+        this(Collections.emptyMap());
+    }
+
+    public BlobStoreRepositoryIndex(Map<String, Snapshot> snapshots) {
+        this.snapshots = Collections.unmodifiableMap(new LinkedHashMap<>(snapshots));
+    }
+
+    /**
+     * Returns the names of all snapshots in the repository
+     */
+    public Set<String> snapshotNames() {
+        return snapshots.keySet();
+    }
+
+    /**
+     * Returns true if the repository contains a snapshot with the given name
+     */
+    public boolean contains(String name) {
+        return snapshots.containsKey(name);
+    }
+
+    /**
+     * Returns the description of the snapshot with the given name, or <code>null</code> if the snapshot doesn't exist
+     * or its description couldn't be read when the index was built
+     */
+    @Nullable
+    public Snapshot snapshot(String name) {
+        return snapshots.get(name);
+    }
+
+    /**
+     * Returns a new index that additionally contains the given snapshot
+     */
+    public BlobStoreRepositoryIndex withSnapshot(Snapshot snapshot) {
+        Map<String, Snapshot> newSnapshots = new LinkedHashMap<>(snapshots);
+        newSnapshots.put(snapshot.name(), snapshot);
+        return new BlobStoreRepositoryIndex(newSnapshots);
+    }
+
+    /**
+     * Returns a new index without the snapshot with the given name
+     */
+    public BlobStoreRepositoryIndex withoutSnapshot(String name) {
+        Map<String, Snapshot> newSnapshots = new LinkedHashMap<>(snapshots);
+        newSnapshots.remove(name);
+        return new BlobStoreRepositoryIndex(newSnapshots);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString SNAPSHOTS = new XContentBuilderString("snapshots");
+        static final XContentBuilderString NAME = new XContentBuilderString("name");
+    }
+
+    static final class ParseFields {
+        static final ParseField SNAPSHOTS = new ParseField("snapshots");
+        static final ParseField NAME = new ParseField("name");
+        static final ParseField SNAPSHOT = new ParseField("snapshot");
+    }
+
+    /**
+     * Writes the repository index in the following format.
+     * <pre>
+     * <code>
+     * {
+     *     "snapshots": [{
+     *         "name": "snapshot_1",
+     *         "snapshot": {
+     *             "name": "snapshot_1",
+     *             "version_id": 3000099,
+     *             "indices": ["index_1", "index_2"],
+     *             "state": "SUCCESS",
+     *             ...
+     *         }
+     *     }, {
+     *         "name": "snapshot_2"
+     *     }]
+     * }
+     * </code>
+     * </pre>
+     */
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.SNAPSHOTS);
+        for (Map.Entry<String, Snapshot> entry : snapshots.entrySet()) {
+            builder.startObject();
+            builder.field(Fields.NAME, entry.getKey());
+            if (entry.getValue() != null) {
+                entry.getValue().toXContent(builder, params);
+            }
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public BlobStoreRepositoryIndex fromXContent(XContentParser parser, ParseFieldMatcher parseFieldMatcher) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token == null) { // New parser
+            token = parser.nextToken();
+        }
+        Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+        if (token == XContentParser.Token.START_OBJECT) {
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token != XContentParser.Token.FIELD_NAME) {
+                    throw new ElasticsearchParseException("unexpected token [{}]", token);
+                }
+                String currentFieldName = parser.currentName();
+                if (parser.nextToken() != XContentParser.Token.START_ARRAY
+                        || parseFieldMatcher.match(currentFieldName, ParseFields.SNAPSHOTS) == false) {
+                    throw new ElasticsearchParseException("unknown field [{}]", currentFieldName);
+                }
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    String name = null;
+                    Snapshot snapshot = null;
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                        if (token != XContentParser.Token.FIELD_NAME) {
+                            throw new ElasticsearchParseException("unexpected token [{}]", token);
+                        }
+                        currentFieldName = parser.currentName();
+                        if (parseFieldMatcher.match(currentFieldName, ParseFields.SNAPSHOT)) {
+                            // parses the object that follows the field name and stops at its end
+                            snapshot = Snapshot.fromXContent(parser);
+                        } else if (parseFieldMatcher.match(currentFieldName, ParseFields.NAME)) {
+                            parser.nextToken();
+                            name = parser.text();
+                        } else {
+                            parser.nextToken();
+                            parser.skipChildren();
+                        }
+                    }
+                    if (name == null) {
+                        throw new ElasticsearchParseException("snapshot without name in repository index");
+                    }
+                    snapshots.put(name, snapshot);
+                }
+            }
+        }
+        return new BlobStoreRepositoryIndex(snapshots);
+    }
+}
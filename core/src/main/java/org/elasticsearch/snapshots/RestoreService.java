@@ -65,6 +65,7 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
+import org.elasticsearch.index.store.FsDirectoryService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -239,6 +240,7 @@ public class RestoreService extends AbstractComponent implements ClusterStateLis
                             String renamedIndex = indexEntry.getKey();
                             IndexMetaData snapshotIndexMetaData = metaData.index(index);
                             snapshotIndexMetaData = updateIndexSettings(snapshotIndexMetaData, request.indexSettings, request.ignoreIndexSettings);
+                            snapshotIndexMetaData = updateLazyRestoreSource(snapshotIndexMetaData, index);
                             try {
                                 snapshotIndexMetaData = metaDataIndexUpgradeService.upgradeIndexMetaData(snapshotIndexMetaData);
                             } catch (Exception ex) {
@@ -422,6 +424,25 @@ public class RestoreService extends AbstractComponent implements ClusterStateLis
                     return builder.settings(Settings.builder().put(settingsMap)).build();
                 }
 
+                /**
+                 * Records the snapshot that an index restored lazily reads its files from, so that the snapshot can't be
+                 * deleted while the index exists and shards can register the files that weren't fetched yet after a restart.
+                 * The source is removed from indices that are restored eagerly.
+                 */
+                private IndexMetaData updateLazyRestoreSource(IndexMetaData indexMetaData, String index) {
+                    Settings.Builder settings = Settings.builder().put(indexMetaData.getSettings());
+                    if (FsDirectoryService.INDEX_LAZY_RESTORE_SETTING.get(indexMetaData.getSettings())) {
+                        settings.put(FsDirectoryService.INDEX_LAZY_RESTORE_REPOSITORY_SETTING.getKey(), snapshotId.getRepository());
+                        settings.put(FsDirectoryService.INDEX_LAZY_RESTORE_SNAPSHOT_SETTING.getKey(), snapshotId.getSnapshot());
+                        settings.put(FsDirectoryService.INDEX_LAZY_RESTORE_INDEX_SETTING.getKey(), index);
+                    } else {
+                        settings.remove(FsDirectoryService.INDEX_LAZY_RESTORE_REPOSITORY_SETTING.getKey());
+                        settings.remove(FsDirectoryService.INDEX_LAZY_RESTORE_SNAPSHOT_SETTING.getKey());
+                        settings.remove(FsDirectoryService.INDEX_LAZY_RESTORE_INDEX_SETTING.getKey());
+                    }
+                    return IndexMetaData.builder(indexMetaData).settings(settings).build();
+                }
+
                 private void restoreGlobalStateIfRequested(MetaData.Builder mdBuilder) {
                     if (request.includeGlobalState()) {
                         if (metaData.persistentSettings() != null) {
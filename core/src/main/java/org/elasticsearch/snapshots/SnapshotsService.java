@@ -54,6 +54,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
+import org.elasticsearch.index.store.FsDirectoryService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.repositories.RepositoryMissingException;
@@ -862,6 +863,21 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
         });
     }
 
+    /**
+     * Fails if an index was restored lazily from the given snapshot, its shards may still read files from the snapshot
+     * that weren't fetched yet
+     */
+    private static void ensureNotLazilyRestored(SnapshotId snapshotId, MetaData metaData) {
+        for (ObjectCursor<IndexMetaData> cursor : metaData.indices().values()) {
+            Settings indexSettings = cursor.value.getSettings();
+            if (snapshotId.getRepository().equals(FsDirectoryService.INDEX_LAZY_RESTORE_REPOSITORY_SETTING.get(indexSettings))
+                && snapshotId.getSnapshot().equals(FsDirectoryService.INDEX_LAZY_RESTORE_SNAPSHOT_SETTING.get(indexSettings))) {
+                throw new SnapshotException(snapshotId, "cannot delete snapshot, index [" + cursor.value.getIndex()
+                    + "] was restored lazily from it and may still read files from it");
+            }
+        }
+    }
+
     /**
      * Deletes snapshot from repository.
      * <p>
@@ -878,6 +894,7 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
 
             @Override
             public ClusterState execute(ClusterState currentState) throws Exception {
+                ensureNotLazilyRestored(snapshotId, currentState.metaData());
                 SnapshotsInProgress snapshots = currentState.custom(SnapshotsInProgress.TYPE);
                 if (snapshots == null) {
                     // No snapshots running - we can continue
@@ -36,8 +36,14 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     private final String executor;
     private final Supplier<Request> requestFactory;
     private final TaskManager taskManager;
+    private final TransportActionMetrics metrics;
 
     public RequestHandlerRegistry(String action, Supplier<Request> requestFactory, TaskManager taskManager, TransportRequestHandler<Request> handler, String executor, boolean forceExecution) {
+        this(action, requestFactory, taskManager, handler, executor, forceExecution, new TransportActionMetrics());
+    }
+
+    public RequestHandlerRegistry(String action, Supplier<Request> requestFactory, TaskManager taskManager, TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
+                                  TransportActionMetrics metrics) {
         this.action = action;
         this.requestFactory = requestFactory;
         assert newRequest() != null;
@@ -45,6 +51,7 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
         this.forceExecution = forceExecution;
         this.executor = executor;
         this.taskManager = taskManager;
+        this.metrics = metrics;
     }
 
     public String getAction() {
@@ -55,20 +62,32 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
             return requestFactory.get();
     }
 
+    /**
+     * The metrics of this action, transports use it to record message sizes and queueing times.
+     */
+    public TransportActionMetrics getMetrics() {
+        return metrics;
+    }
+
     public void processMessageReceived(Request request, TransportChannel channel) throws Exception {
+        final long startNanos = System.nanoTime();
         final Task task = taskManager.register(channel.getChannelType(), action, request);
-        if (task == null) {
-            handler.messageReceived(request, channel);
-        } else {
-            boolean success = false;
-            try {
-                handler.messageReceived(request, new TransportChannelWrapper(taskManager, task, channel), task);
-                success = true;
-            } finally {
-                if (success == false) {
-                    taskManager.unregister(task);
+        try {
+            if (task == null) {
+                handler.messageReceived(request, channel);
+            } else {
+                boolean success = false;
+                try {
+                    handler.messageReceived(request, new TransportChannelWrapper(taskManager, task, channel), task);
+                    success = true;
+                } finally {
+                    if (success == false) {
+                        taskManager.unregister(task);
+                    }
                 }
             }
+        } finally {
+            metrics.onRequestHandled(System.nanoTime() - startNanos);
         }
     }
 
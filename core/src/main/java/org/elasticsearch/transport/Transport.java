@@ -21,14 +21,17 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.compress.deflate.DeflateCompressor;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.TransportAddress;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  *
@@ -38,6 +41,8 @@ public interface Transport extends LifecycleComponent<Transport> {
 
     Setting<Settings> TRANSPORT_PROFILES_SETTING = Setting.groupSetting("transport.profiles.", true, Setting.Scope.CLUSTER);
     Setting<Boolean> TRANSPORT_TCP_COMPRESS = Setting.boolSetting("transport.tcp.compress", false, false, Setting.Scope.CLUSTER);
+    Setting<Integer> TRANSPORT_TCP_COMPRESS_LEVEL = Setting.intSetting("transport.tcp.compress_level", DeflateCompressor.DEFAULT_LEVEL, 1, 9, false, Setting.Scope.CLUSTER);
+    Setting<List<String>> TRANSPORT_TCP_COMPRESS_ACTIONS = Setting.listSetting("transport.tcp.compress_actions", Collections.emptyList(), Function.identity(), false, Setting.Scope.CLUSTER);
 
     void transportServiceAdapter(TransportServiceAdapter service);
 
@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live, per action transport metrics. Recording only bumps counters and histogram buckets that are allocated
+ * up front, so it is safe to call on the network threads for every message.
+ */
+public final class TransportActionMetrics {
+
+    // one significant digit keeps each histogram at a few kilobytes while still telling 1ms from 100ms apart
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 1;
+
+    private final CounterMetric rxCount = new CounterMetric();
+    private final CounterMetric rxSize = new CounterMetric();
+    private final CounterMetric txCount = new CounterMetric();
+    private final CounterMetric txSize = new CounterMetric();
+    private final Histogram queueTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram handlingTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final CounterMetric outgoingCount = new CounterMetric();
+    private final CounterMetric outgoingRequestSize = new CounterMetric();
+    private final CounterMetric outgoingResponseSize = new CounterMetric();
+    private final CounterMetric compressionCount = new CounterMetric();
+    private final CounterMetric compressionUncompressedSize = new CounterMetric();
+    private final CounterMetric compressionCompressedSize = new CounterMetric();
+    private final CounterMetric compressionTimeNanos = new CounterMetric();
+    private final Histogram outgoingLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    /** records an incoming request of the given serialized size */
+    public void onRequestReceived(long size) {
+        rxCount.inc();
+        rxSize.inc(size);
+    }
+
+    /** records a response of the given serialized size that was sent back for an incoming request */
+    public void onResponseSent(long size) {
+        txCount.inc();
+        txSize.inc(size);
+    }
+
+    /** records the time an incoming request waited in the thread pool queue before its handler ran */
+    public void onRequestDequeued(long queuedNanos) {
+        record(queueTime, queuedNanos);
+    }
+
+    /** records the time the handler of an incoming request ran on the calling thread */
+    public void onRequestHandled(long tookNanos) {
+        record(handlingTime, tookNanos);
+    }
+
+    /** records a request of the given serialized size that was sent to another node */
+    public void onRequestSent(long size) {
+        outgoingRequestSize.inc(size);
+    }
+
+    /**
+     * records a response of the given serialized size that was received for a request sent to another node, together
+     * with the time between sending the request and receiving the response
+     */
+    public void onResponseReceived(long size, long tookNanos) {
+        outgoingCount.inc();
+        outgoingResponseSize.inc(size);
+        record(outgoingLatency, tookNanos);
+    }
+
+    /**
+     * records a request or response of this action that was compressed, with its size before and after compression and
+     * the time it took to serialize and compress it
+     */
+    public void onMessageCompressed(long uncompressedSize, long compressedSize, long tookNanos) {
+        compressionCount.inc();
+        compressionUncompressedSize.inc(uncompressedSize);
+        compressionCompressedSize.inc(compressedSize);
+        compressionTimeNanos.inc(Math.max(0, tookNanos));
+    }
+
+    private static void record(Histogram histogram, long nanos) {
+        final long micros = Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        histogram.recordValue(micros);
+    }
+
+    /** returns <tt>true</tt> if nothing was recorded yet, so idle actions can be left out of the stats */
+    public boolean isEmpty() {
+        return rxCount.count() == 0 && txCount.count() == 0 && outgoingCount.count() == 0 && outgoingRequestSize.count() == 0;
+    }
+
+    public TransportActionStats stats(String action) {
+        return new TransportActionStats(action, rxCount.count(), rxSize.count(), txCount.count(), txSize.count(),
+                queueTime.getTotalCount(), queueTime.getValueAtPercentile(50), queueTime.getValueAtPercentile(99), queueTime.getMaxValue(),
+                handlingTime.getTotalCount(), handlingTime.getValueAtPercentile(50), handlingTime.getValueAtPercentile(99),
+                handlingTime.getMaxValue(),
+                outgoingCount.count(), outgoingRequestSize.count(), outgoingResponseSize.count(),
+                outgoingLatency.getValueAtPercentile(50), outgoingLatency.getValueAtPercentile(99), outgoingLatency.getMaxValue(),
+                compressionCount.count(), compressionUncompressedSize.count(), compressionCompressedSize.count(),
+                TimeUnit.NANOSECONDS.toMillis(compressionTimeNanos.count()));
+    }
+}
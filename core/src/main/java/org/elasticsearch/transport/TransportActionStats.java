@@ -0,0 +1,323 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Point in time transport stats of a single action, see {@link TransportActionMetrics}.
+ */
+public class TransportActionStats implements Streamable, ToXContent {
+
+    private String action;
+    private long rxCount;
+    private long rxSize;
+    private long txCount;
+    private long txSize;
+    private long queueCount;
+    private long queueP50InMicros;
+    private long queueP99InMicros;
+    private long queueMaxInMicros;
+    private long handlingCount;
+    private long handlingP50InMicros;
+    private long handlingP99InMicros;
+    private long handlingMaxInMicros;
+    private long outgoingCount;
+    private long outgoingRequestSize;
+    private long outgoingResponseSize;
+    private long outgoingP50InMicros;
+    private long outgoingP99InMicros;
+    private long outgoingMaxInMicros;
+    private long compressionCount;
+    private long compressionUncompressedSize;
+    private long compressionCompressedSize;
+    private long compressionTimeInMillis;
+
+    TransportActionStats() {
+
+    }
+
+    public TransportActionStats(String action, long rxCount, long rxSize, long txCount, long txSize,
+                                long queueCount, long queueP50InMicros, long queueP99InMicros, long queueMaxInMicros,
+                                long handlingCount, long handlingP50InMicros, long handlingP99InMicros, long handlingMaxInMicros,
+                                long outgoingCount, long outgoingRequestSize, long outgoingResponseSize,
+                                long outgoingP50InMicros, long outgoingP99InMicros, long outgoingMaxInMicros,
+                                long compressionCount, long compressionUncompressedSize, long compressionCompressedSize,
+                                long compressionTimeInMillis) {
+        this.action = action;
+        this.rxCount = rxCount;
+        this.rxSize = rxSize;
+        this.txCount = txCount;
+        this.txSize = txSize;
+        this.queueCount = queueCount;
+        this.queueP50InMicros = queueP50InMicros;
+        this.queueP99InMicros = queueP99InMicros;
+        this.queueMaxInMicros = queueMaxInMicros;
+        this.handlingCount = handlingCount;
+        this.handlingP50InMicros = handlingP50InMicros;
+        this.handlingP99InMicros = handlingP99InMicros;
+        this.handlingMaxInMicros = handlingMaxInMicros;
+        this.outgoingCount = outgoingCount;
+        this.outgoingRequestSize = outgoingRequestSize;
+        this.outgoingResponseSize = outgoingResponseSize;
+        this.outgoingP50InMicros = outgoingP50InMicros;
+        this.outgoingP99InMicros = outgoingP99InMicros;
+        this.outgoingMaxInMicros = outgoingMaxInMicros;
+        this.compressionCount = compressionCount;
+        this.compressionUncompressedSize = compressionUncompressedSize;
+        this.compressionCompressedSize = compressionCompressedSize;
+        this.compressionTimeInMillis = compressionTimeInMillis;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /** the number of requests for this action received from other nodes */
+    public long getRxCount() {
+        return rxCount;
+    }
+
+    public ByteSizeValue getRxSize() {
+        return new ByteSizeValue(rxSize);
+    }
+
+    /** the number of responses sent back for requests of this action */
+    public long getTxCount() {
+        return txCount;
+    }
+
+    public ByteSizeValue getTxSize() {
+        return new ByteSizeValue(txSize);
+    }
+
+    /** the number of incoming requests that were handed to a thread pool before being handled */
+    public long getQueueCount() {
+        return queueCount;
+    }
+
+    public long getQueueP50InMicros() {
+        return queueP50InMicros;
+    }
+
+    public long getQueueP99InMicros() {
+        return queueP99InMicros;
+    }
+
+    public long getQueueMaxInMicros() {
+        return queueMaxInMicros;
+    }
+
+    public long getHandlingCount() {
+        return handlingCount;
+    }
+
+    public long getHandlingP50InMicros() {
+        return handlingP50InMicros;
+    }
+
+    public long getHandlingP99InMicros() {
+        return handlingP99InMicros;
+    }
+
+    public long getHandlingMaxInMicros() {
+        return handlingMaxInMicros;
+    }
+
+    /** the number of responses received for requests of this action that were sent to other nodes */
+    public long getOutgoingCount() {
+        return outgoingCount;
+    }
+
+    /** the serialized size of the requests of this action that were sent to other nodes */
+    public ByteSizeValue getOutgoingRequestSize() {
+        return new ByteSizeValue(outgoingRequestSize);
+    }
+
+    /** the serialized size of the responses received for requests of this action that were sent to other nodes */
+    public ByteSizeValue getOutgoingResponseSize() {
+        return new ByteSizeValue(outgoingResponseSize);
+    }
+
+    public long getOutgoingP50InMicros() {
+        return outgoingP50InMicros;
+    }
+
+    public long getOutgoingP99InMicros() {
+        return outgoingP99InMicros;
+    }
+
+    public long getOutgoingMaxInMicros() {
+        return outgoingMaxInMicros;
+    }
+
+    /** the number of requests and responses of this action that this node compressed */
+    public long getCompressionCount() {
+        return compressionCount;
+    }
+
+    /** the size of the compressed requests and responses before compression */
+    public ByteSizeValue getCompressionUncompressedSize() {
+        return new ByteSizeValue(compressionUncompressedSize);
+    }
+
+    /** the size of the compressed requests and responses after compression */
+    public ByteSizeValue getCompressionCompressedSize() {
+        return new ByteSizeValue(compressionCompressedSize);
+    }
+
+    /** the total time spent serializing and compressing requests and responses of this action */
+    public TimeValue getCompressionTime() {
+        return new TimeValue(compressionTimeInMillis);
+    }
+
+    public static TransportActionStats readTransportActionStats(StreamInput in) throws IOException {
+        TransportActionStats stats = new TransportActionStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        action = in.readString();
+        rxCount = in.readVLong();
+        rxSize = in.readVLong();
+        txCount = in.readVLong();
+        txSize = in.readVLong();
+        queueCount = in.readVLong();
+        queueP50InMicros = in.readVLong();
+        queueP99InMicros = in.readVLong();
+        queueMaxInMicros = in.readVLong();
+        handlingCount = in.readVLong();
+        handlingP50InMicros = in.readVLong();
+        handlingP99InMicros = in.readVLong();
+        handlingMaxInMicros = in.readVLong();
+        outgoingCount = in.readVLong();
+        outgoingRequestSize = in.readVLong();
+        outgoingResponseSize = in.readVLong();
+        outgoingP50InMicros = in.readVLong();
+        outgoingP99InMicros = in.readVLong();
+        outgoingMaxInMicros = in.readVLong();
+        compressionCount = in.readVLong();
+        compressionUncompressedSize = in.readVLong();
+        compressionCompressedSize = in.readVLong();
+        compressionTimeInMillis = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(action);
+        out.writeVLong(rxCount);
+        out.writeVLong(rxSize);
+        out.writeVLong(txCount);
+        out.writeVLong(txSize);
+        out.writeVLong(queueCount);
+        out.writeVLong(queueP50InMicros);
+        out.writeVLong(queueP99InMicros);
+        out.writeVLong(queueMaxInMicros);
+        out.writeVLong(handlingCount);
+        out.writeVLong(handlingP50InMicros);
+        out.writeVLong(handlingP99InMicros);
+        out.writeVLong(handlingMaxInMicros);
+        out.writeVLong(outgoingCount);
+        out.writeVLong(outgoingRequestSize);
+        out.writeVLong(outgoingResponseSize);
+        out.writeVLong(outgoingP50InMicros);
+        out.writeVLong(outgoingP99InMicros);
+        out.writeVLong(outgoingMaxInMicros);
+        out.writeVLong(compressionCount);
+        out.writeVLong(compressionUncompressedSize);
+        out.writeVLong(compressionCompressedSize);
+        out.writeVLong(compressionTimeInMillis);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(action);
+        builder.field(Fields.RX_COUNT, rxCount);
+        builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
+        builder.field(Fields.TX_COUNT, txCount);
+        builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        builder.startObject(Fields.QUEUE);
+        builder.field(Fields.COUNT, queueCount);
+        builder.field(Fields.P50_IN_MICROS, queueP50InMicros);
+        builder.field(Fields.P99_IN_MICROS, queueP99InMicros);
+        builder.field(Fields.MAX_IN_MICROS, queueMaxInMicros);
+        builder.endObject();
+        builder.startObject(Fields.HANDLING);
+        builder.field(Fields.COUNT, handlingCount);
+        builder.field(Fields.P50_IN_MICROS, handlingP50InMicros);
+        builder.field(Fields.P99_IN_MICROS, handlingP99InMicros);
+        builder.field(Fields.MAX_IN_MICROS, handlingMaxInMicros);
+        builder.endObject();
+        builder.startObject(Fields.OUTGOING);
+        builder.field(Fields.COUNT, outgoingCount);
+        builder.byteSizeField(Fields.REQUEST_SIZE_IN_BYTES, Fields.REQUEST_SIZE, outgoingRequestSize);
+        builder.byteSizeField(Fields.RESPONSE_SIZE_IN_BYTES, Fields.RESPONSE_SIZE, outgoingResponseSize);
+        builder.field(Fields.P50_IN_MICROS, outgoingP50InMicros);
+        builder.field(Fields.P99_IN_MICROS, outgoingP99InMicros);
+        builder.field(Fields.MAX_IN_MICROS, outgoingMaxInMicros);
+        builder.endObject();
+        builder.startObject(Fields.COMPRESSION);
+        builder.field(Fields.COUNT, compressionCount);
+        builder.byteSizeField(Fields.UNCOMPRESSED_SIZE_IN_BYTES, Fields.UNCOMPRESSED_SIZE, compressionUncompressedSize);
+        builder.byteSizeField(Fields.COMPRESSED_SIZE_IN_BYTES, Fields.COMPRESSED_SIZE, compressionCompressedSize);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, compressionTimeInMillis);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString RX_COUNT = new XContentBuilderString("rx_count");
+        static final XContentBuilderString RX_SIZE = new XContentBuilderString("rx_size");
+        static final XContentBuilderString RX_SIZE_IN_BYTES = new XContentBuilderString("rx_size_in_bytes");
+        static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
+        static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
+        static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString QUEUE = new XContentBuilderString("queue");
+        static final XContentBuilderString HANDLING = new XContentBuilderString("handling");
+        static final XContentBuilderString OUTGOING = new XContentBuilderString("outgoing");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString REQUEST_SIZE = new XContentBuilderString("request_size");
+        static final XContentBuilderString REQUEST_SIZE_IN_BYTES = new XContentBuilderString("request_size_in_bytes");
+        static final XContentBuilderString RESPONSE_SIZE = new XContentBuilderString("response_size");
+        static final XContentBuilderString RESPONSE_SIZE_IN_BYTES = new XContentBuilderString("response_size_in_bytes");
+        static final XContentBuilderString P50_IN_MICROS = new XContentBuilderString("p50_in_micros");
+        static final XContentBuilderString P99_IN_MICROS = new XContentBuilderString("p99_in_micros");
+        static final XContentBuilderString MAX_IN_MICROS = new XContentBuilderString("max_in_micros");
+        static final XContentBuilderString COMPRESSION = new XContentBuilderString("compression");
+        static final XContentBuilderString UNCOMPRESSED_SIZE = new XContentBuilderString("uncompressed_size");
+        static final XContentBuilderString UNCOMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("uncompressed_size_in_bytes");
+        static final XContentBuilderString COMPRESSED_SIZE = new XContentBuilderString("compressed_size");
+        static final XContentBuilderString COMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("compressed_size_in_bytes");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+    }
+}
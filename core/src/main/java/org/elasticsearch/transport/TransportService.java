@@ -43,11 +43,13 @@ import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -74,6 +76,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
     final ConcurrentMapLong<RequestHolder> clientHandlers = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
 
+    final ConcurrentMap<String, TransportActionMetrics> actionMetrics = ConcurrentCollections.newConcurrentMap();
+
     final AtomicLong requestIds = new AtomicLong();
 
     final CopyOnWriteArrayList<TransportConnectionListener> connectionListeners = new CopyOnWriteArrayList<>();
@@ -213,7 +217,25 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     }
 
     public TransportStats stats() {
-        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum());
+        List<TransportActionStats> actionStats = new ArrayList<>();
+        for (Map.Entry<String, TransportActionMetrics> entry : actionMetrics.entrySet()) {
+            if (entry.getValue().isEmpty() == false) {
+                actionStats.add(entry.getValue().stats(entry.getKey()));
+            }
+        }
+        actionStats.sort((a, b) -> a.getAction().compareTo(b.getAction()));
+        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum(), actionStats);
+    }
+
+    /**
+     * Returns the metrics of the given action, they are shared by the incoming and the outgoing side of the action.
+     */
+    TransportActionMetrics actionMetrics(String action) {
+        TransportActionMetrics metrics = actionMetrics.get(action);
+        if (metrics == null) {
+            metrics = actionMetrics.computeIfAbsent(action, key -> new TransportActionMetrics());
+        }
+        return metrics;
     }
 
     public BoundTransportAddress boundAddress() {
@@ -398,7 +420,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
      * @param handler The handler itself that implements the request handling
      */
     public <Request extends TransportRequest> void registerRequestHandler(String action, Supplier<Request> requestFactory, String executor, TransportRequestHandler<Request> handler) {
-        RequestHandlerRegistry<Request> reg = new RequestHandlerRegistry<>(action, requestFactory, taskManager, handler, executor, false);
+        RequestHandlerRegistry<Request> reg = new RequestHandlerRegistry<>(action, requestFactory, taskManager, handler, executor, false, actionMetrics(action));
         registerRequestHandler(reg);
     }
 
@@ -411,7 +433,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
      * @param handler The handler itself that implements the request handling
      */
     public <Request extends TransportRequest> void registerRequestHandler(String action, Supplier<Request> request, String executor, boolean forceExecution, TransportRequestHandler<Request> handler) {
-        RequestHandlerRegistry<Request> reg = new RequestHandlerRegistry<>(action, request, taskManager, handler, executor, forceExecution);
+        RequestHandlerRegistry<Request> reg = new RequestHandlerRegistry<>(action, request, taskManager, handler, executor, forceExecution, actionMetrics(action));
         registerRequestHandler(reg);
     }
 
@@ -451,12 +473,18 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         }
 
         @Override
-        public void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options) {
+        public void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options, long size) {
+            actionMetrics(action).onRequestSent(size);
             if (traceEnabled() && shouldTraceAction(action)) {
                 traceRequestSent(node, requestId, action, options);
             }
         }
 
+        @Override
+        public void onMessageCompressed(String action, long uncompressedSize, long compressedSize, long tookNanos) {
+            actionMetrics(action).onMessageCompressed(uncompressedSize, compressedSize, tookNanos);
+        }
+
         protected boolean traceEnabled() {
             return tracerLog.isTraceEnabled();
         }
@@ -492,13 +520,14 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         }
 
         @Override
-        public TransportResponseHandler onResponseReceived(final long requestId) {
+        public TransportResponseHandler onResponseReceived(final long requestId, final long size) {
             RequestHolder holder = clientHandlers.remove(requestId);
             if (holder == null) {
                 checkForTimeout(requestId);
                 return null;
             }
             holder.cancelTimeout();
+            actionMetrics(holder.action()).onResponseReceived(size, System.nanoTime() - holder.sentNanos());
             if (traceEnabled() && shouldTraceAction(holder.action())) {
                 traceReceivedResponse(requestId, holder.node(), holder.action());
             }
@@ -682,6 +711,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         private final TimeoutHandler timeoutHandler;
 
+        private final long sentNanos = System.nanoTime();
+
         RequestHolder(TransportResponseHandler<T> handler, DiscoveryNode node, String action, TimeoutHandler timeoutHandler) {
             this.handler = handler;
             this.node = node;
@@ -689,6 +720,10 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             this.timeoutHandler = timeoutHandler;
         }
 
+        public long sentNanos() {
+            return this.sentNanos;
+        }
+
         public TransportResponseHandler<T> handler() {
             return handler;
         }
@@ -742,7 +777,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         @Override
         public void sendResponse(final TransportResponse response, TransportResponseOptions options) throws IOException {
-            final TransportResponseHandler handler = adapter.onResponseReceived(requestId);
+            // local responses are handed over as is, nothing was serialized
+            final TransportResponseHandler handler = adapter.onResponseReceived(requestId, 0);
             // ignore if its null, the adapter logs it
             if (handler != null) {
                 final String executor = handler.executor();
@@ -771,7 +807,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         @Override
         public void sendResponse(Throwable error) throws IOException {
-            final TransportResponseHandler handler = adapter.onResponseReceived(requestId);
+            final TransportResponseHandler handler = adapter.onResponseReceived(requestId, 0);
             // ignore if its null, the adapter logs it
             if (handler != null) {
                 final RemoteTransportException rtx = wrapInRemote(error);
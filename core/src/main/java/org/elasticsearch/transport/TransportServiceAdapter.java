@@ -30,8 +30,14 @@ public interface TransportServiceAdapter {
 
     void sent(long size);
 
-    /** called by the {@link Transport} implementation once a request has been sent */
-    void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options);
+    /** called by the {@link Transport} implementation once a request of the given serialized size has been sent */
+    void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options, long size);
+
+    /**
+     * called by the {@link Transport} implementation after a request or response of the given action was compressed, with
+     * its size before and after compression and the time it took to serialize and compress it
+     */
+    void onMessageCompressed(String action, long uncompressedSize, long compressedSize, long tookNanos);
 
     /** called by the {@link Transport} implementation once a response was sent to calling node */
     void onResponseSent(long requestId, String action, TransportResponse response, TransportResponseOptions options);
@@ -40,11 +46,11 @@ public interface TransportServiceAdapter {
     void onResponseSent(long requestId, String action, Throwable t);
 
     /**
-     * called by the {@link Transport} implementation when a response or an exception has been received for a previously
-     * sent request (before any processing or deserialization was done). Returns the appropriate response handler or null if not
-     * found.
+     * called by the {@link Transport} implementation when a response or an exception of the given serialized size has been
+     * received for a previously sent request (before any processing or deserialization was done). Returns the appropriate
+     * response handler or null if not found.
      */
-    TransportResponseHandler onResponseReceived(long requestId);
+    TransportResponseHandler onResponseReceived(long requestId, long size);
 
     /**
      * called by the {@link Transport} implementation when an incoming request arrives but before
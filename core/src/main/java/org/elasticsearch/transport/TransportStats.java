@@ -28,6 +28,9 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class TransportStats implements Streamable, ToXContent {
 
@@ -36,17 +39,23 @@ public class TransportStats implements Streamable, ToXContent {
     private long rxSize;
     private long txCount;
     private long txSize;
+    private List<TransportActionStats> actionStats;
 
     TransportStats() {
 
     }
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, Collections.emptyList());
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, List<TransportActionStats> actionStats) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.actionStats = actionStats;
     }
 
     public long serverOpen() {
@@ -89,6 +98,13 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * Per action stats, only actions that sent or received at least one message are included.
+     */
+    public List<TransportActionStats> getActionStats() {
+        return actionStats;
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +118,11 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        int size = in.readVInt();
+        actionStats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            actionStats.add(TransportActionStats.readTransportActionStats(in));
+        }
     }
 
     @Override
@@ -111,6 +132,10 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        out.writeVInt(actionStats.size());
+        for (TransportActionStats stats : actionStats) {
+            stats.writeTo(out);
+        }
     }
 
     @Override
@@ -121,6 +146,13 @@ public class TransportStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        if (actionStats.isEmpty() == false) {
+            builder.startObject(Fields.ACTIONS);
+            for (TransportActionStats stats : actionStats) {
+                stats.toXContent(builder, params);
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -134,5 +166,6 @@ public class TransportStats implements Streamable, ToXContent {
         static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
         static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
         static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString ACTIONS = new XContentBuilderString("actions");
     }
 }
\ No newline at end of file
@@ -222,7 +222,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             final byte[] data = stream.bytes().toBytes();
 
             transportServiceAdapter.sent(data.length);
-            transportServiceAdapter.onRequestSent(node, requestId, action, request, options);
+            transportServiceAdapter.onRequestSent(node, requestId, action, request, options, data.length);
             targetTransport.workers().execute(new Runnable() {
                 @Override
                 public void run() {
@@ -248,9 +248,9 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             boolean isRequest = TransportStatus.isRequest(status);
 
             if (isRequest) {
-                handleRequest(stream, requestId, sourceTransport, version);
+                handleRequest(stream, requestId, sourceTransport, version, data.length);
             } else {
-                final TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(requestId);
+                final TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(requestId, data.length);
                 // ignore if its null, the adapter logs it
                 if (handler != null) {
                     if (TransportStatus.isError(status)) {
@@ -262,7 +262,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             }
         } catch (Throwable e) {
             if (sendRequestId != null) {
-                TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(sendRequestId);
+                TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(sendRequestId, 0);
                 if (handler != null) {
                     handleException(handler, new RemoteTransportException(nodeName(), localAddress, action, e));
                 }
@@ -272,7 +272,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
         }
     }
 
-    private void handleRequest(StreamInput stream, long requestId, LocalTransport sourceTransport, Version version) throws Exception {
+    private void handleRequest(StreamInput stream, long requestId, LocalTransport sourceTransport, Version version, long messageSize) throws Exception {
         stream = new NamedWriteableAwareStreamInput(stream, namedWriteableRegistry);
         final String action = stream.readString();
         transportServiceAdapter.onRequestReceived(requestId, action);
@@ -282,6 +282,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             if (reg == null) {
                 throw new ActionNotFoundTransportException("Action [" + action + "] not found");
             }
+            reg.getMetrics().onRequestReceived(messageSize);
             final TransportRequest request = reg.newRequest();
             request.remoteAddress(sourceTransport.boundAddress.publishAddress());
             request.readFrom(stream);
@@ -289,9 +290,11 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
                 //noinspection unchecked
                 reg.processMessageReceived(request, transportChannel);
             } else {
+                final long queuedNanos = System.nanoTime();
                 threadPool.executor(reg.getExecutor()).execute(new AbstractRunnable() {
                     @Override
                     protected void doRun() throws Exception {
+                        reg.getMetrics().onRequestDequeued(System.nanoTime() - queuedNanos);
                         //noinspection unchecked
                         reg.processMessageReceived(request, transportChannel);
                     }
@@ -22,6 +22,7 @@ package org.elasticsearch.transport.local;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.transport.RemoteTransportException;
+import org.elasticsearch.transport.RequestHandlerRegistry;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportResponseOptions;
@@ -85,6 +86,7 @@ public class LocalTransportChannel implements TransportChannel {
                     targetTransport.messageReceived(data, action, sourceTransport, version, null);
                 }
             });
+            recordResponseSize(data.length);
             sourceTransportServiceAdapter.onResponseSent(requestId, action, response, options);
         }
     }
@@ -103,9 +105,17 @@ public class LocalTransportChannel implements TransportChannel {
                 targetTransport.messageReceived(data, action, sourceTransport, version, null);
             }
         });
+        recordResponseSize(data.length);
         sourceTransportServiceAdapter.onResponseSent(requestId, action, error);
     }
 
+    private void recordResponseSize(long size) {
+        RequestHandlerRegistry reg = sourceTransportServiceAdapter.getRequestHandler(action);
+        if (reg != null) {
+            reg.getMetrics().onResponseSent(size);
+        }
+    }
+
     @Override
     public long getRequestId() {
         return requestId;
@@ -125,7 +125,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             streamIn.setVersion(version);
 
             if (TransportStatus.isRequest(status)) {
-                String action = handleRequest(ctx.getChannel(), streamIn, requestId, version);
+                String action = handleRequest(ctx.getChannel(), streamIn, requestId, version, size + 6);
 
                 // Chek the entire message has been read
                 final int nextByte = streamIn.read();
@@ -143,7 +143,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
                 }
 
             } else {
-                TransportResponseHandler<?> handler = transportServiceAdapter.onResponseReceived(requestId);
+                TransportResponseHandler<?> handler = transportServiceAdapter.onResponseReceived(requestId, size + 6);
                 // ignore if its null, the adapter logs it
                 if (handler != null) {
                     if (TransportStatus.isError(status)) {
@@ -240,7 +240,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version, long messageSize) throws IOException {
         buffer = new NamedWriteableAwareStreamInput(buffer, transport.namedWriteableRegistry);
         final String action = buffer.readString();
         transportServiceAdapter.onRequestReceived(requestId, action);
@@ -250,6 +250,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             if (reg == null) {
                 throw new ActionNotFoundTransportException(action);
             }
+            reg.getMetrics().onRequestReceived(messageSize);
             final TransportRequest request = reg.newRequest();
             request.remoteAddress(new InetSocketTransportAddress((InetSocketAddress) channel.getRemoteAddress()));
             request.readFrom(buffer);
@@ -300,6 +301,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         private final RequestHandlerRegistry reg;
         private final TransportRequest request;
         private final NettyTransportChannel transportChannel;
+        private final long queuedNanos = System.nanoTime();
 
         public RequestHandler(RequestHandlerRegistry reg, TransportRequest request, NettyTransportChannel transportChannel) {
             this.reg = reg;
@@ -310,6 +312,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         @SuppressWarnings({"unchecked"})
         @Override
         protected void doRun() throws Exception {
+            reg.getMetrics().onRequestDequeued(System.nanoTime() - queuedNanos);
             reg.processMessageReceived(request, transportChannel);
         }
 
@@ -27,7 +27,8 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
-import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.deflate.DeflateCompressor;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
@@ -41,6 +42,7 @@ import org.elasticsearch.common.netty.ReleaseChannelFutureListener;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.network.NetworkUtils;
+import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
@@ -171,6 +173,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     protected final ByteSizeValue maxCumulationBufferCapacity;
     protected final int maxCompositeBufferComponents;
     protected final boolean compress;
+    protected final String[] compressActions;
+    protected final Compressor compressor;
     protected final ReceiveBufferSizePredictorFactory receiveBufferSizePredictorFactory;
     protected final int workerCount;
     protected final ByteSizeValue receivePredictorMin;
@@ -226,6 +230,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.maxCumulationBufferCapacity = this.settings.getAsBytesSize("transport.netty.max_cumulation_buffer_capacity", null);
         this.maxCompositeBufferComponents = this.settings.getAsInt("transport.netty.max_composite_buffer_components", -1);
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressActions = Transport.TRANSPORT_TCP_COMPRESS_ACTIONS.get(settings).toArray(Strings.EMPTY_ARRAY);
+        this.compressor = new DeflateCompressor(Transport.TRANSPORT_TCP_COMPRESS_LEVEL.get(settings));
 
         this.connectionsPerNodeRecovery = this.settings.getAsInt("transport.netty.connections_per_node.recovery", settings.getAsInt(CONNECTIONS_PER_NODE_RECOVERY, 2));
         this.connectionsPerNodeBulk = this.settings.getAsInt("transport.netty.connections_per_node.bulk", settings.getAsInt(CONNECTIONS_PER_NODE_BULK, 3));
@@ -815,12 +821,71 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return local;
     }
 
+    /**
+     * Returns <tt>true</tt> if messages for the given action should be compressed, either because
+     * <tt>transport.tcp.compress</tt> is set or the action matches one of <tt>transport.tcp.compress_actions</tt>.
+     */
+    boolean compress(String action) {
+        return compress || (compressActions.length > 0 && Regex.simpleMatch(compressActions, action));
+    }
+
+    /**
+     * Counts the bytes written to a compressing stream, so the size of a message before compression can be reported
+     * in the per action stats.
+     */
+    static final class CountingStreamOutput extends StreamOutput {
+
+        private final StreamOutput out;
+        private long size;
+
+        CountingStreamOutput(StreamOutput out) {
+            this.out = out;
+        }
+
+        long size() {
+            return size;
+        }
+
+        @Override
+        public StreamOutput setVersion(Version version) {
+            out.setVersion(version);
+            return super.setVersion(version);
+        }
+
+        @Override
+        public void writeByte(byte b) throws IOException {
+            size++;
+            out.writeByte(b);
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int length) throws IOException {
+            size += length;
+            out.writeBytes(b, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     @Override
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
 
         Channel targetChannel = nodeChannel(node, options);
 
-        if (compress) {
+        if (compress(action)) {
             options = TransportRequestOptions.builder(options).withCompress(true).build();
         }
 
@@ -832,11 +897,14 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         try {
             bStream.skip(NettyHeader.HEADER_SIZE);
             StreamOutput stream = bStream;
+            CountingStreamOutput uncompressed = null;
+            final long startNanos = System.nanoTime();
             // only compress if asked, and, the request is not bytes, since then only
             // the header part is compressed, and the "body" can't be extracted as compressed
             if (options.compress() && (!(request instanceof BytesTransportRequest))) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+                uncompressed = new CountingStreamOutput(compressor.streamOutput(stream));
+                stream = uncompressed;
             }
 
             // we pick the smallest of the 2, to support both backward and forward compatibility
@@ -867,12 +935,17 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 bytes = bStream.bytes();
                 buffer = bytes.toChannelBuffer();
             }
+            if (uncompressed != null) {
+                transportServiceAdapter.onMessageCompressed(action, uncompressed.size(), bytes.length() - NettyHeader.HEADER_SIZE,
+                        System.nanoTime() - startNanos);
+            }
             NettyHeader.writeHeader(buffer, requestId, status, version);
+            final int messageSize = buffer.readableBytes();
             ChannelFuture future = targetChannel.write(buffer);
             ReleaseChannelFutureListener listener = new ReleaseChannelFutureListener(bytes);
             future.addListener(listener);
             addedReleaseListener = true;
-            transportServiceAdapter.onRequestSent(node, requestId, action, request, options);
+            transportServiceAdapter.onRequestSent(node, requestId, action, request, options, messageSize);
         } finally {
             if (!addedReleaseListener) {
                 Releasables.close(bStream.bytes());
@@ -1270,20 +1343,37 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
         public Channel channel(TransportRequestOptions.Type type) {
             if (type == TransportRequestOptions.Type.REG) {
-                return reg[MathUtils.mod(regCounter.incrementAndGet(), reg.length)];
+                return pick(reg, regCounter);
             } else if (type == TransportRequestOptions.Type.STATE) {
-                return state[MathUtils.mod(stateCounter.incrementAndGet(), state.length)];
+                return pick(state, stateCounter);
             } else if (type == TransportRequestOptions.Type.PING) {
-                return ping[MathUtils.mod(pingCounter.incrementAndGet(), ping.length)];
+                return pick(ping, pingCounter);
             } else if (type == TransportRequestOptions.Type.BULK) {
-                return bulk[MathUtils.mod(bulkCounter.incrementAndGet(), bulk.length)];
+                return pick(bulk, bulkCounter);
             } else if (type == TransportRequestOptions.Type.RECOVERY) {
-                return recovery[MathUtils.mod(recoveryCounter.incrementAndGet(), recovery.length)];
+                return pick(recovery, recoveryCounter);
             } else {
                 throw new IllegalArgumentException("no type channel for [" + type + "]");
             }
         }
 
+        /**
+         * Picks channels round robin but skips channels that are not writable, i.e. whose outbound buffer is
+         * above the high water mark because a large message is still being flushed. This keeps small messages
+         * from queueing up behind a large one while another channel of the same type is idle. If no channel
+         * is writable we fall back to the round robin pick.
+         */
+        private static Channel pick(Channel[] channels, AtomicInteger counter) {
+            final int start = MathUtils.mod(counter.incrementAndGet(), channels.length);
+            for (int i = 0; i < channels.length; i++) {
+                final Channel channel = channels[(start + i) % channels.length];
+                if (channel.isWritable()) {
+                    return channel;
+                }
+            }
+            return channels[start];
+        }
+
         public synchronized void close() {
             List<ChannelFuture> futures = new ArrayList<>();
             for (Channel channel : allChannels) {
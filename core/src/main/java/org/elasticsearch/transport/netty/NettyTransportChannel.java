@@ -20,15 +20,13 @@
 package org.elasticsearch.transport.netty;
 
 import org.elasticsearch.Version;
-import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
-import org.elasticsearch.common.compress.CompressorFactory;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.netty.ReleaseChannelFutureListener;
 import org.elasticsearch.transport.RemoteTransportException;
+import org.elasticsearch.transport.RequestHandlerRegistry;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportResponseOptions;
@@ -80,8 +78,8 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
-        if (transport.compress) {
-            options = TransportResponseOptions.builder(options).withCompress(transport.compress).build();
+        if (transport.compress(action)) {
+            options = TransportResponseOptions.builder(options).withCompress(true).build();
         }
 
         byte status = 0;
@@ -92,21 +90,29 @@ public class NettyTransportChannel implements TransportChannel {
         try {
             bStream.skip(NettyHeader.HEADER_SIZE);
             StreamOutput stream = bStream;
+            NettyTransport.CountingStreamOutput uncompressed = null;
+            final long startNanos = System.nanoTime();
             if (options.compress()) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+                uncompressed = new NettyTransport.CountingStreamOutput(transport.compressor.streamOutput(stream));
+                stream = uncompressed;
             }
             stream.setVersion(version);
             response.writeTo(stream);
             stream.close();
 
             ReleasablePagedBytesReference bytes = bStream.bytes();
+            if (uncompressed != null) {
+                transportServiceAdapter.onMessageCompressed(action, uncompressed.size(), bytes.length() - NettyHeader.HEADER_SIZE,
+                        System.nanoTime() - startNanos);
+            }
             ChannelBuffer buffer = bytes.toChannelBuffer();
             NettyHeader.writeHeader(buffer, requestId, status, version);
             ChannelFuture future = channel.write(buffer);
             ReleaseChannelFutureListener listener = new ReleaseChannelFutureListener(bytes);
             future.addListener(listener);
             addedReleaseListener = true;
+            recordResponseSize(bytes.length());
             transportServiceAdapter.onResponseSent(requestId, action, response, options);
         } finally {
             if (!addedReleaseListener) {
@@ -117,19 +123,38 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(Throwable error) throws IOException {
-        BytesStreamOutput stream = new BytesStreamOutput();
-        stream.skip(NettyHeader.HEADER_SIZE);
-        RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()), action, error);
-        stream.writeThrowable(tx);
         byte status = 0;
         status = TransportStatus.setResponse(status);
         status = TransportStatus.setError(status);
 
-        BytesReference bytes = stream.bytes();
-        ChannelBuffer buffer = bytes.toChannelBuffer();
-        NettyHeader.writeHeader(buffer, requestId, status, version);
-        channel.write(buffer);
-        transportServiceAdapter.onResponseSent(requestId, action, error);
+        // serialize into recycled pages, same as regular responses, and hand them back once netty wrote them out
+        ReleasableBytesStreamOutput stream = new ReleasableBytesStreamOutput(transport.bigArrays);
+        boolean addedReleaseListener = false;
+        try {
+            stream.skip(NettyHeader.HEADER_SIZE);
+            RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()), action, error);
+            stream.writeThrowable(tx);
+
+            ReleasablePagedBytesReference bytes = stream.bytes();
+            ChannelBuffer buffer = bytes.toChannelBuffer();
+            NettyHeader.writeHeader(buffer, requestId, status, version);
+            ChannelFuture future = channel.write(buffer);
+            future.addListener(new ReleaseChannelFutureListener(bytes));
+            addedReleaseListener = true;
+            recordResponseSize(bytes.length());
+            transportServiceAdapter.onResponseSent(requestId, action, error);
+        } finally {
+            if (!addedReleaseListener) {
+                Releasables.close(stream.bytes());
+            }
+        }
+    }
+
+    private void recordResponseSize(long size) {
+        RequestHandlerRegistry reg = transportServiceAdapter.getRequestHandler(action);
+        if (reg != null) {
+            reg.getMetrics().onResponseSent(size);
+        }
     }
 
     @Override
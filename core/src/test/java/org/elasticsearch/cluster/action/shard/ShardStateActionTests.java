@@ -23,14 +23,22 @@ import org.apache.lucene.index.CorruptIndexException;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateObserver;
+import org.elasticsearch.cluster.ClusterStateTaskConfig;
+import org.elasticsearch.cluster.ClusterStateTaskExecutor;
+import org.elasticsearch.cluster.ClusterStateTaskListener;
 import org.elasticsearch.cluster.NotMasterException;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.RoutingService;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.ShardsIterator;
+import org.elasticsearch.cluster.routing.TestShardRouting;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.cluster.TestClusterService;
@@ -40,17 +48,22 @@ import org.elasticsearch.transport.NodeDisconnectedException;
 import org.elasticsearch.transport.NodeNotConnectedException;
 import org.elasticsearch.transport.RemoteTransportException;
 import org.elasticsearch.transport.SendRequestTransportException;
+import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseOptions;
 import org.elasticsearch.transport.TransportService;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,7 +85,7 @@ public class ShardStateActionTests extends ESTestCase {
 
     private static class TestShardStateAction extends ShardStateAction {
         public TestShardStateAction(Settings settings, ClusterService clusterService, TransportService transportService, AllocationService allocationService, RoutingService routingService) {
-            super(settings, clusterService, transportService, allocationService, routingService);
+            super(settings, clusterService, transportService, allocationService, routingService, THREAD_POOL);
         }
 
         private Runnable onBeforeWaitForNewMasterAndRetry;
@@ -293,6 +306,137 @@ public class ShardStateActionTests extends ESTestCase {
         assertTrue(failure.get());
     }
 
+    public void testShardStartedBatchDelay() throws Exception {
+        final String index = "test";
+        clusterService.setState(stateWithStartedPrimary(index, true, randomInt(5)));
+        final List<Runnable> scheduled = new ArrayList<>();
+        final AtomicBoolean rejectSchedule = new AtomicBoolean();
+        final ThreadPool threadPool = new ThreadPool("testShardStartedBatchDelay") {
+            @Override
+            public ScheduledFuture<?> schedule(TimeValue delay, String name, Runnable command) {
+                assertThat(delay.millis(), equalTo(50L));
+                if (rejectSchedule.get()) {
+                    throw new EsRejectedExecutionException("rejected");
+                }
+                scheduled.add(command);
+                return null;
+            }
+        };
+        try {
+            final List<ShardStateAction.ShardRoutingEntry> submitted = new ArrayList<>();
+            final TestClusterService capturingClusterService = new TestClusterService(clusterService.state()) {
+                @Override
+                public synchronized <T> void submitStateUpdateTask(String source, T task, ClusterStateTaskConfig config,
+                                                                   ClusterStateTaskExecutor<T> executor, ClusterStateTaskListener listener) {
+                    submitted.add((ShardStateAction.ShardRoutingEntry) task);
+                }
+            };
+            final List<List<? extends ShardRouting>> appliedBatches = new ArrayList<>();
+            final AllocationService allocationService = new AllocationService(Settings.EMPTY, null, null, null) {
+                @Override
+                public RoutingAllocation.Result applyStartedShards(ClusterState clusterState, List<? extends ShardRouting> startedShards, boolean withReroute) {
+                    appliedBatches.add(startedShards);
+                    return new RoutingAllocation.Result(false, clusterState.routingTable(), clusterState.metaData());
+                }
+            };
+            final ShardStateAction.BatchSizes batchSizes = new ShardStateAction.BatchSizes();
+            final ShardStateAction.ShardStartedClusterStateTaskExecutor executor =
+                new ShardStateAction.ShardStartedClusterStateTaskExecutor(allocationService, batchSizes, logger);
+            final ShardStateAction.ShardStartedTransportHandler handler = new ShardStateAction.ShardStartedTransportHandler(
+                capturingClusterService, executor, threadPool, TimeValue.timeValueMillis(50), logger);
+
+            final String indexUUID = clusterService.state().metaData().index(index).getIndexUUID();
+            final ShardRouting first = TestShardRouting.newShardRouting(index, 0, "node1", true, ShardRoutingState.INITIALIZING, 1);
+            final ShardRouting second = TestShardRouting.newShardRouting(index, 1, "node1", true, ShardRoutingState.INITIALIZING, 1);
+            final ShardRouting third = TestShardRouting.newShardRouting(index, 2, "node2", true, ShardRoutingState.INITIALIZING, 1);
+            // duplicates interleaved with other shards, as when nodes resend their messages
+            final ShardRouting[] started = new ShardRouting[] {first, second, first, third, second};
+            final TestTransportChannel channel = new TestTransportChannel();
+            for (ShardRouting shardRouting : started) {
+                handler.messageReceived(new ShardStateAction.ShardRoutingEntry(shardRouting, indexUUID, "test", null), channel);
+                // the sender doesn't wait for the batch
+                assertThat(channel.responses.getAndSet(0), equalTo(1));
+            }
+            assertThat(submitted.size(), equalTo(0));
+            assertThat(scheduled.size(), equalTo(1));
+
+            scheduled.get(0).run();
+            assertThat(submitted.size(), equalTo(started.length));
+            // the cluster service hands all pending tasks of the executor to a single execute call
+            ClusterStateTaskExecutor.BatchResult<ShardStateAction.ShardRoutingEntry> result = executor.execute(clusterService.state(), submitted);
+            assertThat(appliedBatches.size(), equalTo(1));
+            assertEquals(Arrays.asList(first, second, third), appliedBatches.get(0));
+            for (ShardStateAction.ShardRoutingEntry entry : submitted) {
+                assertTrue(result.executionResults.get(entry).isSuccess());
+            }
+            assertThat(batchSizes.getBatchCount(), equalTo(1L));
+            assertThat(batchSizes.getTaskCount(), equalTo((long) started.length));
+            assertThat(batchSizes.getMax(), equalTo((long) started.length));
+
+            executor.execute(clusterService.state(), submitted.subList(0, 1));
+            assertThat(batchSizes.getBatchCount(), equalTo(2L));
+            assertThat(batchSizes.getTaskCount(), equalTo((long) started.length + 1));
+            assertThat(batchSizes.getMax(), equalTo((long) started.length));
+
+            // entries arriving after a flush schedule the next one
+            handler.messageReceived(new ShardStateAction.ShardRoutingEntry(third, indexUUID, "test", null), channel);
+            assertThat(scheduled.size(), equalTo(2));
+            assertThat(submitted.size(), equalTo(started.length));
+
+            // entries are submitted right away if the flush can't be scheduled, later entries aren't stranded
+            submitted.clear();
+            scheduled.get(1).run();
+            assertThat(submitted.size(), equalTo(1));
+            rejectSchedule.set(true);
+            handler.messageReceived(new ShardStateAction.ShardRoutingEntry(first, indexUUID, "test", null), channel);
+            assertThat(submitted.size(), equalTo(2));
+            handler.messageReceived(new ShardStateAction.ShardRoutingEntry(second, indexUUID, "test", null), channel);
+            assertThat(submitted.size(), equalTo(3));
+            assertThat(scheduled.size(), equalTo(2));
+        } finally {
+            ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static class TestTransportChannel implements TransportChannel {
+        private final AtomicInteger responses = new AtomicInteger();
+
+        @Override
+        public String action() {
+            return ShardStateAction.SHARD_STARTED_ACTION_NAME;
+        }
+
+        @Override
+        public String getProfileName() {
+            return "";
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) throws IOException {
+            responses.incrementAndGet();
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
+            responses.incrementAndGet();
+        }
+
+        @Override
+        public void sendResponse(Throwable error) throws IOException {
+            throw new AssertionError("unexpected failure", error);
+        }
+
+        @Override
+        public long getRequestId() {
+            return 0;
+        }
+
+        @Override
+        public String getChannelType() {
+            return "test";
+        }
+    }
+
     private ShardRouting getRandomShardRouting(String index) {
         IndexRoutingTable indexRoutingTable = clusterService.state().routingTable().index(index);
         ShardsIterator shardsIterator = indexRoutingTable.randomAllActiveShardsIt();
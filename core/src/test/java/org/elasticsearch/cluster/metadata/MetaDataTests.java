@@ -20,7 +20,10 @@
 package org.elasticsearch.cluster.metadata;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.cluster.Diff;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -31,6 +34,7 @@ import java.io.IOException;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 
 public class MetaDataTests extends ESTestCase {
 
@@ -148,4 +152,34 @@ public class MetaDataTests extends ESTestCase {
             assertEquals("Unexpected field [random]", e.getMessage());
         }
     }
+
+    public void testIndexMetaDataSettingsDiff() throws IOException {
+        Settings baseSettings = Settings.builder()
+                .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+                .build();
+        IndexMetaData before = IndexMetaData.builder("index")
+                .settings(Settings.builder().put(baseSettings).put("index.changed", "a").put("index.removed", "b"))
+                .build();
+        IndexMetaData after = IndexMetaData.builder("index")
+                .settings(Settings.builder().put(baseSettings).put("index.changed", "c").put("index.added", "d"))
+                .build();
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        after.diff(before).writeTo(out);
+        Diff<IndexMetaData> diff = IndexMetaData.PROTO.readDiffFrom(StreamInput.wrap(out.bytes()));
+        IndexMetaData applied = diff.apply(before);
+
+        assertEquals(after.getSettings().getAsMap(), applied.getSettings().getAsMap());
+        assertNull(applied.getSettings().get("index.removed"));
+        assertEquals("c", applied.getSettings().get("index.changed"));
+
+        // only the changed keys go over the wire
+        BytesStreamOutput full = new BytesStreamOutput();
+        Settings.writeSettingsToStream(after.getSettings(), full);
+        BytesStreamOutput unchanged = new BytesStreamOutput();
+        after.diff(after).writeTo(unchanged);
+        assertThat(unchanged.size(), lessThan(full.size()));
+    }
 }
@@ -36,16 +36,25 @@ import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
 import org.elasticsearch.cluster.routing.allocation.allocator.ShardsAllocator;
 import org.elasticsearch.cluster.routing.allocation.allocator.ShardsAllocators;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.test.ESAllocationTestCase;
 import org.elasticsearch.test.gateway.NoopGatewayAllocator;
 import org.hamcrest.Matchers;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.RELOCATING;
 import static org.elasticsearch.cluster.routing.ShardRoutingState.STARTED;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 
@@ -287,6 +296,7 @@ public class BalanceConfigurationTests extends ESAllocationTestCase {
         assertThat(allocator.getIndexBalance(), Matchers.equalTo(0.2f));
         assertThat(allocator.getShardBalance(), Matchers.equalTo(0.3f));
         assertThat(allocator.getThreshold(), Matchers.equalTo(2.0f));
+        assertThat(allocator.getMaxRebalanceTime(), Matchers.equalTo(TimeValue.timeValueMillis(-1)));
 
         settings = settingsBuilder();
         settings.put(BalancedShardsAllocator.INDEX_BALANCE_FACTOR_SETTING.getKey(), 0.2);
@@ -302,10 +312,74 @@ public class BalanceConfigurationTests extends ESAllocationTestCase {
         settings.put(BalancedShardsAllocator.INDEX_BALANCE_FACTOR_SETTING.getKey(), 0.5);
         settings.put(BalancedShardsAllocator.SHARD_BALANCE_FACTOR_SETTING.getKey(), 0.1);
         settings.put(BalancedShardsAllocator.THRESHOLD_SETTING.getKey(), 3.0);
+        settings.put(BalancedShardsAllocator.MAX_REBALANCE_TIME_SETTING.getKey(), "500ms");
         service.applySettings(settings.build());
         assertThat(allocator.getIndexBalance(), Matchers.equalTo(0.5f));
         assertThat(allocator.getShardBalance(), Matchers.equalTo(0.1f));
         assertThat(allocator.getThreshold(), Matchers.equalTo(3.0f));
+        assertThat(allocator.getMaxRebalanceTime(), Matchers.equalTo(TimeValue.timeValueMillis(500)));
+    }
+
+    public void testMaxRebalanceTime() {
+        try {
+            new BalancedShardsAllocator(settingsBuilder().put(BalancedShardsAllocator.MAX_REBALANCE_TIME_SETTING.getKey(), "0").build());
+            fail("a budget of 0 would disable rebalancing");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        // every rebalance decision takes longer than the budget, so each round stops after the first index it moved shards of
+        Settings settings = settingsBuilder().put(BalancedShardsAllocator.MAX_REBALANCE_TIME_SETTING.getKey(), "1ms").build();
+        AllocationDeciders deciders = new AllocationDeciders(Settings.EMPTY, new AllocationDecider[] {new TestAllocateDecision(Decision.YES) {
+            @Override
+            public Decision canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Decision.YES;
+            }
+        }});
+        AllocationService strategy = new MockAllocationService(settings, deciders,
+            new ShardsAllocators(settings, NoopGatewayAllocator.INSTANCE), EmptyClusterInfoService.INSTANCE);
+
+        final int numIndices = randomIntBetween(3, 6);
+        MetaData.Builder metaDataBuilder = MetaData.builder();
+        RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (int i = 0; i < numIndices; i++) {
+            IndexMetaData indexMetaData = IndexMetaData.builder("test" + i).settings(settings(Version.CURRENT)).numberOfShards(4).numberOfReplicas(0).build();
+            metaDataBuilder.put(indexMetaData, false);
+            routingTableBuilder.addAsNew(indexMetaData);
+        }
+        ClusterState clusterState = ClusterState.builder(org.elasticsearch.cluster.ClusterName.DEFAULT)
+            .nodes(DiscoveryNodes.builder().put(newNode("node0")).put(newNode("node1")))
+            .metaData(metaDataBuilder).routingTable(routingTableBuilder.build()).build();
+        clusterState = ClusterState.builder(clusterState).routingTable(strategy.reroute(clusterState, "reroute").routingTable()).build();
+        clusterState = ClusterState.builder(clusterState)
+            .routingTable(strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable()).build();
+        assertThat(clusterState.getRoutingNodes().shardsWithState(STARTED).size(), Matchers.equalTo(numIndices * 4));
+
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder(clusterState.nodes()).put(newNode("node2"))).build();
+        RoutingTable routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        int rounds = 0;
+        while (true) {
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+            List<ShardRouting> relocating = clusterState.getRoutingNodes().shardsWithState(RELOCATING);
+            if (relocating.isEmpty()) {
+                break;
+            }
+            rounds++;
+            // the round was cut short after relocating shards of a single index
+            Set<String> relocatingIndices = new HashSet<>();
+            for (ShardRouting shard : relocating) {
+                relocatingIndices.add(shard.index());
+            }
+            assertThat(relocatingIndices.size(), Matchers.equalTo(1));
+            // completing the relocations reroutes, which picks up the remaining indices
+            routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+        }
+        assertThat(rounds, Matchers.greaterThan(1));
     }
 
     public void testNoRebalanceOnPrimaryOverload() {
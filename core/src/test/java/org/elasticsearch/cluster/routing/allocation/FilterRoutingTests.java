@@ -20,20 +20,30 @@
 package org.elasticsearch.cluster.routing.allocation;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterInfo;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
+import org.elasticsearch.cluster.routing.allocation.decider.Decision;
+import org.elasticsearch.cluster.routing.allocation.decider.FilterAllocationDecider;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ESAllocationTestCase;
 import org.hamcrest.Matchers;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.singletonMap;
 import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
@@ -229,4 +239,78 @@ public class FilterRoutingTests extends ESAllocationTestCase {
         clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
         assertThat(clusterState.getRoutingNodes().node(node2.getId()).numberOfShardsWithState(STARTED), equalTo(4));
     }
+
+    public void testCachedValueIsComputedOncePerAllocation() {
+        ClusterState clusterState = ClusterState.builder(org.elasticsearch.cluster.ClusterName.DEFAULT)
+                .nodes(DiscoveryNodes.builder().put(newNode("node1"))).build();
+        AllocationDeciders deciders = new AllocationDeciders(Settings.EMPTY, new AllocationDecider[0]);
+        RoutingAllocation allocation = new RoutingAllocation(deciders, clusterState.getRoutingNodes(), clusterState.nodes(), ClusterInfo.EMPTY, System.nanoTime());
+
+        final Object key1 = new Object();
+        final Object key2 = new Object();
+        final AtomicInteger calls = new AtomicInteger();
+        final int iterations = randomIntBetween(1, 10);
+        for (int i = 0; i < iterations; i++) {
+            assertEquals("value1", allocation.cached(key1, () -> {
+                calls.incrementAndGet();
+                return "value1";
+            }));
+            assertEquals("value2", allocation.cached(key2, () -> {
+                calls.incrementAndGet();
+                return "value2";
+            }));
+        }
+        assertEquals(2, calls.get());
+
+        // a new allocation starts with an empty cache
+        allocation = new RoutingAllocation(deciders, clusterState.getRoutingNodes(), clusterState.nodes(), ClusterInfo.EMPTY, System.nanoTime());
+        assertEquals("value3", allocation.cached(key1, () -> {
+            calls.incrementAndGet();
+            return "value3";
+        }));
+        assertEquals(3, calls.get());
+    }
+
+    public void testClusterFilterDecisionsAreCachedPerNodeAndAllocation() {
+        ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        FilterAllocationDecider decider = new FilterAllocationDecider(settingsBuilder()
+                .put("cluster.routing.allocation.exclude.tag1", "value2")
+                .build(), clusterSettings);
+        AllocationDeciders deciders = new AllocationDeciders(Settings.EMPTY, new AllocationDecider[]{decider});
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(randomIntBetween(1, 5)).numberOfReplicas(0))
+                .build();
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+        ClusterState clusterState = ClusterState.builder(org.elasticsearch.cluster.ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable)
+                .nodes(DiscoveryNodes.builder()
+                        .put(newNode("node1", singletonMap("tag1", "value1")))
+                        .put(newNode("node2", singletonMap("tag1", "value2"))))
+                .build();
+        RoutingNodes routingNodes = clusterState.getRoutingNodes();
+        RoutingNode node1 = routingNodes.node("node1");
+        RoutingNode node2 = routingNodes.node("node2");
+        List<ShardRouting> shards = clusterState.routingTable().allShards("test");
+
+        RoutingAllocation allocation = new RoutingAllocation(deciders, routingNodes, clusterState.nodes(), ClusterInfo.EMPTY, System.nanoTime());
+        for (ShardRouting shard : shards) {
+            assertEquals(Decision.Type.YES, deciders.canAllocate(shard, node1, allocation).type());
+            assertEquals(Decision.Type.NO, deciders.canAllocate(shard, node2, allocation).type());
+        }
+
+        // the cluster filters are evaluated once per node and allocation, so an update is only seen by the next allocation
+        clusterSettings.applySettings(settingsBuilder().put("cluster.routing.allocation.exclude.tag1", "value1").build());
+        for (ShardRouting shard : shards) {
+            assertEquals(Decision.Type.YES, deciders.canAllocate(shard, node1, allocation).type());
+            assertEquals(Decision.Type.NO, deciders.canAllocate(shard, node2, allocation).type());
+        }
+
+        allocation = new RoutingAllocation(deciders, routingNodes, clusterState.nodes(), ClusterInfo.EMPTY, System.nanoTime());
+        for (ShardRouting shard : shards) {
+            assertEquals(Decision.Type.NO, deciders.canAllocate(shard, node1, allocation).type());
+            assertEquals(Decision.Type.YES, deciders.canAllocate(shard, node2, allocation).type());
+        }
+    }
 }
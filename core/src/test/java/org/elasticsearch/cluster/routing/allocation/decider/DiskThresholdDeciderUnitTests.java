@@ -212,6 +212,46 @@ public class DiskThresholdDeciderUnitTests extends ESTestCase {
         assertEquals("can stay since we don't have information about this shard", Decision.YES, decider.canRemain(test_2, new RoutingNode("node_1", node_1), allocation));
     }
 
+    public void testUnknownNodesUseAverageUsageAndAreProfiled() {
+        ClusterSettings nss = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        ClusterInfoService cis = EmptyClusterInfoService.INSTANCE;
+        DiskThresholdDecider decider = new DiskThresholdDecider(Settings.EMPTY, nss, cis, null);
+
+        ShardRouting test_0 = ShardRouting.newUnassigned("test", 0, null, true, new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "foo"));
+        DiscoveryNode node_0 = new DiscoveryNode("node_0", DummyTransportAddress.INSTANCE, Version.CURRENT);
+        DiscoveryNode node_1 = new DiscoveryNode("node_1", DummyTransportAddress.INSTANCE, Version.CURRENT);
+        DiscoveryNode node_2 = new DiscoveryNode("node_2", DummyTransportAddress.INSTANCE, Version.CURRENT);
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(1))
+                .build();
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+        ClusterState clusterState = ClusterState.builder(org.elasticsearch.cluster.ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable)
+                .nodes(DiscoveryNodes.builder().put(node_0).put(node_1).put(node_2)).build();
+
+        // node_2 has no usage, so it gets the average of 95% used disk which is above the high watermark
+        ImmutableOpenMap.Builder<String, DiskUsage> usages = ImmutableOpenMap.builder();
+        usages.put("node_0", new DiskUsage("node_0", "node_0", "_na_", 100, 2));
+        usages.put("node_1", new DiskUsage("node_1", "node_1", "_na_", 100, 8));
+        ImmutableOpenMap<String, DiskUsage> diskUsages = usages.build();
+        final ClusterInfo clusterInfo = new ClusterInfo(diskUsages, diskUsages, ImmutableOpenMap.of(), ImmutableOpenMap.of());
+        RoutingAllocation allocation = new RoutingAllocation(new AllocationDeciders(Settings.EMPTY, new AllocationDecider[]{decider}), clusterState.getRoutingNodes(), clusterState.nodes(), clusterInfo, System.nanoTime());
+        allocation.profileDeciders(true);
+
+        final int iterations = randomIntBetween(1, 5);
+        for (int i = 0; i < iterations; i++) {
+            assertEquals(Decision.NO, allocation.deciders().canAllocate(test_0, new RoutingNode("node_2", node_2), allocation));
+        }
+        long[] timing = allocation.deciderTimings().get(DiskThresholdDecider.class.getSimpleName());
+        assertNotNull(timing);
+        assertEquals(iterations, timing[0]);
+        assertTrue(timing[1] >= 0);
+
+        allocation = new RoutingAllocation(new AllocationDeciders(Settings.EMPTY, new AllocationDecider[]{decider}), clusterState.getRoutingNodes(), clusterState.nodes(), clusterInfo, System.nanoTime());
+        assertTrue(allocation.deciderTimings().isEmpty());
+    }
 
     public void testShardSizeAndRelocatingSize() {
         ImmutableOpenMap.Builder<String, Long> shardSizes = ImmutableOpenMap.builder();
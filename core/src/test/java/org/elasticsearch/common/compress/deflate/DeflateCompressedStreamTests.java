@@ -20,6 +20,11 @@
 package org.elasticsearch.common.compress.deflate;
 
 import org.elasticsearch.common.compress.AbstractCompressedStreamTestCase;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
 
 public class DeflateCompressedStreamTests extends AbstractCompressedStreamTestCase {
 
@@ -27,4 +32,28 @@ public class DeflateCompressedStreamTests extends AbstractCompressedStreamTestCa
         super(new DeflateCompressor());
     }
 
+    public void testStreamsAreReadableAcrossLevels() throws IOException {
+        final DeflateCompressor writer = new DeflateCompressor(randomIntBetween(1, 9));
+        final DeflateCompressor reader = new DeflateCompressor(randomIntBetween(1, 9));
+        final String value = randomRealisticUnicodeOfLengthBetween(0, 1024);
+
+        BytesStreamOutput bytes = new BytesStreamOutput();
+        try (StreamOutput out = writer.streamOutput(bytes)) {
+            out.writeString(value);
+        }
+        assertTrue(reader.isCompressed(bytes.bytes()));
+        try (StreamInput in = reader.streamInput(bytes.bytes().streamInput())) {
+            assertEquals(value, in.readString());
+        }
+    }
+
+    public void testInvalidLevel() {
+        try {
+            new DeflateCompressor(randomBoolean() ? 0 : 10);
+            fail("expected an exception for an out of range level");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("compression level must be between"));
+        }
+    }
+
 }
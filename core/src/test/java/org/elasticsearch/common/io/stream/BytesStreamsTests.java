@@ -26,6 +26,8 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static org.hamcrest.Matchers.closeTo;
@@ -487,4 +489,71 @@ public class BytesStreamsTests extends ESTestCase {
             assertEquals(point, geoPoint);
         }
     }
+
+    public void testWriteReadStrings() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        final int numStrings = randomIntBetween(1, 20);
+        String[] strings = new String[numStrings];
+        for (int i = 0; i < numStrings; i++) {
+            // cover both short strings and ones that need more than a single buffer flush
+            strings[i] = randomBoolean() ? randomRealisticUnicodeOfLengthBetween(0, 10) : randomRealisticUnicodeOfLengthBetween(1000, 5000);
+            out.writeString(strings[i]);
+        }
+        StreamInput in = StreamInput.wrap(out.bytes());
+        for (int i = 0; i < numStrings; i++) {
+            assertThat(in.readString(), equalTo(strings[i]));
+        }
+        assertEquals(-1, in.read());
+    }
+
+    public void testAsciiStringIsOneBytePerChar() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        String ascii = randomAsciiOfLength(randomIntBetween(1, 100));
+        out.writeString(ascii);
+        // a vint for lengths up to 127 is a single byte
+        assertEquals(ascii.length() + 1, out.size());
+    }
+
+    public void testWriteReadAsciiAndNonAsciiStrings() throws IOException {
+        // longer than a single buffer so that both the ascii and the multi byte path write in several chunks
+        final String ascii = randomAsciiOfLength(randomIntBetween(3100, 5000));
+        final String nonAscii = "\u00e9\u4e2d" + randomRealisticUnicodeOfLengthBetween(1000, 2000);
+        final String mixed = ascii + "\u00e9" + ascii + "\u4e2d";
+        final String[] strings = new String[] {"", ascii, nonAscii, mixed, "\u007f", "\u0080", "\u07ff", "\u0800", "\uffff"};
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings) {
+            out.writeString(string);
+        }
+        StreamInput in = StreamInput.wrap(out.bytes());
+        for (String string : strings) {
+            assertThat(in.readString(), equalTo(string));
+        }
+        assertEquals(-1, in.read());
+
+        // a long ascii string is still one byte per char, the vint for its length takes two bytes
+        out = new BytesStreamOutput();
+        out.writeString(ascii);
+        assertEquals(ascii.length() + 2, out.size());
+    }
+
+    public void testReadMultiByteCharsAcrossChunks() throws IOException {
+        // strings are read in chunks of up to 1024 bytes, put multi byte chars right before and after the chunk borders
+        final String ascii = randomAsciiOfLength(1024 + randomIntBetween(1, 100));
+        final List<String> strings = new ArrayList<>();
+        for (int offset = 1019; offset <= 1025; offset++) {
+            strings.add(ascii.substring(0, offset) + "\u00e9" + ascii.substring(offset));
+            strings.add(ascii.substring(0, offset) + "\u4e2d" + ascii.substring(offset));
+            strings.add(ascii.substring(0, offset) + "\u4e2d\u00e9\u4e2d" + ascii.substring(offset) + "\u4e2d");
+        }
+        strings.add(randomRealisticUnicodeOfLengthBetween(2000, 3000));
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings) {
+            out.writeString(string);
+        }
+        StreamInput in = StreamInput.wrap(out.bytes());
+        for (String string : strings) {
+            assertThat(in.readString(), equalTo(string));
+        }
+        assertEquals(-1, in.read());
+    }
 }
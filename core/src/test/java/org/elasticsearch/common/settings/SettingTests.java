@@ -142,6 +142,24 @@ public class SettingTests extends ESTestCase {
         assertEquals(integerSetting.getScope(), Setting.Scope.INDEX);
     }
 
+    public void testIntSettingBounds() {
+        Setting<Integer> integerSetting = Setting.intSetting("foo.int.bar", 5, 1, 9, false, Setting.Scope.CLUSTER);
+        assertEquals(5, (int) integerSetting.get(Settings.EMPTY));
+        assertEquals(9, (int) integerSetting.get(Settings.builder().put("foo.int.bar", 9).build()));
+        try {
+            integerSetting.get(Settings.builder().put("foo.int.bar", 10).build());
+            fail("value is above the maximum");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Failed to parse value [10] for setting [foo.int.bar] must be <= 9", ex.getMessage());
+        }
+        try {
+            integerSetting.get(Settings.builder().put("foo.int.bar", 0).build());
+            fail("value is below the minimum");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Failed to parse value [0] for setting [foo.int.bar] must be >= 1", ex.getMessage());
+        }
+    }
+
     public void testGroups() {
         AtomicReference<Settings> ref = new AtomicReference<>(null);
         Setting<Settings> setting = Setting.groupSetting("foo.bar.", true, Setting.Scope.CLUSTER);
@@ -19,10 +19,15 @@
 
 package org.elasticsearch.common.xcontent.support;
 
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.test.ESTestCase;
 import org.hamcrest.Matchers;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -61,5 +66,34 @@ public class XContentHelperTests extends ESTestCase {
         assertThat(content, Matchers.equalTo(expected));
     }
 
+    public void testStreamingUpdateMatchesMapUpdate() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        BytesReference source = XContentFactory.contentBuilder(xContentType).startObject()
+                .field("counter", 1)
+                .field("name", "foo")
+                .startObject("nested").field("a", 1).field("b", "b").endObject()
+                .startArray("tags").value("x").value("y").endArray()
+                .endObject().bytes();
+        assertStreamingUpdate(source, getMap("counter", 2), true, true);
+        assertStreamingUpdate(source, getMap("counter", 1), true, false);
+        assertStreamingUpdate(source, getMap("counter", 1), false, true);
+        assertStreamingUpdate(source, getMap("new_field", "bar"), true, true);
+        assertStreamingUpdate(source, getMap("nested", getMap("b", "c", "d", 2)), true, true);
+        assertStreamingUpdate(source, getMap("nested", getMap("a", 1)), true, false);
+        assertStreamingUpdate(source, getMap("nested", "no longer an object"), true, true);
+        assertStreamingUpdate(source, getMap("tags", getList("x", "y")), true, false);
+        assertStreamingUpdate(source, getMap("tags", getList("z")), true, true);
+        assertStreamingUpdate(source, getMap("name", null), true, true);
+        assertStreamingUpdate(source, getMap(), true, false);
+    }
+
+    private void assertStreamingUpdate(BytesReference source, Map<String, Object> changes, boolean detectNoop, boolean expectModified) throws IOException {
+        XContentType xContentType = XContentFactory.xContentType(source);
+        Map<String, Object> expected = XContentHelper.convertToMap(source, true).v2();
+        assertThat(XContentHelper.update(expected, changes, detectNoop), Matchers.equalTo(expectModified));
+        XContentBuilder builder = XContentFactory.contentBuilder(xContentType);
+        assertThat(XContentHelper.update(source, changes, detectNoop, builder), Matchers.equalTo(expectModified));
+        assertThat(XContentHelper.convertToMap(builder.bytes(), true).v2(), Matchers.equalTo(expected));
+    }
 
 }
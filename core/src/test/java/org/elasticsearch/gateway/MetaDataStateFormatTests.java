@@ -63,6 +63,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 
 @LuceneTestCase.SuppressFileSystems("ExtrasFS") // TODO: fix test to work with ExtrasFS
@@ -135,6 +136,73 @@ public class MetaDataStateFormatTests extends ESTestCase {
         }
     }
 
+    public void testUnchangedStateIsNotRewritten() throws IOException {
+        Path[] dirs = new Path[randomIntBetween(1, 5)];
+        for (int i = 0; i < dirs.length; i++) {
+            dirs[i] = createTempDir();
+        }
+        Format format = new Format(randomFrom(XContentType.values()), "foo-");
+        DummyState state = new DummyState(randomRealisticUnicodeOfCodepointLengthBetween(1, 1000), randomInt(), randomLong(), randomDouble(), randomBoolean());
+        int version = between(0, Integer.MAX_VALUE/2);
+        format.write(state, version, dirs);
+        final long id = format.findMaxStateId("foo-", dirs);
+        format.write(state, version, dirs);
+        assertThat(format.findMaxStateId("foo-", dirs), equalTo(id));
+
+        // the same state with another version is a different content
+        format.write(state, version + 1, dirs);
+        assertThat(format.findMaxStateId("foo-", dirs), equalTo(id + 1));
+
+        // a corrupted latest state file is written again
+        corruptFile(randomFrom(dirs).resolve(MetaDataStateFormat.STATE_DIR_NAME).resolve("foo-" + (id + 1) + ".st"), logger);
+        format.write(state, version + 1, dirs);
+        assertThat(format.findMaxStateId("foo-", dirs), equalTo(id + 2));
+        for (Path file : dirs) {
+            Path[] list = content("foo-*", file.resolve(MetaDataStateFormat.STATE_DIR_NAME));
+            assertEquals(list.length, 1);
+            assertThat(format.read(list[0]), equalTo(state));
+        }
+    }
+
+    public void testWriteBatch() throws IOException {
+        Path[] fooDirs = new Path[randomIntBetween(1, 3)];
+        for (int i = 0; i < fooDirs.length; i++) {
+            fooDirs[i] = createTempDir();
+        }
+        Path[] barDirs = new Path[randomIntBetween(1, 3)];
+        for (int i = 0; i < barDirs.length; i++) {
+            barDirs[i] = createTempDir();
+        }
+        Format fooFormat = new Format(randomFrom(XContentType.values()), "foo-");
+        Format barFormat = new Format(randomFrom(XContentType.values()), "bar-");
+        DummyState fooState = new DummyState(randomRealisticUnicodeOfCodepointLengthBetween(1, 1000), randomInt(), randomLong(), randomDouble(), randomBoolean());
+        DummyState barState = new DummyState(randomRealisticUnicodeOfCodepointLengthBetween(1, 1000), randomInt(), randomLong(), randomDouble(), randomBoolean());
+        fooFormat.write(fooState, 1, fooDirs);
+
+        MetaDataStateFormat.WriteBatch batch = new MetaDataStateFormat.WriteBatch();
+        assertFalse(batch.add(fooFormat, fooState, 1, fooDirs));
+        assertTrue(batch.add(barFormat, barState, 1, barDirs));
+        try {
+            batch.add(barFormat, barState, 2, barDirs);
+            fail("expected a pending state to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), startsWith("a state with prefix [bar-] is already pending"));
+        }
+        assertThat(batch.size(), equalTo(1));
+        // nothing is visible before the batch is committed
+        assertThat(barFormat.loadLatestState(logger, barDirs), nullValue());
+
+        batch.commit();
+        assertThat(batch.size(), equalTo(0));
+        assertThat(fooFormat.loadLatestState(logger, fooDirs), equalTo(fooState));
+        assertThat(barFormat.loadLatestState(logger, barDirs), equalTo(barState));
+        for (Path dir : barDirs) {
+            Path[] list = content("*", dir.resolve(MetaDataStateFormat.STATE_DIR_NAME));
+            assertEquals(list.length, 1);
+            assertThat(list[0].getFileName().toString(), equalTo("bar-0.st"));
+        }
+    }
+
     public void testVersionMismatch() throws IOException {
         Path[] dirs = new Path[randomIntBetween(1, 5)];
         for (int i = 0; i < dirs.length; i++) {
@@ -40,6 +40,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -305,6 +306,63 @@ public class IndexServiceTests extends ESSingleNodeTestCase {
         });
     }
 
+    public void testScheduledRefreshSkippedWhileSearchIdle() throws Exception {
+        Settings settings = Settings.builder()
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), "0ms") // search idle right away
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), "1ms")
+            .build();
+        IndexService indexService = createIndex("test", settings);
+        ensureGreen("test");
+        IndexShard shard = indexService.getShard(0);
+        assertTrue(shard.isSearchIdle());
+        client().prepareIndex("test", "test", "1").setSource("{\"foo\": \"bar\"}").get();
+        assertTrue(shard.isRefreshNeeded());
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(shard.isRefreshNeeded());
+        // stats don't wake the shard up
+        assertEquals(0, shard.docStats().getCount());
+        assertTrue(shard.isRefreshNeeded());
+        // the first searches on an idle shard all wait for the same refresh
+        final int numThreads = randomIntBetween(1, 4);
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        final AtomicInteger stale = new AtomicInteger();
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+                        if (searcher.searcher().search(new MatchAllDocsQuery(), 10).totalHits != 1) {
+                            stale.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, stale.get());
+        assertFalse(shard.isRefreshNeeded());
+
+        // disable search idle, scheduled refreshes are executed again
+        IndexMetaData metaData = IndexMetaData.builder(indexService.getMetaData()).settings(Settings.builder().put(indexService.getMetaData().getSettings()).put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), -1)).build();
+        indexService.updateMetaData(metaData);
+        assertFalse(shard.isSearchIdle());
+        client().prepareIndex("test", "test", "2").setSource("{\"foo\": \"bar\"}").get();
+        assertBusy(() -> {
+            try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+                TopDocs search = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+                assertEquals(2, search.totalHits);
+            } catch (IOException e) {
+                fail(e.getMessage());
+            }
+        });
+    }
+
     public void testAsyncFsyncActuallyWorks() throws Exception {
         Settings settings = Settings.builder()
             .put(IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.getKey(), "10ms") // very often :)
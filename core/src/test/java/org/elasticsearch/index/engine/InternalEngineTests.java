@@ -574,6 +574,49 @@ public class InternalEngineTests extends ESTestCase {
         latestGetResult.get().release();
     }
 
+    public void testWriteIndexingBufferDoesNotMakeDocumentsSearchable() throws Exception {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+                .put(defaultSettings.getSettings())
+                .put(IndexSettings.INDEX_WRITE_BUFFER_MAKE_SEARCHABLE_SETTING.getKey(), false)
+                .build());
+        try (Store store = createStore();
+             InternalEngine engine = createEngine(indexSettings, store, createTempDir(), newMergePolicy())) {
+            Document document = testDocumentWithTextField();
+            document.add(new Field(SourceFieldMapper.NAME, B_1.toBytes(), SourceFieldMapper.Defaults.FIELD_TYPE));
+            ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, document, B_1, null);
+            engine.index(new Engine.Index(newUid("1"), doc));
+            // make sure the version map is cleared so versions have to be loaded through the internal searcher
+            engine.markVersionMapRefreshPending();
+            engine.writeIndexingBuffer();
+            assertThat(engine.segmentsStats().getVersionMapMemoryInBytes(), equalTo(0L));
+
+            // the buffered document is not visible to searches...
+            try (Engine.Searcher searchResult = engine.acquireSearcher("test")) {
+                MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(0));
+            }
+            // ...but realtime gets and version checks still see it
+            Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("1")));
+            assertThat(getResult.exists(), equalTo(true));
+            getResult.release();
+            Engine.Index update = new Engine.Index(newUid("1"), doc, 1, VersionType.INTERNAL, PRIMARY, 0);
+            engine.index(update);
+            assertThat(update.version(), equalTo(2L));
+            engine.markVersionMapRefreshPending();
+            engine.writeIndexingBuffer();
+            try {
+                engine.index(new Engine.Index(newUid("1"), doc, 1, VersionType.INTERNAL, PRIMARY, 0));
+                fail("expected a version conflict");
+            } catch (VersionConflictEngineException e) {
+                // the stale version is detected through the internal searcher
+            }
+
+            engine.refresh("test");
+            try (Engine.Searcher searchResult = engine.acquireSearcher("test")) {
+                MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(1));
+            }
+        }
+    }
+
     public void testSimpleOperations() throws Exception {
         Engine.Searcher searchResult = engine.acquireSearcher("test");
         MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(0));
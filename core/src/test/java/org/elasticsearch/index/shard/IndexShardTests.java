@@ -85,6 +85,7 @@ import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreSummary;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.recovery.RecoveryState;
@@ -802,6 +803,38 @@ public class IndexShardTests extends ESSingleNodeTestCase {
         assertHitCount(response, 1);
     }
 
+    public void testStoreSummaryIsWrittenAfterCommit() throws Exception {
+        createIndex("test");
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService("test");
+        final IndexShard shard = test.getShardOrNull(0);
+        final ShardPath shardPath = shard.shardPath();
+
+        client().prepareIndex("test", "test", "0").setSource("{}").get();
+        client().admin().indices().prepareFlush("test").setForce(true).get();
+        final String segmentsFile = shard.store().getMetadata().getSegmentsFile().name();
+        assertBusy(() -> { // this is async
+            try {
+                Store.MetadataSnapshot summary = StoreSummary.loadIfCurrent(shardPath, logger);
+                assertNotNull(summary);
+                assertEquals(segmentsFile, summary.getSegmentsFile().name());
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+
+        // the final flush of a closing shard writes the summary before the shard is closed
+        client().prepareIndex("test", "test", "1").setSource("{}").get();
+        assertAcked(client().admin().indices().prepareClose("test"));
+        Store.MetadataSnapshot summary = StoreSummary.loadIfCurrent(shardPath, logger);
+        assertNotNull(summary);
+        Store.MetadataSnapshot snapshot = Store.readMetadataSnapshot(shardPath.resolveIndex(), logger);
+        assertEquals(snapshot.getSegmentsFile().name(), summary.getSegmentsFile().name());
+        assertEquals(snapshot.getNumDocs(), summary.getNumDocs());
+        assertEquals(2, summary.getNumDocs());
+    }
+
     public void testFailIfIndexNotPresentInRecoverFromStore() throws IOException {
         createIndex("test");
         ensureGreen();
@@ -902,6 +935,10 @@ public class IndexShardTests extends ESSingleNodeTestCase {
                 }
             }
 
+            @Override
+            public void resumeLazyRestore(SnapshotId snapshotId, Version version, ShardId shardId, ShardId snapshotShardId) {
+            }
+
             @Override
             public IndexShardSnapshotStatus snapshotStatus(SnapshotId snapshotId, Version version, ShardId shardId) {
                 return null;
@@ -0,0 +1,219 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MergeInfo;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BlockCacheDirectoryTests extends ESTestCase {
+
+    public void testReadsAreServedFromCache() throws IOException {
+        final byte[] content = randomByteArrayOfLength(randomIntBetween(1, 4 * BlockCacheDirectory.BLOCK_SIZE));
+        final int numBlocks = (content.length + BlockCacheDirectory.BLOCK_SIZE - 1) / BlockCacheDirectory.BLOCK_SIZE;
+        try (BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), createTempDir().resolve("cache"), 1 << 20)) {
+            write(directory, "foo", content);
+            assertContent(directory, "foo", content);
+            assertThat(directory.misses(), equalTo((long) numBlocks));
+            assertThat(directory.bytesSaved(), equalTo(0L));
+
+            assertContent(directory, "foo", content);
+            assertThat(directory.misses(), equalTo((long) numBlocks));
+            assertThat(directory.bytesSaved(), equalTo((long) content.length));
+
+            // merges bypass the cache
+            IOContext mergeContext = new IOContext(new MergeInfo(1, content.length, false, 1));
+            try (IndexInput input = directory.openInput("foo", mergeContext)) {
+                input.readBytes(new byte[content.length], 0, content.length);
+            }
+            assertThat(directory.misses(), equalTo((long) numBlocks));
+            assertThat(directory.bytesSaved(), equalTo((long) content.length));
+        }
+    }
+
+    public void testRewrittenFilesAreNotServedFromCache() throws IOException {
+        final byte[] content = randomByteArrayOfLength(randomIntBetween(1, 2 * BlockCacheDirectory.BLOCK_SIZE));
+        try (BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), createTempDir().resolve("cache"), 1 << 20)) {
+            write(directory, "foo", content);
+            assertContent(directory, "foo", content);
+
+            final byte[] newContent = randomByteArrayOfLength(content.length);
+            if (randomBoolean()) {
+                directory.deleteFile("foo");
+                write(directory, "foo", newContent);
+            } else {
+                write(directory, "bar", newContent);
+                directory.renameFile("bar", "foo");
+            }
+            assertContent(directory, "foo", newContent);
+            assertContent(directory, "foo", newContent);
+        }
+    }
+
+    public void testEviction() throws IOException {
+        final int blockSize = BlockCacheDirectory.BLOCK_SIZE;
+        try (BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), createTempDir().resolve("cache"), 2 * blockSize)) {
+            final byte[] hot = randomByteArrayOfLength(blockSize);
+            final byte[] cold = randomByteArrayOfLength(blockSize);
+            final byte[] other = randomByteArrayOfLength(blockSize);
+            write(directory, "hot", hot);
+            write(directory, "cold", cold);
+            write(directory, "other", other);
+            for (int i = 0; i < 3; i++) {
+                assertContent(directory, "hot", hot);
+            }
+            assertContent(directory, "cold", cold);
+            // the cache is full, the least frequently read block makes room
+            assertContent(directory, "other", other);
+            long misses = directory.misses();
+            assertContent(directory, "hot", hot);
+            assertThat(directory.misses(), equalTo(misses));
+            assertContent(directory, "cold", cold);
+            assertThat(directory.misses(), equalTo(misses + 1));
+        }
+    }
+
+    public void testBlocksAreReadWhole() throws IOException {
+        final byte[] content = randomByteArrayOfLength(randomIntBetween(1, 4 * BlockCacheDirectory.BLOCK_SIZE));
+        final int numBlocks = (content.length + BlockCacheDirectory.BLOCK_SIZE - 1) / BlockCacheDirectory.BLOCK_SIZE;
+        try (BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), createTempDir().resolve("cache"), 1 << 20)) {
+            write(directory, "foo", content);
+            assertContent(directory, "foo", content);
+            // reading byte by byte only looks up each block once
+            try (IndexInput input = directory.openInput("foo", IOContext.DEFAULT)) {
+                for (int i = 0; i < content.length; i++) {
+                    assertThat(input.readByte(), equalTo(content[i]));
+                }
+            }
+            assertThat(directory.hits(), equalTo((long) numBlocks));
+            assertThat(directory.misses(), equalTo((long) numBlocks));
+        }
+    }
+
+    public void testConcurrentReads() throws Exception {
+        final int numFiles = randomIntBetween(1, 5);
+        final byte[][] contents = new byte[numFiles][];
+        // a cache that is split into several segments and is smaller than the files
+        final long cacheSize = randomIntBetween(64, 512) * (long) BlockCacheDirectory.BLOCK_SIZE;
+        try (BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), createTempDir().resolve("cache"), cacheSize)) {
+            for (int i = 0; i < numFiles; i++) {
+                contents[i] = randomByteArrayOfLength(randomIntBetween(1, 128 * BlockCacheDirectory.BLOCK_SIZE));
+                write(directory, "file_" + i, contents[i]);
+            }
+            final Thread[] threads = new Thread[randomIntBetween(2, 8)];
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads.length; t++) {
+                final long seed = randomLong();
+                threads[t] = new Thread(() -> {
+                    Random random = new Random(seed);
+                    try {
+                        start.await();
+                        for (int iter = 0; iter < 100; iter++) {
+                            final int file = random.nextInt(numFiles);
+                            final byte[] content = contents[file];
+                            try (IndexInput input = directory.openInput("file_" + file, IOContext.DEFAULT)) {
+                                final int offset = random.nextInt(content.length);
+                                final int length = Math.min(content.length - offset, random.nextInt(4 * BlockCacheDirectory.BLOCK_SIZE) + 1);
+                                final byte[] read = new byte[length];
+                                input.seek(offset);
+                                input.readBytes(read, 0, length);
+                                for (int i = 0; i < length; i++) {
+                                    if (read[i] != content[offset + i]) {
+                                        throw new AssertionError("byte [" + (offset + i) + "] of [file_" + file + "] differs");
+                                    }
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError("concurrent read failed", failure.get());
+            }
+        }
+    }
+
+    public void testSlicesAndClones() throws IOException {
+        final byte[] content = randomByteArrayOfLength(randomIntBetween(2, 3 * BlockCacheDirectory.BLOCK_SIZE));
+        try (BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), createTempDir().resolve("cache"), 1 << 20)) {
+            write(directory, "foo", content);
+            try (IndexInput input = directory.openInput("foo", IOContext.DEFAULT)) {
+                int offset = randomIntBetween(1, content.length - 1);
+                IndexInput slice = input.slice("slice", offset, content.length - offset);
+                byte[] read = new byte[content.length - offset];
+                slice.readBytes(read, 0, read.length);
+                for (int i = 0; i < read.length; i++) {
+                    assertThat(read[i], equalTo(content[offset + i]));
+                }
+                IndexInput clone = input.clone();
+                clone.seek(offset);
+                assertThat(clone.readByte(), equalTo(content[offset]));
+                assertThat(input.getFilePointer(), equalTo(0L));
+            }
+        }
+    }
+
+    public void testCacheIsRemovedOnClose() throws IOException {
+        Path cacheLocation = createTempDir().resolve("cache");
+        BlockCacheDirectory directory = new BlockCacheDirectory(new RAMDirectory(), cacheLocation, 1 << 20);
+        assertTrue(Files.exists(cacheLocation));
+        assertThat(BlockCacheDirectory.unwrap(new FilterDirectory(directory) {}), sameInstance(directory));
+        assertThat(BlockCacheDirectory.unwrap(directory.getDelegate()), nullValue());
+        directory.close();
+        assertFalse(Files.exists(cacheLocation));
+    }
+
+    private static void write(BlockCacheDirectory directory, String name, byte[] content) throws IOException {
+        try (IndexOutput output = directory.createOutput(name, IOContext.DEFAULT)) {
+            output.writeBytes(content, content.length);
+        }
+    }
+
+    private static void assertContent(BlockCacheDirectory directory, String name, byte[] content) throws IOException {
+        try (IndexInput input = directory.openInput(name, IOContext.DEFAULT)) {
+            assertThat(input.length(), equalTo((long) content.length));
+            byte[] read = new byte[content.length];
+            input.readBytes(read, 0, read.length);
+            assertArrayEquals(content, read);
+        }
+    }
+}
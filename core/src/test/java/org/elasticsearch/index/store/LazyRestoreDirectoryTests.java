@@ -0,0 +1,294 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.LuceneTestCase.SuppressFileSystems;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+@SuppressFileSystems("WindowsFS") // moves and deletes cache files that are still open
+public class LazyRestoreDirectoryTests extends ESTestCase {
+
+    public void testReadBeforeAndAfterFetch() throws IOException {
+        final byte[] content = randomFileContent(randomIntBetween(1, 3 * LazyRestoreDirectory.BLOCK_SIZE));
+        final String checksum = checksum(content);
+        final AtomicInteger opened = new AtomicInteger();
+        Path location = createTempDir();
+        try (LazyRestoreDirectory directory = new LazyRestoreDirectory(FSDirectory.open(location), location, createTempDir().resolve("cache"))) {
+            directory.addRemoteFile("_0.cfs", new BytesRemoteFile(content, checksum, opened));
+            assertThat(Arrays.asList(directory.listAll()), hasItem("_0.cfs"));
+            assertThat(directory.fileLength("_0.cfs"), equalTo((long) content.length));
+            assertFalse(Files.exists(location.resolve("_0.cfs")));
+
+            // reading the footer only fetches the last block, or the last two if the footer spans them
+            try (IndexInput input = directory.openInput("_0.cfs", IOContext.DEFAULT)) {
+                assertThat(Store.digestToString(CodecUtil.retrieveChecksum(input)), equalTo(checksum));
+            }
+            assertThat(opened.get(), lessThanOrEqualTo(2));
+            assertContent(directory, "_0.cfs", content);
+            int openedBeforeFetch = opened.get();
+
+            // blocks that were read already aren't fetched again
+            directory.fetchRemaining("_0.cfs", null);
+            assertThat(opened.get(), equalTo(openedBeforeFetch));
+            assertTrue(Files.exists(location.resolve("_0.cfs")));
+            assertThat(directory.remoteFileNames().isEmpty(), equalTo(true));
+            assertContent(directory, "_0.cfs", content);
+            assertThat(opened.get(), equalTo(openedBeforeFetch));
+        }
+    }
+
+    public void testFetchRemainingReadsConsecutiveBlocksThroughOneStream() throws IOException {
+        final byte[] content = randomFileContent(randomIntBetween(2 * LazyRestoreDirectory.BLOCK_SIZE, 4 * LazyRestoreDirectory.BLOCK_SIZE));
+        final AtomicInteger opened = new AtomicInteger();
+        Path location = createTempDir();
+        try (LazyRestoreDirectory directory = new LazyRestoreDirectory(FSDirectory.open(location), location, createTempDir().resolve("cache"))) {
+            directory.addRemoteFile("_0.cfs", new BytesRemoteFile(content, checksum(content), opened));
+            directory.fetchRemaining("_0.cfs", null);
+            assertThat(opened.get(), equalTo(1));
+            assertContent(directory, "_0.cfs", content);
+        }
+    }
+
+    public void testConcurrentReadsFetchEachBlockOnce() throws Exception {
+        final byte[] content = randomFileContent(randomIntBetween(LazyRestoreDirectory.BLOCK_SIZE, 3 * LazyRestoreDirectory.BLOCK_SIZE));
+        final List<Long> openedPositions = new CopyOnWriteArrayList<>();
+        Path location = createTempDir();
+        try (LazyRestoreDirectory directory = new LazyRestoreDirectory(FSDirectory.open(location), location, createTempDir().resolve("cache"))) {
+            directory.addRemoteFile("_0.cfs", new BytesRemoteFile(content, checksum(content), new AtomicInteger()) {
+                @Override
+                public InputStream openStream(long position) throws IOException {
+                    openedPositions.add(position);
+                    return super.openStream(position);
+                }
+            });
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] threads = new Thread[randomIntBetween(2, 5)];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                        try (IndexInput input = directory.openInput("_0.cfs", IOContext.DEFAULT)) {
+                            byte[] read = new byte[content.length];
+                            input.readBytes(read, 0, read.length);
+                            assertArrayEquals(content, read);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(failure.get());
+            // a block that another thread is fetching is waited for, so no position is read twice
+            assertThat(new HashSet<>(openedPositions).size(), equalTo(openedPositions.size()));
+            assertContent(directory, "_0.cfs", content);
+        }
+    }
+
+    public void testChecksumMismatch() throws IOException {
+        final byte[] content = randomFileContent(randomIntBetween(1, 2 * LazyRestoreDirectory.BLOCK_SIZE));
+        final AtomicInteger opened = new AtomicInteger();
+        Path location = createTempDir();
+        try (LazyRestoreDirectory directory = new LazyRestoreDirectory(FSDirectory.open(location), location, createTempDir().resolve("cache"))) {
+            directory.addRemoteFile("_0.cfs", new BytesRemoteFile(content, "foobar", opened));
+            try {
+                directory.fetchRemaining("_0.cfs", null);
+                fail("expected a checksum failure");
+            } catch (CorruptIndexException e) {
+                assertThat(e.getMessage(), containsString("checksum failed"));
+            }
+            assertFalse(Files.exists(location.resolve("_0.cfs")));
+            assertThat(directory.remoteFileNames(), hasItem("_0.cfs"));
+        }
+    }
+
+    public void testDeleteRemoteFile() throws IOException {
+        final byte[] content = randomFileContent(randomIntBetween(1, LazyRestoreDirectory.BLOCK_SIZE));
+        Path location = createTempDir();
+        try (LazyRestoreDirectory directory = new LazyRestoreDirectory(FSDirectory.open(location), location, createTempDir().resolve("cache"))) {
+            directory.addRemoteFile("_0.cfs", new BytesRemoteFile(content, checksum(content), new AtomicInteger()));
+            IndexInput input = directory.openInput("_0.cfs", IOContext.DEFAULT);
+            directory.deleteFile("_0.cfs");
+            assertThat(Arrays.asList(directory.listAll()), not(hasItem("_0.cfs")));
+            // open inputs can still be read
+            assertThat(input.length(), equalTo((long) content.length));
+            input.readBytes(new byte[content.length], 0, content.length);
+            input.close();
+            // nothing to fetch anymore
+            assertThat(directory.fetchRemaining("_0.cfs", null), equalTo(0L));
+            assertFalse(Files.exists(location.resolve("_0.cfs")));
+        }
+    }
+
+    public void testCacheFilesAreClosedWithTheLastInput() throws IOException {
+        final byte[] content = randomFileContent(randomIntBetween(1, 2 * LazyRestoreDirectory.BLOCK_SIZE));
+        Path location = createTempDir();
+        LazyRestoreDirectory directory = new LazyRestoreDirectory(FSDirectory.open(location), location, createTempDir().resolve("cache"));
+        try {
+            directory.addRemoteFile("_0.cfs", new BytesRemoteFile(content, checksum(content), new AtomicInteger()));
+            directory.addRemoteFile("_1.cfs", new BytesRemoteFile(content, checksum(content), new AtomicInteger()));
+            directory.addRemoteFile("_2.cfs", new BytesRemoteFile(content, checksum(content), new AtomicInteger()));
+            assertThat(directory.openCacheFiles(), equalTo(3));
+
+            // a deleted file that isn't read anymore is closed right away
+            directory.deleteFile("_1.cfs");
+            assertThat(directory.openCacheFiles(), equalTo(2));
+
+            // a fetched file stays open as long as an input reads it, clones and slices don't hold on to it
+            IndexInput input = directory.openInput("_0.cfs", IOContext.DEFAULT);
+            IndexInput clone = input.clone();
+            IndexInput slice = input.slice("slice", 0, content.length);
+            directory.fetchRemaining("_0.cfs", null);
+            assertThat(directory.openCacheFiles(), equalTo(2));
+            clone.close();
+            slice.close();
+            assertThat(directory.openCacheFiles(), equalTo(2));
+            byte[] read = new byte[content.length];
+            input.readBytes(read, 0, read.length);
+            assertArrayEquals(content, read);
+            input.close();
+            input.close();
+            assertThat(directory.openCacheFiles(), equalTo(1));
+            // the fetched file is read from the index directory from now on
+            assertContent(directory, "_0.cfs", content);
+            assertThat(directory.openCacheFiles(), equalTo(1));
+
+            // files that weren't fetched are closed with the directory, unless they are still read
+            input = directory.openInput("_2.cfs", IOContext.DEFAULT);
+            directory.close();
+            assertThat(directory.openCacheFiles(), equalTo(1));
+            input.readBytes(read, 0, read.length);
+            assertArrayEquals(content, read);
+            input.close();
+            assertThat(directory.openCacheFiles(), equalTo(0));
+        } finally {
+            directory.close();
+        }
+    }
+
+    public void testUnwrap() throws IOException {
+        Path location = createTempDir();
+        try (LazyRestoreDirectory directory = new LazyRestoreDirectory(new RAMDirectory(), location, createTempDir().resolve("cache"))) {
+            assertThat(LazyRestoreDirectory.unwrap(directory), sameInstance(directory));
+            assertThat(LazyRestoreDirectory.unwrap(new FilterDirectory(directory) {}), sameInstance(directory));
+            assertThat(LazyRestoreDirectory.unwrap(directory.getDelegate()), nullValue());
+        }
+    }
+
+    private static void assertContent(LazyRestoreDirectory directory, String name, byte[] content) throws IOException {
+        try (IndexInput input = directory.openInput(name, IOContext.DEFAULT)) {
+            byte[] read = new byte[content.length];
+            input.readBytes(read, 0, read.length);
+            assertArrayEquals(content, read);
+            int offset = randomIntBetween(0, content.length - 1);
+            IndexInput slice = input.slice("slice", offset, content.length - offset);
+            slice.seek(0);
+            assertThat(slice.readByte(), equalTo(content[offset]));
+        }
+    }
+
+    private static byte[] randomFileContent(int length) throws IOException {
+        RAMDirectory ramDirectory = new RAMDirectory();
+        try (IndexOutput output = ramDirectory.createOutput("foo", IOContext.DEFAULT)) {
+            CodecUtil.writeHeader(output, "foo", 0);
+            output.writeBytes(randomByteArrayOfLength(length), length);
+            CodecUtil.writeFooter(output);
+        }
+        try (IndexInput input = ramDirectory.openInput("foo", IOContext.DEFAULT)) {
+            byte[] bytes = new byte[(int) input.length()];
+            input.readBytes(bytes, 0, bytes.length);
+            assertThat(bytes.length, greaterThan(length));
+            return bytes;
+        }
+    }
+
+    private static String checksum(byte[] content) throws IOException {
+        RAMDirectory ramDirectory = new RAMDirectory();
+        try (IndexOutput output = ramDirectory.createOutput("foo", IOContext.DEFAULT)) {
+            output.writeBytes(content, content.length);
+        }
+        try (IndexInput input = ramDirectory.openInput("foo", IOContext.DEFAULT)) {
+            return Store.digestToString(CodecUtil.retrieveChecksum(input));
+        }
+    }
+
+    private static class BytesRemoteFile implements LazyRestoreDirectory.RemoteFile {
+
+        private final byte[] content;
+        private final String checksum;
+        private final AtomicInteger opened;
+
+        BytesRemoteFile(byte[] content, String checksum, AtomicInteger opened) {
+            this.content = content;
+            this.checksum = checksum;
+            this.opened = opened;
+        }
+
+        @Override
+        public long length() {
+            return content.length;
+        }
+
+        @Override
+        public String checksum() {
+            return checksum;
+        }
+
+        @Override
+        public InputStream openStream(long position) throws IOException {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(content, (int) position, content.length - (int) position);
+        }
+    }
+}
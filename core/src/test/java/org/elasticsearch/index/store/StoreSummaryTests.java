@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class StoreSummaryTests extends ESTestCase {
+
+    public void testSummaryIsUsedWhileCurrent() throws IOException {
+        final ShardId shardId = new ShardId("index", 0);
+        final Path path = createTempDir().resolve("index").resolve("0");
+        final ShardPath shardPath = new ShardPath(false, path, path, "_na_", shardId);
+        Files.createDirectories(shardPath.resolveIndex());
+
+        assertThat(StoreSummary.loadIfCurrent(shardPath, logger), nullValue());
+        assertThat(StoreSummary.readMetadataSnapshot(shardPath, logger).size(), equalTo(0));
+
+        try (Directory dir = new SimpleFSDirectory(shardPath.resolveIndex());
+             IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            commit(writer, "1");
+            final Store.MetadataSnapshot snapshot = Store.readMetadataSnapshot(shardPath.resolveIndex(), logger);
+            StoreSummary.write(snapshot, shardPath.getShardStatePath());
+
+            Store.MetadataSnapshot summary = StoreSummary.loadIfCurrent(shardPath, logger);
+            assertThat(summary, notNullValue());
+            assertSameSnapshot(summary, snapshot);
+            assertSameSnapshot(StoreSummary.readMetadataSnapshot(shardPath, logger), snapshot);
+
+            // a newer commit makes the summary outdated
+            commit(writer, "2");
+            assertThat(StoreSummary.loadIfCurrent(shardPath, logger), nullValue());
+            final Store.MetadataSnapshot newSnapshot = StoreSummary.readMetadataSnapshot(shardPath, logger);
+            assertThat(newSnapshot.getCommitUserData().get("id"), equalTo("2"));
+            assertSameSnapshot(newSnapshot, Store.readMetadataSnapshot(shardPath.resolveIndex(), logger));
+
+            StoreSummary.write(newSnapshot, shardPath.getShardStatePath());
+            assertSameSnapshot(StoreSummary.loadIfCurrent(shardPath, logger), newSnapshot);
+        }
+    }
+
+    private static void commit(IndexWriter writer, String id) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField("id", id, Field.Store.YES));
+        writer.addDocument(doc);
+        Map<String, String> commitData = new HashMap<>();
+        commitData.put("id", id);
+        writer.setCommitData(commitData);
+        writer.commit();
+    }
+
+    private static void assertSameSnapshot(Store.MetadataSnapshot actual, Store.MetadataSnapshot expected) {
+        assertThat(actual.size(), equalTo(expected.size()));
+        assertThat(actual.getCommitUserData(), equalTo(expected.getCommitUserData()));
+        assertThat(actual.getNumDocs(), equalTo(expected.getNumDocs()));
+        for (StoreFileMetaData file : expected) {
+            assertTrue(file.isSame(actual.get(file.name())));
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
@@ -56,6 +57,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
@@ -84,6 +86,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
 
 /**
  *
@@ -137,8 +140,13 @@ public class TranslogTests extends ESTestCase {
     }
 
     private TranslogConfig getTranslogConfig(Path path) {
+        return getTranslogConfig(path, Settings.EMPTY);
+    }
+
+    private TranslogConfig getTranslogConfig(Path path, Settings settings) {
         Settings build = Settings.settingsBuilder()
                 .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+                .put(settings)
                 .build();
         ByteSizeValue bufferSize = randomBoolean() ? TranslogConfig.DEFAULT_BUFFER_SIZE : new ByteSizeValue(10 + randomInt(128 * 1024), ByteSizeUnit.BYTES);
         return new TranslogConfig(shardId, path, IndexSettingsModule.newIndexSettings(shardId.index(), build), BigArrays.NON_RECYCLING_INSTANCE, bufferSize);
@@ -230,6 +238,34 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testCompressedSource() throws IOException {
+        StringBuilder builder = new StringBuilder("{\"field\":\"");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("value ");
+        }
+        final byte[] largeSource = builder.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] smallSource = "{\"field\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+        Settings settings = Settings.builder().put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING.getKey(), true).build();
+        ArrayList<Translog.Operation> ops = new ArrayList<>();
+        try (Translog compressed = new Translog(getTranslogConfig(createTempDir(), settings))) {
+            Translog.Index large = new Translog.Index("test", "1", largeSource);
+            Translog.Index small = new Translog.Index("test", "2", smallSource);
+            addToTranslogAndList(compressed, ops, large);
+            addToTranslogAndList(compressed, ops, small);
+            addToTranslogAndList(compressed, ops, new Translog.Delete(newUid("3")));
+            Translog.Location loc = compressed.add(new Translog.Index("test", "4", largeSource));
+            ops.add(new Translog.Index("test", "4", largeSource));
+            assertThat(loc.size, lessThan(largeSource.length));
+            assertThat(compressed.read(loc).getSource().source.toBytesArray(), equalTo(new BytesArray(largeSource)));
+            assertThat(compressed.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+
+            // operations shipped to other nodes are always written uncompressed
+            BytesStreamOutput out = new BytesStreamOutput();
+            Translog.writeOperations(out, ops);
+            assertEquals(ops, Translog.readOperations(StreamInput.wrap(out.bytes())));
+        }
+    }
+
     public void testSimpleOperations() throws IOException {
         ArrayList<Translog.Operation> ops = new ArrayList<>();
         Translog.Snapshot snapshot = translog.newSnapshot();
@@ -391,6 +427,30 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testViewFromSyncMarker() throws IOException {
+        ArrayList<Translog.Operation> ops = new ArrayList<>();
+        translog.addSyncMarker("sync", translog.currentFileGeneration());
+        addToTranslogAndList(translog, ops, new Translog.Index("test", "1", new byte[]{1}));
+        translog.commit();
+        assertNull("translog since the synced flush must not be retained by default", translog.newViewFromSyncMarker("sync"));
+        assertNull(translog.newViewFromSyncMarker("unknown"));
+
+        Settings retention = Settings.settingsBuilder().put(IndexSettings.INDEX_TRANSLOG_RETENTION_AGE_SETTING.getKey(), "1h").build();
+        try (Translog retainingTranslog = new Translog(getTranslogConfig(createTempDir(), retention))) {
+            ops.clear();
+            retainingTranslog.addSyncMarker("sync", retainingTranslog.currentFileGeneration());
+            addToTranslogAndList(retainingTranslog, ops, new Translog.Index("test", "1", new byte[]{1}));
+            retainingTranslog.commit();
+            addToTranslogAndList(retainingTranslog, ops, new Translog.Index("test", "2", new byte[]{2}));
+            retainingTranslog.commit();
+            try (Translog.View view = retainingTranslog.newViewFromSyncMarker("sync")) {
+                assertNotNull(view);
+                assertThat(view.snapshot(), SnapshotMatchers.equalsTo(ops));
+            }
+            assertEquals(0, retainingTranslog.getNumOpenViews());
+        }
+    }
+
     public void testSnapshotOnClosedTranslog() throws IOException {
         assertTrue(Files.exists(translogDir.resolve(Translog.getFilename(1))));
         translog.add(new Translog.Index("test", "1", new byte[]{1}));
@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.cluster;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class IndicesClusterStateServiceTests extends ESTestCase {
+
+    public void testRunConcurrently() throws InterruptedException {
+        final int count = randomIntBetween(0, 100);
+        final int concurrency = randomIntBetween(1, 8);
+        final AtomicIntegerArray runs = new AtomicIntegerArray(count);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            IndicesClusterStateService.runConcurrently(count, concurrency, executor, runs::incrementAndGet);
+            // all tasks are done once the call returns
+            for (int i = 0; i < count; i++) {
+                assertThat(runs.get(i), equalTo(1));
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testRunConcurrentlyWhenWorkersNeverRun() {
+        final int count = randomIntBetween(1, 100);
+        final AtomicIntegerArray runs = new AtomicIntegerArray(count);
+        // an executor that drops tasks, as happens on shutdown, must not make the caller wait
+        IndicesClusterStateService.runConcurrently(count, randomIntBetween(2, 8), command -> {}, runs::incrementAndGet);
+        for (int i = 0; i < count; i++) {
+            assertThat(runs.get(i), equalTo(1));
+        }
+    }
+
+    public void testRunConcurrentlyWhenWorkersAreRejected() {
+        final int count = randomIntBetween(1, 100);
+        final AtomicIntegerArray runs = new AtomicIntegerArray(count);
+        IndicesClusterStateService.runConcurrently(count, randomIntBetween(2, 8), command -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, runs::incrementAndGet);
+        for (int i = 0; i < count; i++) {
+            assertThat(runs.get(i), equalTo(1));
+        }
+    }
+
+    public void testApplyConcurrencySetting() {
+        final int defaultConcurrency = IndicesClusterStateService.APPLY_CONCURRENCY_SETTING.get(Settings.EMPTY);
+        assertThat(defaultConcurrency, greaterThanOrEqualTo(1));
+        assertThat(defaultConcurrency, lessThanOrEqualTo(4));
+        assertThat(IndicesClusterStateService.APPLY_CONCURRENCY_SETTING.get(
+                Settings.builder().put("indices.cluster.apply_concurrency", 7).build()), equalTo(7));
+        try {
+            IndicesClusterStateService.APPLY_CONCURRENCY_SETTING.get(Settings.builder().put("indices.cluster.apply_concurrency", 0).build());
+            fail("concurrency must be at least 1");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -30,14 +30,18 @@ import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.cluster.routing.allocation.command.MoveAllocationCommand;
+import org.elasticsearch.cluster.routing.allocation.decider.EnableAllocationDecider;
 import org.elasticsearch.cluster.routing.allocation.decider.FilterAllocationDecider;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.discovery.DiscoveryService;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
@@ -243,6 +247,62 @@ public class IndexRecoveryIT extends ESIntegTestCase {
         validateIndexRecoveryState(nodeBRecoveryState.getIndex());
     }
 
+    public void testReplicaRecoveryReplaysRetainedTranslog() throws Exception {
+        logger.info("--> start node A");
+        final String nodeA = internalCluster().startNode();
+        logger.info("--> start node B");
+        final String nodeB = internalCluster().startNode();
+
+        logger.info("--> create index with translog retention");
+        assertAcked(prepareCreate(INDEX_NAME).setSettings(settingsBuilder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_AGE_SETTING.getKey(), "1h")
+                .put(UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING.getKey(), "0ms")
+                .put(EnableAllocationDecider.INDEX_ROUTING_REBALANCE_ENABLE_SETTING.getKey(), EnableAllocationDecider.Rebalance.NONE)));
+        ensureGreen();
+        final ClusterState state = client().admin().cluster().prepareState().get().getState();
+        final String primaryNodeId = state.routingTable().index(INDEX_NAME).shard(0).primaryShard().currentNodeId();
+        final String primaryNode = state.nodes().get(primaryNodeId).name();
+        final String replicaNode = primaryNode.equals(nodeA) ? nodeB : nodeA;
+
+        final int initialDocs = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < initialDocs; i++) {
+            client().prepareIndex(INDEX_NAME, INDEX_TYPE, Integer.toString(i)).setSource("num", i).get();
+        }
+        logger.info("--> synced flush");
+        assertThat(client().admin().indices().prepareSyncedFlush(INDEX_NAME).get().failedShards(), equalTo(0));
+
+        final int moreDocs = scaledRandomIntBetween(10, 100);
+        logger.info("--> restart replica node {} and index {} docs while it's down", replicaNode, moreDocs);
+        internalCluster().restartNode(replicaNode, new InternalTestCluster.RestartCallback() {
+            @Override
+            public Settings onNodeStopped(String nodeName) throws Exception {
+                for (int i = 0; i < moreDocs; i++) {
+                    client(primaryNode).prepareIndex(INDEX_NAME, INDEX_TYPE, Integer.toString(initialDocs + i)).setSource("num", i).get();
+                    if (i == moreDocs / 2) {
+                        // a regular flush replaces the primary's sync id, so only the retained translog lets the replica skip phase1
+                        client(primaryNode).admin().indices().prepareFlush(INDEX_NAME).setForce(true).setWaitIfOngoing(true).get();
+                    }
+                }
+                return super.onNodeStopped(nodeName);
+            }
+        });
+        ensureGreen();
+
+        RecoveryResponse response = client().admin().indices().prepareRecoveries(INDEX_NAME).get();
+        List<RecoveryState> replicaRecoveries = findRecoveriesForTargetNode(replicaNode, response.shardRecoveryStates().get(INDEX_NAME));
+        assertThat(replicaRecoveries.size(), equalTo(1));
+        RecoveryState replicaRecovery = replicaRecoveries.get(0);
+        assertRecoveryState(replicaRecovery, 0, Type.REPLICA, Stage.DONE, primaryNode, replicaNode, false);
+        assertThat("phase1 should be skipped", replicaRecovery.getIndex().totalFileCount(), equalTo(0));
+        assertThat(replicaRecovery.getIndex().recoveredBytes(), equalTo(0L));
+        assertThat(replicaRecovery.getTranslog().recoveredOperations(), equalTo(moreDocs));
+
+        refresh();
+        assertHitCount(client().prepareSearch(INDEX_NAME).setPreference("_replica").setSize(0).get(), initialDocs + moreDocs);
+    }
+
     @TestLogging("indices.recovery:TRACE")
     public void testRerouteRecovery() throws Exception {
         logger.info("--> start node A");
@@ -18,9 +18,12 @@
  */
 package org.elasticsearch.indices.recovery;
 
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.transport.LocalTransportAddress;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.IndexService;
@@ -29,6 +32,9 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -81,4 +87,41 @@ public class RecoveryStatusTests extends ESSingleNodeTestCase {
         // we must fail the recovery because marking it as done will try to move the shard to POST_RECOVERY, which will fail because it's started
         status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
     }
+
+    public void testWriteFileChunksOutOfOrder() throws IOException {
+        IndexService service = createIndex("foo");
+
+        IndexShard indexShard = service.getShardOrNull(0);
+        DiscoveryNode node = new DiscoveryNode("foo", new LocalTransportAddress("bar"), Version.CURRENT);
+        RecoveryStatus status = new RecoveryStatus(indexShard, node, new RecoveryTarget.RecoveryListener() {
+            @Override
+            public void onRecoveryDone(RecoveryState state) {
+            }
+
+            @Override
+            public void onRecoveryFailure(RecoveryState state, RecoveryFailedException e, boolean sendShardFailure) {
+            }
+        });
+        byte[] bytes = randomByteArrayOfLength(randomIntBetween(1, 1024));
+        StoreFileMetaData md = new StoreFileMetaData("foo.bar", bytes.length);
+        status.state().getIndex().addFileDetail(md.name(), md.length(), false);
+        List<Integer> offsets = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += randomIntBetween(1, 128)) {
+            offsets.add(offset);
+        }
+        List<Integer> order = new ArrayList<>(offsets);
+        Collections.shuffle(order, random());
+        for (int offset : order) {
+            int index = offsets.indexOf(offset);
+            int end = index + 1 < offsets.size() ? offsets.get(index + 1) : bytes.length;
+            status.writeFileChunk(md, offset, new BytesArray(bytes, offset, end - offset), end == bytes.length);
+        }
+        assertNull("all chunks were written, the output must be closed", status.getOpenIndexOutput(md.name()));
+        try (IndexInput input = status.store().directory().openInput(status.getTempNameForFile(md.name()), IOContext.DEFAULT)) {
+            byte[] written = new byte[bytes.length];
+            input.readBytes(written, 0, written.length);
+            assertArrayEquals(bytes, written);
+        }
+        status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
+    }
 }
@@ -27,6 +27,7 @@ import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.settings.Settings;
@@ -418,6 +419,40 @@ public class UpdateSettingsIT extends ESIntegTestCase {
         }
     }
 
+    public void testAutoTuneMergeThreadsBoundedByMaxThreadCount() {
+        assertAcked(prepareCreate("test")
+                    .setSettings(Settings.builder()
+                                 .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, "1")
+                                 .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, "0")
+                                 .put(MergeSchedulerConfig.MAX_THREAD_COUNT_SETTING.getKey(), "3")
+                                 .put(MergeSchedulerConfig.MAX_MERGE_COUNT_SETTING.getKey(), "8")
+                                 .put(MergeSchedulerConfig.AUTO_TUNE_SETTING.getKey(), "true")
+                                 ));
+        ensureGreen();
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("test").setMerge(true).get();
+        assertThat(stats.getPrimaries().getMerge().getTotalMaxThreadCount(), equalTo(3L));
+
+        client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(MergeSchedulerConfig.MAX_THREAD_COUNT_SETTING.getKey(), "1"))
+            .get();
+        stats = client().admin().indices().prepareStats("test").setMerge(true).get();
+        assertThat(stats.getPrimaries().getMerge().getTotalMaxThreadCount(), equalTo(1L));
+
+        // with auto tuning enabled raising the maximum keeps the tuned thread count, threads are only added once merges back up
+        client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(MergeSchedulerConfig.MAX_THREAD_COUNT_SETTING.getKey(), "2"))
+            .get();
+        stats = client().admin().indices().prepareStats("test").setMerge(true).get();
+        assertThat(stats.getPrimaries().getMerge().getTotalMaxThreadCount(), equalTo(1L));
+
+        // disabling auto tuning restores the configured value
+        client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(MergeSchedulerConfig.AUTO_TUNE_SETTING.getKey(), "false"))
+            .get();
+        stats = client().admin().indices().prepareStats("test").setMerge(true).get();
+        assertThat(stats.getPrimaries().getMerge().getTotalMaxThreadCount(), equalTo(2L));
+    }
+
     public void testUpdateSettingsWithBlocks() {
         createIndex("test");
         ensureGreen("test");
@@ -41,12 +41,17 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.translog.BufferedChecksumStreamOutput;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepositoryIndex;
 import org.elasticsearch.repositories.blobstore.ChecksumBlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.LegacyBlobStoreFormat;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -192,6 +197,29 @@ public class BlobStoreFormatIT extends AbstractSnapshotIntegTestCase {
         assertEquals(legacySMILE.read(blobContainer, "legacy-smile-comp").getText(), "legacy smile compressed");
     }
 
+    public void testRepositoryIndexRoundTrip() throws IOException {
+        BlobStore blobStore = createTestBlobStore();
+        BlobContainer blobContainer = blobStore.blobContainer(BlobPath.cleanPath());
+        ChecksumBlobStoreFormat<BlobStoreRepositoryIndex> format = new ChecksumBlobStoreFormat<>("repository-index", "index-%s",
+                BlobStoreRepositoryIndex.PROTO, parseFieldMatcher, randomBoolean(), randomFrom(XContentType.JSON, XContentType.SMILE));
+        Snapshot first = new Snapshot("snap-1", Arrays.asList("index-1", "index-2"), 1000L, null, 2000L, 4, Collections.emptyList());
+        Snapshot second = new Snapshot("snap-2", Collections.singletonList("index-1"), 3000L, "failed", 4000L, 2, Collections.emptyList());
+        Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+        snapshots.put("snap-0", null);
+        snapshots.put(first.name(), first);
+        BlobStoreRepositoryIndex index = new BlobStoreRepositoryIndex(snapshots).withSnapshot(second);
+        format.writeAtomic(index, blobContainer, "1");
+
+        BlobStoreRepositoryIndex read = format.read(blobContainer, "1");
+        assertEquals(Arrays.asList("snap-0", "snap-1", "snap-2"), new ArrayList<>(read.snapshotNames()));
+        assertNull(read.snapshot("snap-0"));
+        assertEquals(first.indices(), read.snapshot("snap-1").indices());
+        assertEquals(first.endTime(), read.snapshot("snap-1").endTime());
+        assertEquals(second.reason(), read.snapshot("snap-2").reason());
+        assertEquals(second.state(), read.snapshot("snap-2").state());
+        assertFalse(read.withoutSnapshot("snap-1").contains("snap-1"));
+    }
+
     public void testCompressionIsApplied() throws IOException {
         BlobStore blobStore = createTestBlobStore();
         BlobContainer blobContainer = blobStore.blobContainer(BlobPath.cleanPath());
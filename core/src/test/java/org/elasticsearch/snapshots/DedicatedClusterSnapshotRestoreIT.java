@@ -44,6 +44,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.discovery.zen.ZenDiscovery;
 import org.elasticsearch.discovery.zen.elect.ElectMasterService;
+import org.elasticsearch.index.store.FsDirectoryService;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.indices.ttl.IndicesTTLService;
@@ -391,8 +392,8 @@ public class DedicatedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTest
 
         logger.info("--> making sure that snapshot no longer exists");
         assertThrows(client().admin().cluster().prepareGetSnapshots("test-repo").setSnapshots("test-snap").execute(), SnapshotMissingException.class);
-        // Subtract index file from the count
-        assertThat("not all files were deleted during snapshot cancellation", numberOfFilesBeforeSnapshot, equalTo(numberOfFiles(repo) - 1));
+        // Subtract the snapshot list, the repository index and its pointer from the count
+        assertThat("not all files were deleted during snapshot cancellation", numberOfFilesBeforeSnapshot, equalTo(numberOfFiles(repo) - 3));
         logger.info("--> done");
     }
 
@@ -604,6 +605,55 @@ public class DedicatedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTest
         assertThat(reusedShards.size(), greaterThanOrEqualTo(numberOfShards / 2));
     }
 
+    public void testLazyRestoreSurvivesRestartAndProtectsSnapshot() throws Exception {
+        logger.info("--> start 2 nodes");
+        internalCluster().startNode();
+        internalCluster().startNode();
+        cluster().wipeIndices("_all");
+
+        logger.info("--> create repository");
+        assertAcked(client().admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", randomRepoPath())
+                        .put("max_restore_bytes_per_sec", randomFrom("10kb", "0"))));
+        assertAcked(prepareCreate("test-idx", 2, settingsBuilder().put("number_of_shards", 2).put("number_of_replicas", 0)));
+        ensureGreen();
+
+        logger.info("--> indexing some data into test-idx");
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        refresh();
+
+        logger.info("--> snapshot and restore the index lazily");
+        assertThat(client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-1").setIndices("test-idx").setWaitForCompletion(true).get().getSnapshotInfo().state(), equalTo(SnapshotState.SUCCESS));
+        cluster().wipeIndices("test-idx");
+        RestoreSnapshotResponse restoreSnapshotResponse = client().admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-1")
+                .setIndexSettings(settingsBuilder().put(FsDirectoryService.INDEX_LAZY_RESTORE_SETTING.getKey(), true))
+                .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen("test-idx");
+        Settings indexSettings = client().admin().indices().prepareGetSettings("test-idx").get().getIndexToSettings().get("test-idx");
+        assertThat(FsDirectoryService.INDEX_LAZY_RESTORE_SNAPSHOT_SETTING.get(indexSettings), equalTo("test-snap-1"));
+
+        logger.info("--> the snapshot can't be deleted while the index may read files from it");
+        try {
+            client().admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get();
+            fail("expected the deletion of the snapshot to fail");
+        } catch (SnapshotException e) {
+            assertThat(e.getMessage(), containsString("was restored lazily from it"));
+        }
+
+        logger.info("--> files that weren't fetched before the restart are read from the snapshot again");
+        internalCluster().fullRestart();
+        ensureGreen("test-idx");
+        assertThat(client().prepareSearch("test-idx").setSize(0).get().getHits().totalHits(), equalTo(100L));
+
+        logger.info("--> the snapshot can be deleted once the index is gone");
+        cluster().wipeIndices("test-idx");
+        assertAcked(client().admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get());
+    }
+
     public void testRegistrationFailure() {
         logger.info("--> start first node");
         internalCluster().startNode();
@@ -55,6 +55,7 @@ import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.cluster.routing.allocation.decider.FilterAllocationDecider;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.TimeValue;
@@ -111,7 +112,8 @@ public class SharedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTestCas
                 .setType("fs").setSettings(Settings.settingsBuilder()
                         .put("location", randomRepoPath())
                         .put("compress", randomBoolean())
-                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)));
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)
+                        .put("max_concurrent_file_transfers", randomIntBetween(1, 5))));
 
         createIndex("test-idx-1", "test-idx-2", "test-idx-3");
         ensureGreen();
@@ -758,6 +760,149 @@ public class SharedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTestCas
         assertThat(createSnapshotResponse.getSnapshotInfo().reason(), startsWith("Indices don't have primary shards"));
     }
 
+    public void testDeduplicateFilesAcrossIndices() throws Exception {
+        Client client = client();
+
+        Path repo = randomRepoPath();
+        logger.info("-->  creating repository at " + repo.toAbsolutePath());
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("deduplicate", true)
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)));
+
+        assertAcked(prepareCreate("test-idx", 1, Settings.builder().put(indexSettings())
+                .put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0)));
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        refresh();
+
+        logger.info("--> snapshot the index");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-1")
+                .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        Path contentPath = repo.resolve("content");
+        int contentFiles = FileSystemUtils.files(contentPath, "content-*").length;
+        assertThat(contentFiles, greaterThan(0));
+
+        logger.info("--> restore a copy of the index and snapshot it");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-1")
+                .setRenamePattern("test-idx").setRenameReplacement("copy-idx").setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().successfulShards(), equalTo(1));
+        ensureGreen();
+        createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-2")
+                .setWaitForCompletion(true).setIndices("copy-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        // the segment files of the copy are identical, at most the commit point differs
+        assertThat(FileSystemUtils.files(contentPath, "content-*").length, lessThan(contentFiles * 2));
+
+        logger.info("--> content is kept as long as a snapshot references it");
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get();
+        cluster().wipeIndices("copy-idx");
+        restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-2")
+                .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().successfulShards(), equalTo(1));
+        ensureGreen();
+        assertThat(client.prepareSearch("copy-idx").setSize(0).get().getHits().totalHits(), equalTo(100L));
+
+        logger.info("--> content is deleted with the last snapshot referencing it");
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-2").get();
+        assertThat(FileSystemUtils.files(contentPath, "content-*").length, equalTo(0));
+        assertThat(FileSystemUtils.files(contentPath, "ref-*").length, equalTo(0));
+    }
+
+    public void testDeduplicateReleasesReferencesOfFailedSnapshot() throws Exception {
+        Client client = client();
+
+        Path repo = randomRepoPath();
+        logger.info("-->  creating repository at " + repo.toAbsolutePath());
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("mock").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("deduplicate", true)
+                        .put("random", randomAsciiOfLength(10))
+                        .put("random_data_file_io_exception_rate", 1.0)));
+
+        assertAcked(prepareCreate("test-idx", 1, Settings.builder().put(indexSettings())
+                .put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0)));
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        refresh();
+
+        logger.info("--> snapshot fails while uploading content");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+                .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().failedShards(), equalTo(1));
+        // the shard referenced the content before it failed to upload it and drops these references when it fails
+        Path contentPath = repo.resolve("content");
+        assertThat(FileSystemUtils.files(contentPath, "ref-*").length, equalTo(0));
+        assertThat(FileSystemUtils.files(contentPath, "content-*").length, equalTo(0));
+
+        logger.info("--> snapshot again and delete the snapshot");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("deduplicate", true)));
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap").get();
+        createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+                .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        assertThat(FileSystemUtils.files(contentPath, "ref-*").length, greaterThan(0));
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap").get();
+        assertThat(FileSystemUtils.files(contentPath, "ref-*").length, equalTo(0));
+        assertThat(FileSystemUtils.files(contentPath, "content-*").length, equalTo(0));
+    }
+
+    public void testRepositoryIndexPointer() throws Exception {
+        Client client = client();
+
+        Path repo = randomRepoPath();
+        logger.info("-->  creating repository at " + repo.toAbsolutePath());
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder().put("location", repo)));
+        logger.info("-->  creating read-only repository at the same location");
+        assertAcked(client.admin().cluster().preparePutRepository("other-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder().put("location", repo).put("readonly", true)));
+
+        createIndex("test-idx-1", "test-idx-2");
+        ensureGreen();
+        index("test-idx-1", "doc", "1", "foo", "bar");
+        index("test-idx-2", "doc", "1", "foo", "bar");
+        refresh();
+
+        logger.info("--> create two snapshots");
+        for (String snapshot : Arrays.asList("test-snap-1", "test-snap-2")) {
+            CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", snapshot)
+                    .setWaitForCompletion(true).setIndices("test-idx-1").get();
+            assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        }
+        Path pointer = repo.resolve("index.latest");
+        assertTrue(Files.exists(pointer));
+        assertThat(client.admin().cluster().prepareGetSnapshots("other-repo").get().getSnapshots().size(), equalTo(2));
+
+        logger.info("--> snapshots are found by listing the index generations if the pointer is missing or incomplete");
+        Files.delete(pointer);
+        assertThat(client.admin().cluster().prepareGetSnapshots("test-repo").get().getSnapshots().size(), equalTo(2));
+        Files.write(pointer, new byte[randomIntBetween(0, 7)]);
+        assertThat(client.admin().cluster().prepareGetSnapshots("test-repo").get().getSnapshots().size(), equalTo(2));
+
+        logger.info("--> replace a snapshot with one of another index");
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get();
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-1")
+                .setWaitForCompletion(true).setIndices("test-idx-2").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        assertThat(Files.size(pointer), equalTo(8L));
+
+        logger.info("--> the other repository doesn't serve the replaced snapshot from its cached index");
+        List<SnapshotInfo> snapshotInfos = client.admin().cluster().prepareGetSnapshots("other-repo").setSnapshots("test-snap-1").get().getSnapshots();
+        assertThat(snapshotInfos.size(), equalTo(1));
+        assertThat(snapshotInfos.get(0).indices(), equalTo(Collections.singletonList("test-idx-2")));
+    }
+
     public void testDeleteSnapshot() throws Exception {
         final int numberOfSnapshots = between(5, 15);
         Client client = client();
@@ -271,7 +271,8 @@ public class MockRepository extends FsRepository {
             }
 
             private void maybeIOExceptionOrBlock(String blobName) throws IOException {
-                if (blobName.startsWith("__")) {
+                // deduplicated files are stored as content blobs
+                if (blobName.startsWith("__") || blobName.startsWith("content-")) {
                     if (shouldFail(blobName, randomDataFileIOExceptionRate) && (incrementAndGetFailureCount() < maximumNumberOfFailures)) {
                         logger.info("throwing random IOException for file [{}] at path [{}]", blobName, path());
                         throw new IOException("Random IOException");
@@ -44,6 +44,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import static java.util.Collections.emptyMap;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 
@@ -204,6 +206,70 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
         serviceA.removeHandler("sayHello");
     }
 
+    public void testActionStats() throws Exception {
+        serviceA.registerRequestHandler("sayHello", StringMessageRequest::new, ThreadPool.Names.GENERIC, new TransportRequestHandler<StringMessageRequest>() {
+            @Override
+            public void messageReceived(StringMessageRequest request, TransportChannel channel) throws Exception {
+                channel.sendResponse(new StringMessageResponse("hello " + request.message));
+            }
+        });
+
+        final int iterations = randomIntBetween(1, 5);
+        for (int i = 0; i < iterations; i++) {
+            serviceB.submitRequest(nodeA, "sayHello", new StringMessageRequest("moshe"), new BaseTransportResponseHandler<StringMessageResponse>() {
+                @Override
+                public StringMessageResponse newInstance() {
+                    return new StringMessageResponse();
+                }
+
+                @Override
+                public String executor() {
+                    return ThreadPool.Names.SAME;
+                }
+
+                @Override
+                public void handleResponse(StringMessageResponse response) {
+                }
+
+                @Override
+                public void handleException(TransportException exp) {
+                    fail("got exception instead of a response: " + exp.getMessage());
+                }
+            }).txGet();
+        }
+
+        TransportActionStats outgoing = actionStats(serviceB, "sayHello");
+        assertThat(outgoing.getOutgoingCount(), equalTo((long) iterations));
+        assertThat(outgoing.getOutgoingMaxInMicros(), greaterThanOrEqualTo(outgoing.getOutgoingP50InMicros()));
+        assertThat(outgoing.getOutgoingRequestSize().bytes(), greaterThan(0L));
+        assertThat(outgoing.getOutgoingResponseSize().bytes(), greaterThan(0L));
+        assertThat(outgoing.getRxCount(), equalTo(0L));
+
+        assertBusy(() -> {
+            TransportActionStats incoming = actionStats(serviceA, "sayHello");
+            assertThat(incoming.getRxCount(), equalTo((long) iterations));
+            assertThat(incoming.getTxCount(), equalTo((long) iterations));
+            assertThat(incoming.getQueueCount(), equalTo((long) iterations));
+            assertThat(incoming.getQueueMaxInMicros(), greaterThanOrEqualTo(incoming.getQueueP50InMicros()));
+            assertThat(incoming.getHandlingCount(), equalTo((long) iterations));
+            assertThat(incoming.getOutgoingCount(), equalTo(0L));
+            // both sides see the same messages
+            assertThat(incoming.getRxSize(), equalTo(outgoing.getOutgoingRequestSize()));
+            assertThat(incoming.getTxSize(), equalTo(outgoing.getOutgoingResponseSize()));
+        });
+
+        serviceA.removeHandler("sayHello");
+    }
+
+    protected static TransportActionStats actionStats(TransportService service, String action) {
+        for (TransportActionStats stats : service.stats().getActionStats()) {
+            if (stats.getAction().equals(action)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("no stats for action [" + action + "]");
+    }
+
     public void testLocalNodeConnection() throws InterruptedException {
         assertTrue("serviceA is not connected to nodeA", serviceA.nodeConnected(nodeA));
         if (((TransportService) serviceA).getLocalNode() != null) {
@@ -129,7 +129,7 @@ public class NettyTransportIT extends ESIntegTestCase {
                 pipeline.replace("dispatcher", "dispatcher", new MessageChannelHandler(nettyTransport, logger, NettyTransport.DEFAULT_PROFILE) {
 
                     @Override
-                    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+                    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version, long messageSize) throws IOException {
                         final String action = buffer.readString();
 
                         final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, transportServiceAdapter, action, channel, requestId, version, name);
@@ -138,6 +138,7 @@ public class NettyTransportIT extends ESIntegTestCase {
                             if (reg == null) {
                                 throw new ActionNotFoundTransportException(action);
                             }
+                            reg.getMetrics().onRequestReceived(messageSize);
                             final TransportRequest request = reg.newRequest();
                             request.remoteAddress(new InetSocketTransportAddress((InetSocketAddress) channel.getRemoteAddress()));
                             request.readFrom(buffer);
@@ -19,8 +19,27 @@
 
 package org.elasticsearch.transport.netty;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.compress.deflate.DeflateCompressor;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.jboss.netty.channel.Channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /** Unit tests for NettyTransport */
 public class NettyTransportTests extends ESTestCase {
@@ -127,4 +146,86 @@ public class NettyTransportTests extends ESTestCase {
         assertEquals(101, addresses[1].getPort());
         assertEquals(102, addresses[2].getPort());
     }
+
+    /** Test that only the configured actions are compressed, with the configured level */
+    public void testCompressActions() throws Exception {
+        ThreadPool threadPool = new ThreadPool("tst");
+        try {
+            Settings settings = Settings.builder()
+                    .putArray(Transport.TRANSPORT_TCP_COMPRESS_ACTIONS.getKey(), "internal:index/shard/recovery/*", "indices:data/write/bulk*")
+                    .put(Transport.TRANSPORT_TCP_COMPRESS_LEVEL.getKey(), 1)
+                    .build();
+            NettyTransport transport = newNettyTransport(settings, threadPool);
+            assertTrue(transport.compress("internal:index/shard/recovery/file_chunk"));
+            assertTrue(transport.compress("indices:data/write/bulk[s]"));
+            assertFalse(transport.compress("indices:data/read/search"));
+            assertFalse(transport.compress("internal:index/shard/exists"));
+            assertEquals(1, ((DeflateCompressor) transport.compressor).level());
+
+            transport = newNettyTransport(Settings.builder().put(Transport.TRANSPORT_TCP_COMPRESS.getKey(), true).build(), threadPool);
+            assertTrue(transport.compress("indices:data/read/search"));
+            assertEquals(DeflateCompressor.DEFAULT_LEVEL, ((DeflateCompressor) transport.compressor).level());
+
+            transport = newNettyTransport(Settings.EMPTY, threadPool);
+            assertFalse(transport.compress("internal:index/shard/recovery/file_chunk"));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    /** Test that channels of a type are picked round robin */
+    public void testPickChannelRoundRobin() {
+        Channel[] reg = new Channel[] {mockChannel(true), mockChannel(true), mockChannel(true)};
+        NettyTransport.NodeChannels channels = newNodeChannels(reg);
+        List<Channel> picked = pick(channels, 2 * reg.length);
+        assertEquals(new HashSet<>(Arrays.asList(reg)), new HashSet<>(picked.subList(0, reg.length)));
+        assertEquals(picked.subList(0, reg.length), picked.subList(reg.length, 2 * reg.length));
+    }
+
+    /** Test that channels which are not writable are skipped in favor of the next writable one */
+    public void testPickChannelSkipsUnwritableChannels() {
+        Channel[] reg = new Channel[] {mockChannel(true), mockChannel(false), mockChannel(true)};
+        NettyTransport.NodeChannels channels = newNodeChannels(reg);
+        List<Channel> picked = pick(channels, 3 * reg.length);
+        assertFalse(picked.contains(reg[1]));
+        // the turn of the unwritable channel goes to the one after it
+        assertEquals(reg.length, Collections.frequency(picked, reg[0]));
+        assertEquals(2 * reg.length, Collections.frequency(picked, reg[2]));
+
+        // once it drained its buffer the channel is picked again
+        when(reg[1].isWritable()).thenReturn(true);
+        assertEquals(new HashSet<>(Arrays.asList(reg)), new HashSet<>(pick(channels, reg.length)));
+    }
+
+    /** Test that channels are still picked round robin if none of them is writable */
+    public void testPickChannelFallsBackIfNoneIsWritable() {
+        Channel[] reg = new Channel[] {mockChannel(false), mockChannel(false), mockChannel(false)};
+        NettyTransport.NodeChannels channels = newNodeChannels(reg);
+        List<Channel> picked = pick(channels, 2 * reg.length);
+        assertEquals(new HashSet<>(Arrays.asList(reg)), new HashSet<>(picked.subList(0, reg.length)));
+        assertEquals(picked.subList(0, reg.length), picked.subList(reg.length, 2 * reg.length));
+    }
+
+    private static NettyTransport.NodeChannels newNodeChannels(Channel[] reg) {
+        Channel[] other = new Channel[] {mockChannel(true)};
+        return new NettyTransport.NodeChannels(other, other, reg, other, other);
+    }
+
+    private static List<Channel> pick(NettyTransport.NodeChannels channels, int count) {
+        List<Channel> picked = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            picked.add(channels.channel(TransportRequestOptions.Type.REG));
+        }
+        return picked;
+    }
+
+    private static Channel mockChannel(boolean writable) {
+        Channel channel = mock(Channel.class);
+        when(channel.isWritable()).thenReturn(writable);
+        return channel;
+    }
+
+    private static NettyTransport newNettyTransport(Settings settings, ThreadPool threadPool) {
+        return new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE, Version.CURRENT, new NamedWriteableRegistry());
+    }
 }
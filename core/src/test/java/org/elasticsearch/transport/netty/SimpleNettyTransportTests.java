@@ -27,13 +27,22 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.transport.MockTransportService;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.AbstractSimpleTransportTestCase;
 import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.EmptyTransportResponseHandler;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportActionStats;
+import org.elasticsearch.transport.TransportRequestHandler;
+import org.elasticsearch.transport.TransportResponse;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
 
 public class SimpleNettyTransportTests extends AbstractSimpleTransportTestCase {
 
@@ -54,4 +63,38 @@ public class SimpleNettyTransportTests extends AbstractSimpleTransportTestCase {
             assertThat(e.getMessage(), containsString("[localhost/127.0.0.1:9876]"));
         }
     }
+
+    public void testCompressActionsStats() throws Exception {
+        final String compressedAction = "internal:compressed/hello";
+        final String plainAction = "internal:plain/hello";
+        TransportRequestHandler<StringMessageRequest> handler = (request, channel) -> channel.sendResponse(TransportResponse.Empty.INSTANCE);
+        serviceA.registerRequestHandler(compressedAction, StringMessageRequest::new, ThreadPool.Names.SAME, handler);
+        serviceA.registerRequestHandler(plainAction, StringMessageRequest::new, ThreadPool.Names.SAME, handler);
+
+        Settings settings = Settings.builder()
+                .put("name", "TS_C")
+                .putArray(Transport.TRANSPORT_TCP_COMPRESS_ACTIONS.getKey(), "internal:compressed/*")
+                .put(Transport.TRANSPORT_TCP_COMPRESS_LEVEL.getKey(), 1)
+                .build();
+        MockTransportService serviceC = build(settings, Version.CURRENT, new NamedWriteableRegistry());
+        try {
+            serviceC.connectToNode(nodeA);
+            final String message = new String(new char[1024]).replace('\0', 'a');
+            for (String action : new String[] {compressedAction, plainAction}) {
+                serviceC.submitRequest(nodeA, action, new StringMessageRequest(message), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+            }
+
+            TransportActionStats compressed = actionStats(serviceC, compressedAction);
+            assertThat(compressed.getCompressionCount(), equalTo(1L));
+            assertThat(compressed.getCompressionUncompressedSize().bytes(), greaterThan((long) message.length()));
+            assertThat(compressed.getCompressionCompressedSize().bytes(), lessThan(compressed.getCompressionUncompressedSize().bytes()));
+            assertThat(actionStats(serviceC, plainAction).getCompressionCount(), equalTo(0L));
+            // responses are compressed according to the settings of the node that sends them
+            assertThat(actionStats(serviceA, compressedAction).getCompressionCount(), equalTo(0L));
+        } finally {
+            serviceC.close();
+            serviceA.removeHandler(compressedAction);
+            serviceA.removeHandler(plainAction);
+        }
+    }
 }
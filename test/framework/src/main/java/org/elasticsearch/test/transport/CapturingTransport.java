@@ -124,7 +124,7 @@ public class CapturingTransport implements Transport {
 
     /** simulate a response for the given requestId */
     public void handleResponse(final long requestId, final TransportResponse response) {
-        adapter.onResponseReceived(requestId).handleResponse(response);
+        adapter.onResponseReceived(requestId, 0).handleResponse(response);
     }
 
     /**
@@ -165,7 +165,7 @@ public class CapturingTransport implements Transport {
      * @param e the failure
      */
     public void handleError(final long requestId, final TransportException e) {
-        adapter.onResponseReceived(requestId).handleException(e);
+        adapter.onResponseReceived(requestId, 0).handleException(e);
     }
 
     @Override